@@ -0,0 +1,24 @@
+-- Moves photo binary data from PHOTOS.PHOTO_DATA into the separate PHOTO_BLOB table.
+-- Run once against an existing Oracle schema before starting a build that maps
+-- Photo.blob (i.e. when running with spring.jpa.hibernate.ddl-auto=update or validate).
+
+CREATE TABLE photo_blob (
+    id         VARCHAR2(36 CHAR) NOT NULL,
+    photo_data BLOB NOT NULL,
+    CONSTRAINT pk_photo_blob PRIMARY KEY (id)
+);
+
+ALTER TABLE photos ADD (blob_id VARCHAR2(36 CHAR));
+
+-- Reuse the photo ID as the blob ID so the copy needs no lookup table
+INSERT INTO photo_blob (id, photo_data)
+SELECT id, photo_data FROM photos WHERE photo_data IS NOT NULL;
+
+UPDATE photos SET blob_id = id WHERE photo_data IS NOT NULL;
+
+ALTER TABLE photos ADD CONSTRAINT fk_photos_blob FOREIGN KEY (blob_id) REFERENCES photo_blob (id);
+ALTER TABLE photos ADD CONSTRAINT uk_photos_blob UNIQUE (blob_id);
+
+ALTER TABLE photos DROP COLUMN photo_data;
+
+COMMIT;
@@ -0,0 +1,6 @@
+-- Adds ID to IDX_PHOTOS_UPLOADED_AT so (uploaded_at, id) keyset lookups, such as the
+-- detail page's previous/next navigation, are answered from the index alone.
+
+DROP INDEX idx_photos_uploaded_at;
+
+CREATE INDEX idx_photos_uploaded_at ON photos (uploaded_at, id);
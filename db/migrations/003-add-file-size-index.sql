@@ -0,0 +1,5 @@
+-- Adds IDX_PHOTOS_FILE_SIZE so /api/stats can read the largest photos from the top of
+-- the index. The summary tables (PHOTO_MONTH_COUNTS, PHOTO_MIME_STATS, PHOTO_SIZE_BUCKETS)
+-- are created by 010-add-photo-summary-tables.sql and filled from PHOTOS on the next startup.
+
+CREATE INDEX idx_photos_file_size ON photos (file_size);
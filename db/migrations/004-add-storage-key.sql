@@ -0,0 +1,10 @@
+-- Adds STORAGE_KEY to PHOTOS and PHOTO_RENDITIONS for the filesystem photo store.
+-- A row references its data either through BLOB_ID (photo_blob table) or STORAGE_KEY
+-- (content hash of a file in the store). Existing rows keep BLOB_ID until the storage
+-- migration (app.storage.migrate-to-filesystem=true) moves them.
+
+ALTER TABLE photos ADD (storage_key VARCHAR2(64 CHAR));
+ALTER TABLE photo_renditions ADD (storage_key VARCHAR2(64 CHAR));
+
+CREATE INDEX idx_photos_storage_key ON photos (storage_key);
+CREATE INDEX idx_photo_renditions_storage_key ON photo_renditions (storage_key);
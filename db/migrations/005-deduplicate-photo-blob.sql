@@ -0,0 +1,24 @@
+-- Lets identical photos and renditions share one PHOTO_BLOB row: adds the content hash
+-- (unique, looked up on upload) and a reference count, and drops the one-row-per-reference
+-- unique constraints on BLOB_ID. Existing rows keep a NULL hash and are not shared.
+
+ALTER TABLE photo_blob ADD (content_hash VARCHAR2(64 CHAR), ref_count NUMBER(10) DEFAULT 1 NOT NULL);
+ALTER TABLE photo_blob ADD CONSTRAINT uk_photo_blob_content_hash UNIQUE (content_hash);
+
+ALTER TABLE photos DROP CONSTRAINT uk_photos_blob;
+
+-- Hibernate named the unique constraint on PHOTO_RENDITIONS.BLOB_ID itself; look it up
+BEGIN
+    FOR c IN (SELECT uc.constraint_name
+                FROM user_constraints uc
+                JOIN user_cons_columns ucc ON ucc.constraint_name = uc.constraint_name
+               WHERE uc.table_name = 'PHOTO_RENDITIONS'
+                 AND uc.constraint_type = 'U'
+                 AND ucc.column_name = 'BLOB_ID') LOOP
+        EXECUTE IMMEDIATE 'ALTER TABLE photo_renditions DROP CONSTRAINT ' || c.constraint_name;
+    END LOOP;
+END;
+/
+
+CREATE INDEX idx_photos_blob_id ON photos (blob_id);
+CREATE INDEX idx_photo_renditions_blob_id ON photo_renditions (blob_id);
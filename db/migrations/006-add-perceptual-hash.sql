@@ -0,0 +1,5 @@
+-- Adds PERCEPTUAL_HASH to PHOTOS for the similar photos search (/api/photos/{id}/similar).
+-- The hashes are loaded into an in-memory index on startup, so no database index is needed.
+-- Photos uploaded before this change keep a NULL hash and are not found as similar photos.
+
+ALTER TABLE photos ADD (perceptual_hash NUMBER(19,0));
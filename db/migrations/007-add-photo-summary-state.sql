@@ -0,0 +1,9 @@
+-- Adds PHOTO_SUMMARY_STATE, the marker of the one-time rebuild of the summary tables from
+-- PHOTOS. The first instance to start claims the 'backfill' row and recounts the summaries;
+-- later instances find the row and skip it. Delete the row to recount on the next start.
+
+CREATE TABLE photo_summary_state (
+    state_key VARCHAR2(30 CHAR) NOT NULL,
+    completed_at TIMESTAMP NOT NULL,
+    CONSTRAINT pk_photo_summary_state PRIMARY KEY (state_key)
+);
@@ -0,0 +1,9 @@
+-- Adds ALBUM_VERSION, a single row counter incremented by every upload and delete
+-- transaction. Instances re-read it to invalidate cached gallery pages and previous/next
+-- photo IDs after changes made on other instances. The application creates the row.
+
+CREATE TABLE album_version (
+    id NUMBER(10,0) NOT NULL,
+    version NUMBER(19,0) NOT NULL,
+    CONSTRAINT pk_album_version PRIMARY KEY (id)
+);
@@ -0,0 +1,32 @@
+-- Adds PHOTO_RENDITIONS, the pre-generated downscaled copies of each photo (the gallery
+-- thumbnail and larger sizes), in its current shape: the data is referenced through BLOB_ID
+-- or STORAGE_KEY like the photo's own data. Renditions are generated at upload time, so
+-- photos uploaded before this table existed are served from their originals.
+-- Schemas where Hibernate created the table (and 004/005 altered it) are left unchanged.
+
+DECLARE
+    existing NUMBER;
+BEGIN
+    SELECT COUNT(*) INTO existing FROM user_tables WHERE table_name = 'PHOTO_RENDITIONS';
+    IF existing = 0 THEN
+        EXECUTE IMMEDIATE '
+            CREATE TABLE photo_renditions (
+                id           VARCHAR2(36 CHAR) NOT NULL,
+                photo_id     VARCHAR2(36 CHAR) NOT NULL,
+                size_class   NUMBER(10,0) NOT NULL,
+                blob_id      VARCHAR2(36 CHAR),
+                storage_key  VARCHAR2(64 CHAR),
+                file_size    NUMBER(19,0) NOT NULL,
+                mime_type    VARCHAR2(50 CHAR) NOT NULL,
+                content_hash VARCHAR2(64 CHAR),
+                width        NUMBER(10,0),
+                height       NUMBER(10,0),
+                CONSTRAINT pk_photo_renditions PRIMARY KEY (id),
+                CONSTRAINT uk_photo_renditions_photo_size UNIQUE (photo_id, size_class),
+                CONSTRAINT fk_photo_renditions_blob FOREIGN KEY (blob_id) REFERENCES photo_blob (id)
+            )';
+        EXECUTE IMMEDIATE 'CREATE INDEX idx_photo_renditions_storage_key ON photo_renditions (storage_key)';
+        EXECUTE IMMEDIATE 'CREATE INDEX idx_photo_renditions_blob_id ON photo_renditions (blob_id)';
+    END IF;
+END;
+/
@@ -0,0 +1,41 @@
+-- Adds the summary tables kept up to date by uploads and deletes, so the timeline and
+-- /api/stats never aggregate over PHOTOS:
+--   PHOTO_MONTH_COUNTS  photos per upload month (yyyy-MM)
+--   PHOTO_MIME_STATS    photos and bytes per MIME type
+--   PHOTO_SIZE_BUCKETS  photos per log-linear file size bucket, for percentiles
+-- The primary keys are the only indexes the updates and reads need. The tables are filled
+-- from PHOTOS by the first instance started afterwards (see 007; delete the 'backfill' row
+-- of PHOTO_SUMMARY_STATE if it is already there). Tables that Hibernate created are left
+-- unchanged.
+
+DECLARE
+    PROCEDURE create_table(new_table VARCHAR2, ddl VARCHAR2) IS
+        existing NUMBER;
+    BEGIN
+        SELECT COUNT(*) INTO existing FROM user_tables WHERE table_name = new_table;
+        IF existing = 0 THEN
+            EXECUTE IMMEDIATE ddl;
+        END IF;
+    END;
+BEGIN
+    create_table('PHOTO_MONTH_COUNTS', '
+        CREATE TABLE photo_month_counts (
+            month_key   VARCHAR2(7 CHAR) NOT NULL,
+            photo_count NUMBER(19,0) NOT NULL,
+            CONSTRAINT pk_photo_month_counts PRIMARY KEY (month_key)
+        )');
+    create_table('PHOTO_MIME_STATS', '
+        CREATE TABLE photo_mime_stats (
+            mime_type   VARCHAR2(50 CHAR) NOT NULL,
+            photo_count NUMBER(19,0) NOT NULL,
+            total_bytes NUMBER(19,0) NOT NULL,
+            CONSTRAINT pk_photo_mime_stats PRIMARY KEY (mime_type)
+        )');
+    create_table('PHOTO_SIZE_BUCKETS', '
+        CREATE TABLE photo_size_buckets (
+            bucket      NUMBER(10,0) NOT NULL,
+            photo_count NUMBER(19,0) NOT NULL,
+            CONSTRAINT pk_photo_size_buckets PRIMARY KEY (bucket)
+        )');
+END;
+/
@@ -0,0 +1,47 @@
+package com.photoalbum.benchmark;
+
+import com.photoalbum.PhotoAlbumApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Starts the application with the H2 test configuration (application-test.properties) for a
+ * benchmark, without a web server and with logging reduced so it does not skew the results
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    /**
+     * @param database Name of the in-memory H2 database, unique per benchmark state
+     * @param properties Additional properties (key=value)
+     */
+    static ConfigurableApplicationContext start(String database, String... properties) {
+        List<String> all = new ArrayList<String>(Arrays.asList(
+            "spring.datasource.url=jdbc:h2:mem:" + database + ";MODE=Oracle;DB_CLOSE_DELAY=-1",
+            "logging.level.root=WARN",
+            "logging.level.com.photoalbum=WARN",
+            "logging.level.org.springframework.web=WARN",
+            "app.storage.filesystem.directory=target/benchmark-photo-store",
+            "app.transform-cache.directory=target/benchmark-transform-cache",
+            "app.file-upload.staging-directory=target/benchmark-staging"));
+        all.addAll(Arrays.asList(properties));
+        // Passed as command line arguments, which take precedence over application.properties
+        List<String> args = new ArrayList<String>(all.size());
+        for (String property : all) {
+            args.add("--" + property);
+        }
+        // DevTools would restart the application in a new class loader, outside the benchmark
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        return new SpringApplicationBuilder(PhotoAlbumApplication.class)
+            .profiles("test")
+            .web(WebApplicationType.NONE)
+            .run(args.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,56 @@
+package com.photoalbum.benchmark;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Synthetic photos: smooth gradients with noise, so they compress roughly like real photos
+ */
+final class BenchmarkImages {
+
+    private BenchmarkImages() {
+    }
+
+    /**
+     * @param format jpeg or png
+     * @param size WIDTHxHEIGHT, e.g. 1920x1080
+     */
+    static byte[] encode(String format, String size) throws IOException {
+        String[] dimensions = size.split("x");
+        int width = Integer.parseInt(dimensions[0]);
+        int height = Integer.parseInt(dimensions[1]);
+
+        Random random = new Random(width * 31L + height);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 255 / width + random.nextInt(16)) & 0xFF;
+                int g = (y * 255 / height + random.nextInt(16)) & 0xFF;
+                int b = ((x + y) * 127 / (width + height) + random.nextInt(16)) & 0xFF;
+                image.setRGB(x, y, r << 16 | g << 8 | b);
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, format, out)) {
+            throw new IOException("No writer for " + format);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Copy of an encoded image with a counter appended after its end marker. Decoders ignore
+     * the trailing bytes, but the content hash differs, so uploads are not deduplicated.
+     */
+    static byte[] unique(byte[] encoded, long counter) {
+        byte[] copy = Arrays.copyOf(encoded, encoded.length + 8);
+        for (int i = 0; i < 8; i++) {
+            copy[encoded.length + i] = (byte) (counter >>> (i * 8));
+        }
+        return copy;
+    }
+}
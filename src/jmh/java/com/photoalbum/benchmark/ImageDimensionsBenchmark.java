@@ -0,0 +1,52 @@
+package com.photoalbum.benchmark;
+
+import com.photoalbum.util.ImageUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading image dimensions from the header, as done for every upload
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ImageDimensionsBenchmark {
+
+    @Param({"jpeg", "png"})
+    public String format;
+
+    @Param({"640x480", "1920x1080", "4000x3000"})
+    public String size;
+
+    private byte[] image;
+
+    @Setup
+    public void createImage() throws IOException {
+        image = BenchmarkImages.encode(format, size);
+    }
+
+    @Benchmark
+    public int[] readDimensions() throws IOException {
+        try (ImageInputStream input = new MemoryCacheImageInputStream(new ByteArrayInputStream(image))) {
+            return ImageUtil.readDimensions(input);
+        }
+    }
+}
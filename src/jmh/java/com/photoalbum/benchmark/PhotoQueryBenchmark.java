@@ -0,0 +1,98 @@
+package com.photoalbum.benchmark;
+
+import com.photoalbum.model.PhotoNeighbors;
+import com.photoalbum.model.PhotoSummary;
+import com.photoalbum.repository.PhotoRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gallery listing (first and deep keyset pages) and previous/next lookups on PhotoRepository
+ * over an album of 1k or 100k photos (metadata rows only)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PhotoQueryBenchmark {
+
+    private static final int PAGE_SIZE = 24;
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private PhotoRepository photoRepository;
+    private String[] ids;
+    private LocalDateTime[] uploadedAt;
+
+    @Setup
+    public void start() {
+        context = BenchmarkApplication.start("queries-" + rows);
+        photoRepository = context.getBean(PhotoRepository.class);
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+
+        ids = new String[rows];
+        uploadedAt = new LocalDateTime[rows];
+        LocalDateTime start = LocalDateTime.of(2020, 1, 1, 0, 0);
+        List<Object[]> batch = new ArrayList<Object[]>(BATCH_SIZE);
+        for (int i = 0; i < rows; i++) {
+            ids[i] = UUID.randomUUID().toString();
+            // A few photos share a timestamp, as in batch uploads
+            uploadedAt[i] = start.plusSeconds(i / 3 * 60L);
+            batch.add(new Object[] {ids[i], "photo-" + i + ".jpg", ids[i] + ".jpg", "/uploads/" + ids[i] + ".jpg",
+                100000L + i, "image/jpeg", Timestamp.valueOf(uploadedAt[i]), 1920, 1080});
+            if (batch.size() == BATCH_SIZE || i == rows - 1) {
+                jdbc.batchUpdate("INSERT INTO photos (id, original_file_name, stored_file_name, file_path, " +
+                    "file_size, mime_type, uploaded_at, width, height) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @Benchmark
+    public List<PhotoSummary> firstPage() {
+        return photoRepository.findSummaries(PageRequest.of(0, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public List<PhotoSummary> keysetPage() {
+        int i = ThreadLocalRandom.current().nextInt(rows);
+        return photoRepository.findSummariesBefore(uploadedAt[i], ids[i], PageRequest.of(0, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public PhotoNeighbors neighbors() {
+        int i = ThreadLocalRandom.current().nextInt(rows);
+        return photoRepository.findNeighbors(uploadedAt[i], ids[i]);
+    }
+
+    @TearDown
+    public void stop() {
+        context.close();
+    }
+}
@@ -0,0 +1,75 @@
+package com.photoalbum.benchmark;
+
+import com.photoalbum.controller.PhotoFileController;
+import com.photoalbum.model.UploadResult;
+import com.photoalbum.service.PhotoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serving an original photo through PhotoFileController.servePhoto, including reading the
+ * whole body as the container would when writing the response
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ServePhotoBenchmark {
+
+    @Param({"640x480", "4000x3000"})
+    public String size;
+
+    @Param({"database", "filesystem"})
+    public String backend;
+
+    private ConfigurableApplicationContext context;
+    private PhotoFileController controller;
+    private String photoId;
+
+    @Setup
+    public void start() throws IOException {
+        context = BenchmarkApplication.start("serve-" + backend, "app.storage.backend=" + backend);
+        controller = context.getBean(PhotoFileController.class);
+        UploadResult result = context.getBean(PhotoService.class).uploadPhoto(new MockMultipartFile(
+            "files", "serve.jpg", "image/jpeg", BenchmarkImages.encode("jpeg", size)));
+        photoId = result.getPhotoId();
+    }
+
+    @Benchmark
+    public void servePhoto(Blackhole blackhole) throws IOException {
+        ResponseEntity<Resource> response = controller.servePhoto(photoId, null, null, null, null);
+        byte[] buffer = new byte[8192];
+        try (InputStream in = response.getBody().getInputStream()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                blackhole.consume(read);
+            }
+        }
+    }
+
+    @TearDown
+    public void stop() {
+        context.close();
+    }
+}
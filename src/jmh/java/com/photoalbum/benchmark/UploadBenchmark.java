@@ -0,0 +1,86 @@
+package com.photoalbum.benchmark;
+
+import com.photoalbum.model.UploadResult;
+import com.photoalbum.service.PhotoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A single-file upload through PhotoService: staging, validation, dimension extraction,
+ * renditions, hashing and the insert. Each upload has distinct content, so none is
+ * deduplicated; the photos are deleted after each iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class UploadBenchmark {
+
+    @Param({"jpeg", "png"})
+    public String format;
+
+    @Param({"640x480", "1920x1080", "4000x3000"})
+    public String size;
+
+    @Param({"database", "filesystem"})
+    public String backend;
+
+    private ConfigurableApplicationContext context;
+    private PhotoService photoService;
+    private byte[] image;
+    private final AtomicLong counter = new AtomicLong();
+    private final Queue<String> uploaded = new ConcurrentLinkedQueue<String>();
+
+    @Setup
+    public void start() throws IOException {
+        context = BenchmarkApplication.start("upload-" + backend, "app.storage.backend=" + backend);
+        photoService = context.getBean(PhotoService.class);
+        image = BenchmarkImages.encode(format, size);
+    }
+
+    @Benchmark
+    public UploadResult uploadPhoto() {
+        byte[] data = BenchmarkImages.unique(image, counter.incrementAndGet());
+        UploadResult result = photoService.uploadPhoto(
+            new MockMultipartFile("files", "benchmark." + format, "image/" + format, data));
+        if (!result.isSuccess()) {
+            throw new IllegalStateException(result.getErrorMessage());
+        }
+        uploaded.add(result.getPhotoId());
+        return result;
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteUploads() {
+        String id;
+        while ((id = uploaded.poll()) != null) {
+            photoService.deletePhoto(id);
+        }
+    }
+
+    @TearDown
+    public void stop() {
+        context.close();
+    }
+}
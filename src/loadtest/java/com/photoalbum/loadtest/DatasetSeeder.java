@@ -0,0 +1,99 @@
+package com.photoalbum.loadtest;
+
+import com.photoalbum.model.Photo;
+import com.photoalbum.repository.PhotoRepository;
+import com.photoalbum.service.impl.AlbumSummaries;
+import com.photoalbum.storage.PhotoStorage;
+import com.photoalbum.util.HashUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Bulk-loads synthetic photos into the application's database and storage backend, bypassing
+ * the upload pipeline: no staging, decoding or renditions, just the storage write and the
+ * photo rows, inserted in JDBC batches of one transaction each. Upload times are spread over
+ * the past two years, so the gallery and archive see several months.
+ */
+class DatasetSeeder {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatasetSeeder.class);
+
+    /**
+     * Photos per transaction; matches hibernate.jdbc.batch_size and bounds the photo data held
+     * in memory until the flush
+     */
+    private static final int BATCH_SIZE = 25;
+    private static final long SPREAD_MINUTES = 2L * 365 * 24 * 60;
+
+    private final PhotoRepository photoRepository;
+    private final AlbumSummaries albumSummaries;
+    private final PhotoStorage storage;
+    private final TransactionTemplate transactionTemplate;
+
+    DatasetSeeder(ApplicationContext context, String backend) {
+        this.photoRepository = context.getBean(PhotoRepository.class);
+        this.albumSummaries = context.getBean(AlbumSummaries.class);
+        this.storage = context.getBeansOfType(PhotoStorage.class).values().stream()
+            .filter(candidate -> candidate.getName().equals(backend))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("Unknown photo storage backend " + backend));
+        this.transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    /**
+     * Insert photos
+     * @param count Number of photos
+     * @param photos Source of the photo data
+     * @return IDs of the inserted photos
+     */
+    List<String> seed(int count, SyntheticPhotos photos) {
+        long started = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        List<String> ids = new ArrayList<String>(count);
+        for (int start = 0; start < count; start += BATCH_SIZE) {
+            final List<Photo> batch = new ArrayList<Photo>(BATCH_SIZE);
+            final List<byte[]> data = new ArrayList<byte[]>(BATCH_SIZE);
+            for (int i = start; i < Math.min(count, start + BATCH_SIZE); i++) {
+                SyntheticPhotos.Sample sample = photos.next(i);
+                String storedFileName = UUID.randomUUID().toString() + ".jpg";
+                Photo photo = new Photo("seed-" + i + ".jpg", storedFileName, "/uploads/" + storedFileName,
+                    (long) sample.data.length, "image/jpeg");
+                photo.setWidth(sample.width);
+                photo.setHeight(sample.height);
+                photo.setContentHash(HashUtil.sha256Hex(sample.data));
+                photo.setUploadedAt(now.minusMinutes(SPREAD_MINUTES * (count - i) / count));
+                batch.add(photo);
+                data.add(sample.data);
+            }
+            transactionTemplate.execute(status -> {
+                for (int i = 0; i < batch.size(); i++) {
+                    try {
+                        storage.write(batch.get(i), new ByteArrayInputStream(data.get(i)), data.get(i).length);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                }
+                photoRepository.saveAll(batch);
+                photoRepository.flush();
+                albumSummaries.record(batch, 1);
+                return null;
+            });
+            for (Photo photo : batch) {
+                ids.add(photo.getId());
+            }
+        }
+        logger.info("Seeded {} photos in {} ms", count, (System.nanoTime() - started) / 1000000);
+        return ids;
+    }
+}
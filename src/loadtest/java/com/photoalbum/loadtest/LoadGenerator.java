@@ -0,0 +1,176 @@
+package com.photoalbum.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load: requests to each endpoint are started on a fixed schedule at the endpoint's
+ * rate, whether or not earlier requests have completed. Latency is measured from the time a
+ * request was scheduled to start, not from when a connection became free to send it, so a
+ * stalled server shows up in the percentiles instead of silently lowering the request rate
+ * (coordinated omission). Service time, measured from the actual send, is reported alongside.
+ */
+class LoadGenerator {
+
+    /**
+     * An endpoint under load
+     */
+    interface Request {
+        /**
+         * Send one request and read the whole response
+         * @return HTTP status
+         */
+        int send() throws IOException;
+    }
+
+    private final List<Endpoint> endpoints = new ArrayList<Endpoint>();
+    private final int connections;
+
+    /**
+     * @param connections Maximum requests in flight; requests beyond it wait, and the wait counts
+     *                    towards their latency
+     */
+    LoadGenerator(int connections) {
+        this.connections = connections;
+    }
+
+    /**
+     * @param name Name in the report
+     * @param rate Requests per second; endpoints with a rate of 0 are skipped
+     */
+    void add(String name, double rate, Request request) {
+        if (rate > 0) {
+            endpoints.add(new Endpoint(name, rate, request));
+        }
+    }
+
+    /**
+     * Run all endpoints at once
+     * @param warmupSeconds Load applied before measuring
+     * @param durationSeconds Measured load
+     */
+    void run(long warmupSeconds, long durationSeconds) throws InterruptedException {
+        final ExecutorService workers = Executors.newFixedThreadPool(connections);
+        final long start = System.nanoTime();
+        final long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        final long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        List<Thread> dispatchers = new ArrayList<Thread>();
+        for (final Endpoint endpoint : endpoints) {
+            Thread dispatcher = new Thread(() -> endpoint.dispatch(workers, start, measureFrom, end),
+                "load-" + endpoint.name);
+            dispatcher.start();
+            dispatchers.add(dispatcher);
+        }
+        for (Thread dispatcher : dispatchers) {
+            dispatcher.join();
+        }
+        workers.shutdown();
+        if (!workers.awaitTermination(2, TimeUnit.MINUTES)) {
+            workers.shutdownNow();
+        }
+        for (Endpoint endpoint : endpoints) {
+            endpoint.measuredSeconds = durationSeconds;
+        }
+    }
+
+    /**
+     * Print throughput and latency percentiles per endpoint
+     */
+    void report(PrintStream out) {
+        out.printf("%-8s %8s %10s %8s %12s %10s %10s %10s %10s %14s%n", "endpoint", "rate/s", "requests",
+            "errors", "throughput/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "svc p99.9 ms");
+        for (Endpoint endpoint : endpoints) {
+            Histogram latency = endpoint.latency;
+            out.printf("%-8s %8.1f %10d %8d %12.1f %10.2f %10.2f %10.2f %10.2f %14.2f%n",
+                endpoint.name, endpoint.rate, latency.getTotalCount(), endpoint.errors.get(),
+                latency.getTotalCount() / (double) endpoint.measuredSeconds,
+                millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(99)),
+                millis(latency.getValueAtPercentile(99.9)), millis(latency.getMaxValue()),
+                millis(endpoint.serviceTime.getValueAtPercentile(99.9)));
+        }
+    }
+
+    /**
+     * Write the full latency distribution of each endpoint as &lt;endpoint&gt;.hgrm, for plotting
+     * and comparing runs
+     */
+    void writeHistograms(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (Endpoint endpoint : endpoints) {
+            try (PrintStream out = new PrintStream(
+                    new FileOutputStream(directory.resolve(endpoint.name + ".hgrm").toFile()))) {
+                endpoint.latency.outputPercentileDistribution(out, 1000000.0);
+            }
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1000000.0;
+    }
+
+    private static class Endpoint {
+
+        final String name;
+        final double rate;
+        final Request request;
+        final Histogram latency = new ConcurrentHistogram(3);
+        final Histogram serviceTime = new ConcurrentHistogram(3);
+        final AtomicLong errors = new AtomicLong();
+        long measuredSeconds;
+
+        Endpoint(String name, double rate, Request request) {
+            this.name = name;
+            this.rate = rate;
+            this.request = request;
+        }
+
+        /**
+         * Hand a request to the workers at each scheduled time until the end of the run
+         */
+        void dispatch(ExecutorService workers, long start, final long measureFrom, long end) {
+            long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+            for (long scheduled = start; scheduled < end; scheduled += interval) {
+                long wait;
+                while ((wait = scheduled - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                final long intended = scheduled;
+                workers.execute(() -> send(intended, intended >= measureFrom));
+            }
+        }
+
+        private void send(long intended, boolean measured) {
+            long sent = System.nanoTime();
+            int status;
+            try {
+                status = request.send();
+            } catch (IOException ex) {
+                status = -1;
+            }
+            long completed = System.nanoTime();
+            if (!measured) {
+                return;
+            }
+            if (status >= 200 && status < 400) {
+                latency.recordValue(completed - intended);
+                serviceTime.recordValue(completed - sent);
+            } else {
+                errors.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.photoalbum.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.photoalbum.PhotoAlbumApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end load test of the gallery (/), photo (/photo/{id}), detail (/detail/{id}) and
+ * upload (/upload) endpoints over HTTP.
+ * <p>
+ * Without --url the application is started in this JVM on H2 (test profile) and seeded with
+ * synthetic photos; with --url an already running instance is loaded, using the photos it has.
+ * Options (--name=value):
+ * <ul>
+ *     <li>url: base URL of a running instance</li>
+ *     <li>photos: number of photos to seed (default 1000)</li>
+ *     <li>sizes: seeded photo sizes and weights (default 640x480:60,1920x1080:30,4000x3000:10)</li>
+ *     <li>backend: storage backend for the started application (default database)</li>
+ *     <li>threads: thread modes of the started application, platform and/or virtual (Java 21);
+ *     with both (--threads=platform,virtual) the test runs once per mode on the same dataset
+ *     (default platform)</li>
+ *     <li>rates: requests per second per endpoint (default gallery:20,photo:100,detail:20,upload:1)</li>
+ *     <li>warmup, duration: seconds of unmeasured and measured load (default 10, 60)</li>
+ *     <li>connections: maximum requests in flight (default 200)</li>
+ *     <li>report: directory for the .hgrm latency distributions, in a subdirectory per thread mode
+ *     when several are compared (default target/loadtest)</li>
+ * </ul>
+ */
+public class LoadTest {
+
+    private static final int MAX_LISTED_PHOTOS = 10000;
+
+    public static void main(String[] args) throws Exception {
+        PropertySource<?> options = new SimpleCommandLinePropertySource(args);
+        int photos = Integer.parseInt(option(options, "photos", "1000"));
+        String sizes = option(options, "sizes", "640x480:60,1920x1080:30,4000x3000:10");
+        String backend = option(options, "backend", "database");
+        String[] threadModes = option(options, "threads", "platform").split(",");
+        for (String threadMode : threadModes) {
+            if (!threadMode.equals("platform") && !threadMode.equals("virtual")) {
+                throw new IllegalArgumentException("Unknown thread mode " + threadMode);
+            }
+        }
+        int connections = Integer.parseInt(option(options, "connections", "200"));
+        Path report = Paths.get(option(options, "report", "target/loadtest"));
+
+        // Keep a connection per request in flight alive between requests
+        System.setProperty("http.maxConnections", Integer.toString(connections));
+
+        String baseUrl = (String) options.getProperty("url");
+        if (baseUrl != null) {
+            List<String> ids = listPhotoIds(baseUrl);
+            run(options, connections, baseUrl, ids, report);
+            return;
+        }
+
+        for (String threadMode : threadModes) {
+            ConfigurableApplicationContext context = start(backend, threadMode);
+            try {
+                String url = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+                List<String> ids = new DatasetSeeder(context, backend).seed(photos, new SyntheticPhotos(sizes, 42));
+                System.out.printf("%n== %s threads ==%n", threadMode);
+                run(options, connections, url, ids, threadModes.length > 1 ? report.resolve(threadMode) : report);
+            } finally {
+                context.close();
+            }
+        }
+    }
+
+    private static void run(PropertySource<?> options, int connections, String baseUrl, List<String> ids,
+            Path report) throws Exception {
+        if (ids.isEmpty()) {
+            throw new IllegalStateException("No photos to request");
+        }
+        LoadGenerator generator = new LoadGenerator(connections);
+        addEndpoints(generator, baseUrl, ids, option(options, "rates", "gallery:20,photo:100,detail:20,upload:1"));
+        System.out.printf("Loading %s with %d photos%n", baseUrl, ids.size());
+        generator.run(Long.parseLong(option(options, "warmup", "10")),
+            Long.parseLong(option(options, "duration", "60")));
+        generator.report(System.out);
+        generator.writeHistograms(report);
+    }
+
+    private static String option(PropertySource<?> options, String name, String defaultValue) {
+        Object value = options.getProperty(name);
+        return value != null ? value.toString() : defaultValue;
+    }
+
+    /**
+     * Start the application on an in-memory database of its own
+     * @param threadMode platform or virtual
+     */
+    private static ConfigurableApplicationContext start(String backend, String threadMode) {
+        // DevTools would restart the application in a new class loader, outside this harness
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        return new SpringApplicationBuilder(PhotoAlbumApplication.class)
+            .profiles("test")
+            .run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:loadtest-" + threadMode + ";MODE=Oracle;DB_CLOSE_DELAY=-1",
+                "--app.virtual-threads.enabled=" + threadMode.equals("virtual"),
+                "--logging.level.root=WARN",
+                "--logging.level.com.photoalbum=WARN",
+                "--logging.level.com.photoalbum.loadtest=INFO",
+                "--logging.level.org.springframework.web=WARN",
+                "--logging.level.org.hibernate.SQL=WARN",
+                "--app.storage.backend=" + backend,
+                "--app.storage.filesystem.directory=target/loadtest-photo-store",
+                "--app.transform-cache.directory=target/loadtest-transform-cache",
+                "--app.file-upload.staging-directory=target/loadtest-staging");
+    }
+
+    private static void addEndpoints(LoadGenerator generator, final String baseUrl, final List<String> ids,
+            String rates) {
+        final SyntheticPhotos uploads = new SyntheticPhotos("640x480", 7);
+        final AtomicLong uploadCounter = new AtomicLong(Long.MIN_VALUE);
+        for (String entry : rates.split(",")) {
+            String[] nameAndRate = entry.trim().split(":");
+            String name = nameAndRate[0];
+            double rate = Double.parseDouble(nameAndRate[1]);
+            if (name.equals("gallery")) {
+                generator.add(name, rate, () -> get(baseUrl + "/"));
+            } else if (name.equals("photo")) {
+                generator.add(name, rate, () -> get(baseUrl + "/photo/" + randomId(ids)));
+            } else if (name.equals("detail")) {
+                generator.add(name, rate, () -> get(baseUrl + "/detail/" + randomId(ids)));
+            } else if (name.equals("upload")) {
+                generator.add(name, rate, () -> upload(baseUrl + "/upload",
+                    uploads.next(uploadCounter.getAndIncrement()).data));
+            } else {
+                throw new IllegalArgumentException("Unknown endpoint " + name);
+            }
+        }
+    }
+
+    private static String randomId(List<String> ids) {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    /**
+     * IDs of the newest photos of a running instance, from the photo list API
+     */
+    private static List<String> listPhotoIds(String baseUrl) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        List<String> ids = new ArrayList<String>();
+        String cursor = null;
+        do {
+            String url = baseUrl + "/api/photos?limit=100"
+                + (cursor != null ? "&cursor=" + URLEncoder.encode(cursor, "UTF-8") : "");
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            JsonNode page;
+            try (InputStream in = connection.getInputStream()) {
+                page = mapper.readTree(in);
+            }
+            for (JsonNode photo : page.path("photos")) {
+                ids.add(photo.path("id").asText());
+            }
+            cursor = page.path("nextCursor").isTextual() ? page.path("nextCursor").asText() : null;
+        } while (cursor != null && ids.size() < MAX_LISTED_PHOTOS);
+        return ids;
+    }
+
+    private static int get(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        return drain(connection);
+    }
+
+    private static int upload(String url, byte[] image) throws IOException {
+        String boundary = UUID.randomUUID().toString();
+        byte[] head = ("--" + boundary + "\r\n"
+            + "Content-Disposition: form-data; name=\"files\"; filename=\"load.jpg\"\r\n"
+            + "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+        connection.setFixedLengthStreamingMode(head.length + image.length + tail.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(head);
+            out.write(image);
+            out.write(tail);
+        }
+        return drain(connection);
+    }
+
+    /**
+     * Read the whole response, so the connection can be reused
+     */
+    private static int drain(HttpURLConnection connection) throws IOException {
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (in != null) {
+            byte[] buffer = new byte[8192];
+            try {
+                while (in.read(buffer) != -1) {
+                    // discard
+                }
+            } finally {
+                in.close();
+            }
+        }
+        return status;
+    }
+}
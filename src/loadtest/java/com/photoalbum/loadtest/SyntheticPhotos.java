@@ -0,0 +1,96 @@
+package com.photoalbum.loadtest;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic JPEG photos drawn from a weighted distribution of sizes, such as
+ * "640x480:60,1920x1080:30,4000x3000:10". One image is encoded per size; each photo is a copy
+ * with a counter appended after the JPEG end marker, so every photo has distinct content
+ * (and content hash) without encoding thousands of images.
+ */
+class SyntheticPhotos {
+
+    private final List<int[]> sizes = new ArrayList<int[]>();
+    private final List<byte[]> images = new ArrayList<byte[]>();
+    private final int[] cumulativeWeights;
+    private final Random random;
+
+    SyntheticPhotos(String distribution, long seed) {
+        String[] entries = distribution.split(",");
+        this.cumulativeWeights = new int[entries.length];
+        this.random = new Random(seed);
+        int total = 0;
+        for (int i = 0; i < entries.length; i++) {
+            String[] sizeAndWeight = entries[i].trim().split(":");
+            String[] dimensions = sizeAndWeight[0].split("x");
+            int width = Integer.parseInt(dimensions[0]);
+            int height = Integer.parseInt(dimensions[1]);
+            total += sizeAndWeight.length > 1 ? Integer.parseInt(sizeAndWeight[1]) : 1;
+            cumulativeWeights[i] = total;
+            sizes.add(new int[] {width, height});
+            images.add(encode(width, height));
+        }
+    }
+
+    /**
+     * A photo of a size drawn from the distribution
+     * @param counter Distinguishes the content of this photo from all others
+     */
+    synchronized Sample next(long counter) {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int i = 0;
+        while (pick >= cumulativeWeights[i]) {
+            i++;
+        }
+        byte[] image = images.get(i);
+        byte[] data = Arrays.copyOf(image, image.length + 8);
+        for (int b = 0; b < 8; b++) {
+            data[image.length + b] = (byte) (counter >>> (b * 8));
+        }
+        return new Sample(data, sizes.get(i)[0], sizes.get(i)[1]);
+    }
+
+    /**
+     * Smooth gradients with noise, so the JPEG compresses roughly like a real photo
+     */
+    private static byte[] encode(int width, int height) {
+        Random noise = new Random(width * 31L + height);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 255 / width + noise.nextInt(16)) & 0xFF;
+                int g = (y * 255 / height + noise.nextInt(16)) & 0xFF;
+                int b = ((x + y) * 127 / (width + height) + noise.nextInt(16)) & 0xFF;
+                image.setRGB(x, y, r << 16 | g << 8 | b);
+            }
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(image, "jpeg", out);
+            return out.toByteArray();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    static class Sample {
+
+        final byte[] data;
+        final int width;
+        final int height;
+
+        Sample(byte[] data, int width, int height) {
+            this.data = data;
+            this.width = width;
+            this.height = height;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.photoalbum.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Byte-budgeted in-memory cache of immutable payloads held in direct buffers, so large
+ * entries live outside the Java heap and are never copied by the young-generation collector.
+ * <p>
+ * Eviction is segmented LRU: new entries go to a probation segment and move to a protected
+ * segment (80% of the budget) on their second hit. Admission is TinyLFU: an entry that would
+ * evict others is only stored if it was requested more often than every entry it displaces,
+ * according to an approximate, periodically halved frequency sketch. A one-off scan over many
+ * photos therefore cannot flush the frequently viewed ones.
+ * <p>
+ * Invalidation bumps a generation counter, as in {@link LruCache}.
+ */
+public class ByteBufferCache {
+
+    private static final int PROTECTED_PERCENT = 80;
+
+    /** Assumed average entry size, used only to size the frequency sketch */
+    private static final long SKETCH_ENTRY_BYTES = 32 * 1024;
+
+    private final long maxSizeBytes;
+    private final long maxEntryBytes;
+    private final long maxProtectedBytes;
+    private final FrequencySketch sketch;
+
+    /** Insertion-ordered segments (eldest first), guarded by this */
+    private final LinkedHashMap<String, ByteBuffer> probation = new LinkedHashMap<String, ByteBuffer>();
+    private final LinkedHashMap<String, ByteBuffer> protectedSegment = new LinkedHashMap<String, ByteBuffer>();
+    private long probationBytes;
+    private long protectedBytes;
+    private long generation;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Counter rejections;
+
+    public ByteBufferCache(String name, long maxSizeBytes, long maxEntryBytes, MeterRegistry meterRegistry) {
+        this.maxSizeBytes = maxSizeBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxSizeBytes);
+        this.maxProtectedBytes = maxSizeBytes / 100 * PROTECTED_PERCENT;
+        this.sketch = new FrequencySketch((int) Math.min(1 << 20, Math.max(256, maxSizeBytes / SKETCH_ENTRY_BYTES)));
+
+        this.hits = meterRegistry.counter("memory.cache.gets", "cache", name, "result", "hit");
+        this.misses = meterRegistry.counter("memory.cache.gets", "cache", name, "result", "miss");
+        this.evictions = meterRegistry.counter("memory.cache.evictions", "cache", name);
+        this.rejections = meterRegistry.counter("memory.cache.rejections", "cache", name);
+        Gauge.builder("memory.cache.size", this, ByteBufferCache::getSizeBytes)
+                .tag("cache", name).baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("memory.cache.entries", this, ByteBufferCache::getEntryCount)
+                .tag("cache", name).register(meterRegistry);
+    }
+
+    /**
+     * Get a cached payload and record the request in the frequency sketch
+     * @return Read-only view positioned at the start of the payload, or null if not cached
+     */
+    public synchronized ByteBuffer get(String key) {
+        sketch.increment(key);
+
+        ByteBuffer buffer = protectedSegment.remove(key);
+        if (buffer != null) {
+            protectedSegment.put(key, buffer);
+        } else {
+            buffer = probation.remove(key);
+            if (buffer != null) {
+                probationBytes -= buffer.limit();
+                promote(key, buffer);
+            }
+        }
+
+        if (buffer == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * Whether a payload of the given size would currently be admitted; check before
+     * reading it so rejected payloads are never copied into memory
+     */
+    public synchronized boolean admits(String key, long size) {
+        if (size <= maxEntryBytes && collectVictims(key, size) != null) {
+            return true;
+        }
+        rejections.increment();
+        return false;
+    }
+
+    /**
+     * Current generation; read it before loading a payload to cache
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Allocate a direct buffer to load a payload into before passing it to {@link #put}
+     */
+    public ByteBuffer allocate(int size) {
+        return ByteBuffer.allocateDirect(size);
+    }
+
+    /**
+     * Cache a payload, subject to admission and unless the cache was invalidated since the
+     * given generation. The cache takes the buffer over; it must not be modified afterwards.
+     * @param key Key
+     * @param data Payload from position 0 to limit, usually from {@link #allocate}
+     * @param loadedAt Generation read before the payload was loaded
+     * @return Whether the payload was stored
+     */
+    public synchronized boolean put(String key, ByteBuffer data, long loadedAt) {
+        if (loadedAt != generation || probation.containsKey(key) || protectedSegment.containsKey(key)) {
+            return false;
+        }
+        int size = data.limit();
+        List<String> victims = size <= maxEntryBytes ? collectVictims(key, size) : null;
+        if (victims == null) {
+            rejections.increment();
+            return false;
+        }
+        for (String victim : victims) {
+            remove(victim);
+            evictions.increment();
+        }
+        probation.put(key, data);
+        probationBytes += size;
+        return true;
+    }
+
+    /**
+     * Remove a payload
+     */
+    public synchronized void invalidate(String key) {
+        generation++;
+        remove(key);
+    }
+
+    /**
+     * Remove all payloads
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        probation.clear();
+        protectedSegment.clear();
+        probationBytes = 0;
+        protectedBytes = 0;
+    }
+
+    public synchronized long getSizeBytes() {
+        return probationBytes + protectedBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return probation.size() + protectedSegment.size();
+    }
+
+    /**
+     * Entries to evict to make room for a candidate, eldest probation entries first.
+     * @return The victims, or null if the candidate is not more frequent than all of them
+     */
+    private List<String> collectVictims(String key, long size) {
+        long excess = probationBytes + protectedBytes + size - maxSizeBytes;
+        List<String> victims = new ArrayList<String>();
+        if (excess <= 0) {
+            return victims;
+        }
+
+        int candidateFrequency = sketch.frequency(key);
+        for (Map<String, ByteBuffer> segment : segmentsInEvictionOrder()) {
+            for (Iterator<Map.Entry<String, ByteBuffer>> it = segment.entrySet().iterator(); excess > 0 && it.hasNext(); ) {
+                Map.Entry<String, ByteBuffer> eldest = it.next();
+                if (sketch.frequency(eldest.getKey()) >= candidateFrequency) {
+                    return null;
+                }
+                victims.add(eldest.getKey());
+                excess -= eldest.getValue().limit();
+            }
+        }
+        return excess <= 0 ? victims : null;
+    }
+
+    private List<Map<String, ByteBuffer>> segmentsInEvictionOrder() {
+        List<Map<String, ByteBuffer>> segments = new ArrayList<Map<String, ByteBuffer>>(2);
+        segments.add(probation);
+        segments.add(protectedSegment);
+        return segments;
+    }
+
+    /**
+     * Move an entry to the protected segment, demoting its eldest entries back to probation
+     */
+    private void promote(String key, ByteBuffer buffer) {
+        protectedSegment.put(key, buffer);
+        protectedBytes += buffer.limit();
+
+        Iterator<Map.Entry<String, ByteBuffer>> it = protectedSegment.entrySet().iterator();
+        while (protectedBytes > maxProtectedBytes && it.hasNext()) {
+            Map.Entry<String, ByteBuffer> eldest = it.next();
+            if (eldest.getKey().equals(key)) {
+                continue;
+            }
+            it.remove();
+            protectedBytes -= eldest.getValue().limit();
+            probation.put(eldest.getKey(), eldest.getValue());
+            probationBytes += eldest.getValue().limit();
+        }
+    }
+
+    private void remove(String key) {
+        ByteBuffer buffer = probation.remove(key);
+        if (buffer != null) {
+            probationBytes -= buffer.limit();
+            return;
+        }
+        buffer = protectedSegment.remove(key);
+        if (buffer != null) {
+            protectedBytes -= buffer.limit();
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit-saturating request counts. All counts are halved once the
+     * number of increments reaches ten times the width, so old popularity fades out.
+     */
+    static class FrequencySketch {
+
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = {0x97cb3127, 0x9e3779b9, 0x85ebca6b, 0xc2b2ae35};
+
+        private final byte[][] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int expectedEntries) {
+            int width = Integer.highestOneBit(Math.max(expectedEntries, 16) - 1) << 1;
+            this.table = new byte[DEPTH][width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * width;
+        }
+
+        void increment(String key) {
+            int hash = key.hashCode();
+            boolean added = false;
+            for (int i = 0; i < DEPTH; i++) {
+                int index = index(hash, i);
+                if (table[i][index] < MAX_COUNT) {
+                    table[i][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(String key) {
+            int hash = key.hashCode();
+            int frequency = MAX_COUNT;
+            for (int i = 0; i < DEPTH; i++) {
+                frequency = Math.min(frequency, table[i][index(hash, i)]);
+            }
+            return frequency;
+        }
+
+        private int index(int hash, int row) {
+            int h = (hash ^ SEEDS[row]) * 0x9e3779b1;
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private void reset() {
+            for (byte[] row : table) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] >>= 1;
+                }
+            }
+            additions /= 2;
+        }
+    }
+}
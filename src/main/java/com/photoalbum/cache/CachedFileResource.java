@@ -0,0 +1,104 @@
+package com.photoalbum.cache;
+
+import org.springframework.core.io.AbstractResource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * Resource over a cache file that was opened when it was looked up, so it stays readable if
+ * the entry is evicted or removed while it is being served. Each stream reads the channel at
+ * its own position; the channel is closed by {@link #close}, not by closing the streams.
+ * Not a file resource, so it is never handed to the container's sendfile, which would reopen
+ * the file by name.
+ */
+public class CachedFileResource extends AbstractResource implements Closeable {
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long size;
+
+    CachedFileResource(Path path, FileChannel channel) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.size = channel.size();
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        return size;
+    }
+
+    /**
+     * Name of the cache file, whose extension gives the media type
+     */
+    @Override
+    public String getFilename() {
+        return path.getFileName().toString();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new ChannelStream();
+    }
+
+    @Override
+    public String getDescription() {
+        return "Cached file [" + path + "]";
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Stream reading the channel with positional reads, independent of other streams
+     */
+    private class ChannelStream extends InputStream {
+
+        private long position;
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == 1 ? b[0] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= size) {
+                return -1;
+            }
+            int count = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, size - position)), position);
+            if (count > 0) {
+                position += count;
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, size - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, size - position);
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.photoalbum.cache;
+
+import com.photoalbum.util.HashUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Size-bounded, least-recently-used cache of files on local disk.
+ * <p>
+ * Concurrent misses for the same key are coalesced: only the first caller runs the
+ * loader, the others wait for its result. Entries found on disk at startup are
+ * re-indexed (oldest first), so the cache survives restarts.
+ * <p>
+ * The part of a key before its first '/' names a group of entries (e.g. the transforms of
+ * one photo) that can be removed together with {@link #removeGroup}. The group is encoded in
+ * the file names, so groups are also known for the entries re-indexed on startup.
+ * <p>
+ * Evicted and removed files are deleted right away. Callers that serve entries should use
+ * {@link #open}, which opens the file before returning it; a path from {@link #get} can be
+ * gone by the time it is read.
+ */
+public class DiskLruCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiskLruCache.class);
+
+    private static final int OPEN_ATTEMPTS = 3;
+
+    /**
+     * Produces the content of a missing entry
+     */
+    public interface Loader {
+        /**
+         * Write the entry content to the given file
+         * @param target Temporary file to write to
+         * @return File extension of the content without the dot (e.g. "jpg")
+         * @throws IOException if the content cannot be produced
+         */
+        String load(Path target) throws IOException;
+    }
+
+    private final Path directory;
+    private final long maxSizeBytes;
+
+    /** Access-ordered index of cached files, guarded by this */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private long sizeBytes;
+
+    private final ConcurrentHashMap<String, CompletableFuture<Path>> inFlight =
+            new ConcurrentHashMap<String, CompletableFuture<Path>>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+    private final Counter evictions;
+
+    public DiskLruCache(String name, Path directory, long maxSizeBytes, MeterRegistry meterRegistry) throws IOException {
+        this.directory = directory;
+        this.maxSizeBytes = maxSizeBytes;
+
+        this.hits = meterRegistry.counter("disk.cache.gets", "cache", name, "result", "hit");
+        this.misses = meterRegistry.counter("disk.cache.gets", "cache", name, "result", "miss");
+        this.coalesced = meterRegistry.counter("disk.cache.gets", "cache", name, "result", "coalesced");
+        this.evictions = meterRegistry.counter("disk.cache.evictions", "cache", name);
+        Gauge.builder("disk.cache.size", this, DiskLruCache::getSizeBytes)
+                .tag("cache", name).baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("disk.cache.entries", this, DiskLruCache::getEntryCount)
+                .tag("cache", name).register(meterRegistry);
+
+        Files.createDirectories(directory);
+        loadExistingEntries();
+    }
+
+    /**
+     * Get the cached file for a key, loading it on a miss
+     * @param key Cache key
+     * @param loader Produces the content if the key is not cached
+     * @return Path of the cached file
+     * @throws IOException if loading fails
+     */
+    public Path get(String key, Loader loader) throws IOException {
+        String id = idOf(key);
+
+        Path cached = lookup(id);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        CompletableFuture<Path> future = new CompletableFuture<Path>();
+        CompletableFuture<Path> existing = inFlight.putIfAbsent(id, future);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        try {
+            // Another caller may have finished loading between the lookup and putIfAbsent
+            cached = lookup(id);
+            if (cached != null) {
+                hits.increment();
+            } else {
+                misses.increment();
+                cached = load(id, loader);
+            }
+            future.complete(cached);
+            return cached;
+        } catch (IOException | RuntimeException ex) {
+            future.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(id, future);
+        }
+    }
+
+    /**
+     * Get the cached file for a key opened for reading, loading it on a miss. The file is opened
+     * before this returns, so an eviction or {@link #removeGroup} while it is being served does
+     * not cut the response short.
+     * @param key Cache key
+     * @param loader Produces the content if the key is not cached
+     * @return The open file, to be closed by the caller
+     * @throws IOException if loading or opening fails
+     */
+    public CachedFileResource open(String key, Loader loader) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            Path file = get(key, loader);
+            try {
+                return new CachedFileResource(file, FileChannel.open(file, StandardOpenOption.READ));
+            } catch (NoSuchFileException ex) {
+                // Evicted or removed between the lookup and opening it; otherwise deleted
+                // behind the cache's back, so drop the entry and load it again
+                forget(idOf(key), file);
+                if (attempt == OPEN_ATTEMPTS) {
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    private Path load(String id, Loader loader) throws IOException {
+        Path temp = Files.createTempFile(directory, id, ".tmp");
+        try {
+            String extension = loader.load(temp);
+            Path target = directory.resolve(id + "." + extension);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            add(id, target, Files.size(target));
+            return target;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Path await(CompletableFuture<Path> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for cache entry");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Remove all entries of a group and delete their files. An entry that is being loaded while
+     * this runs is still added once its loader completes.
+     * @param group The part of the entry keys before their first '/'
+     * @return Number of entries removed
+     */
+    public int removeGroup(String group) {
+        String prefix = groupPrefix(group);
+        List<Path> removed = new ArrayList<Path>();
+        synchronized (this) {
+            for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, Entry> entry = it.next();
+                if (entry.getKey().startsWith(prefix)) {
+                    it.remove();
+                    sizeBytes -= entry.getValue().size;
+                    removed.add(entry.getValue().path);
+                }
+            }
+        }
+
+        for (Path file : removed) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ex) {
+                logger.warn("Could not delete removed cache file {}", file, ex);
+            }
+        }
+        return removed.size();
+    }
+
+    /**
+     * File name of a key without extension: the hash of the key, prefixed by the shortened
+     * hash of its group if it has one
+     */
+    private static String idOf(String key) {
+        String hash = sha256Hex(key);
+        int slash = key.indexOf('/');
+        return slash > 0 ? groupPrefix(key.substring(0, slash)) + hash : hash;
+    }
+
+    private static String groupPrefix(String group) {
+        return sha256Hex(group).substring(0, 16) + "-";
+    }
+
+    private static String sha256Hex(String value) {
+        return HashUtil.sha256Hex(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private synchronized Path lookup(String id) {
+        Entry entry = entries.get(id);
+        return entry != null ? entry.path : null;
+    }
+
+    private synchronized void forget(String id, Path path) {
+        Entry entry = entries.get(id);
+        if (entry != null && entry.path.equals(path)) {
+            entries.remove(id);
+            sizeBytes -= entry.size;
+        }
+    }
+
+    private void add(String id, Path path, long size) {
+        List<Path> evicted = new ArrayList<Path>();
+        synchronized (this) {
+            Entry previous = entries.put(id, new Entry(path, size));
+            if (previous != null) {
+                sizeBytes -= previous.size;
+            }
+            sizeBytes += size;
+
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (sizeBytes > maxSizeBytes && it.hasNext()) {
+                Map.Entry<String, Entry> eldest = it.next();
+                if (eldest.getKey().equals(id)) {
+                    continue;
+                }
+                it.remove();
+                sizeBytes -= eldest.getValue().size;
+                evicted.add(eldest.getValue().path);
+            }
+        }
+
+        // Delete outside the lock; files opened by open() stay readable through their channels
+        for (Path file : evicted) {
+            evictions.increment();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ex) {
+                logger.warn("Could not delete evicted cache file {}", file, ex);
+            }
+        }
+    }
+
+    private void loadExistingEntries() throws IOException {
+        List<Path> files = new ArrayList<Path>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                } else if (Files.isRegularFile(file) && name.indexOf('.') > 0) {
+                    files.add(file);
+                }
+            }
+        }
+
+        // Oldest first, so the most recently written files end up most recently used
+        final Map<Path, BasicFileAttributes> attributes = new LinkedHashMap<Path, BasicFileAttributes>();
+        for (Path file : files) {
+            attributes.put(file, Files.readAttributes(file, BasicFileAttributes.class));
+        }
+        Collections.sort(files, Comparator.comparing(file -> attributes.get(file).lastModifiedTime()));
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            add(name.substring(0, name.indexOf('.')), file, attributes.get(file).size());
+        }
+        if (!files.isEmpty()) {
+            logger.info("Indexed {} cached files ({} bytes) in {}", getEntryCount(), getSizeBytes(), directory);
+        }
+    }
+
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public long getMaxSizeBytes() {
+        return maxSizeBytes;
+    }
+
+    private static final class Entry {
+        final Path path;
+        final long size;
+
+        Entry(Path path, long size) {
+            this.path = path;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.photoalbum.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small, entry-bounded, least-recently-used in-memory cache.
+ * <p>
+ * Invalidation bumps a generation counter. Callers read {@link #generation()} before
+ * loading a value and pass it to {@link #put}, so a value loaded before an invalidation
+ * is never stored after it.
+ */
+public class LruCache<K, V> {
+
+    private final int maxEntries;
+
+    /** Access-ordered entries, guarded by this */
+    private final LinkedHashMap<K, V> entries;
+    private long generation;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public LruCache(String name, final int maxEntries, MeterRegistry meterRegistry) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        this.hits = meterRegistry.counter("memory.cache.gets", "cache", name, "result", "hit");
+        this.misses = meterRegistry.counter("memory.cache.gets", "cache", name, "result", "miss");
+        Gauge.builder("memory.cache.entries", this, LruCache::size)
+                .tag("cache", name).register(meterRegistry);
+    }
+
+    /**
+     * Get a cached value
+     * @return The value, or null if not cached
+     */
+    public synchronized V get(K key) {
+        V value = entries.get(key);
+        (value != null ? hits : misses).increment();
+        return value;
+    }
+
+    /**
+     * Current generation; read it before loading a value to cache
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Cache a value unless the cache was invalidated since the given generation
+     * @param key Key
+     * @param value Value, not null
+     * @param loadedAt Generation read before the value was loaded
+     */
+    public synchronized void put(K key, V value, long loadedAt) {
+        if (loadedAt == generation && maxEntries > 0) {
+            entries.put(key, value);
+        }
+    }
+
+    /**
+     * Remove all entries
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,62 @@
+package com.photoalbum.config;
+
+import com.photoalbum.cache.ByteBufferCache;
+import com.photoalbum.cache.DiskLruCache;
+import com.photoalbum.cache.LruCache;
+import com.photoalbum.model.PhotoNeighbors;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Cache beans used by the photo serving path
+ */
+@Configuration
+public class CacheConfig {
+
+    /**
+     * Disk cache of on-demand resized photos (/photo/{id}?w=&h=&fit=)
+     */
+    @Bean
+    public DiskLruCache transformCache(
+            @Value("${app.transform-cache.directory}") String directory,
+            @Value("${app.transform-cache.max-size-bytes}") long maxSizeBytes,
+            MeterRegistry meterRegistry) throws IOException {
+        return new DiskLruCache("transforms", Paths.get(directory), maxSizeBytes, meterRegistry);
+    }
+
+    /**
+     * Previous/next photo IDs of recently viewed photos (detail page navigation)
+     */
+    @Bean
+    public LruCache<String, PhotoNeighbors> neighborCache(
+            @Value("${app.neighbor-cache.max-entries}") int maxEntries,
+            MeterRegistry meterRegistry) {
+        return new LruCache<String, PhotoNeighbors>("neighbors", maxEntries, meterRegistry);
+    }
+
+    /**
+     * Rendered gallery pages by album version, month and locale (old versions age out)
+     */
+    @Bean
+    public LruCache<String, byte[]> galleryPageCache(
+            @Value("${app.gallery-cache.max-entries}") int maxEntries,
+            MeterRegistry meterRegistry) {
+        return new LruCache<String, byte[]>("gallery", maxEntries, meterRegistry);
+    }
+
+    /**
+     * Originals and renditions of frequently viewed photos, held in direct buffers
+     */
+    @Bean
+    public ByteBufferCache photoDataCache(
+            @Value("${app.photo-cache.max-size-bytes}") long maxSizeBytes,
+            @Value("${app.photo-cache.max-entry-bytes}") long maxEntryBytes,
+            MeterRegistry meterRegistry) {
+        return new ByteBufferCache("photos", maxSizeBytes, maxEntryBytes, meterRegistry);
+    }
+}
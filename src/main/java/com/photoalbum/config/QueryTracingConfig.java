@@ -0,0 +1,51 @@
+package com.photoalbum.config;
+
+import com.photoalbum.controller.QueryBudgetFilter;
+import com.photoalbum.jdbc.TracingDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+
+/**
+ * Per-request counting of database statements, rows and LOB bytes against the query budget,
+ * enabled by app.query-budget.enabled (development and tests; off in production, where every
+ * JDBC call would go through the counting wrappers)
+ */
+@Configuration
+@ConditionalOnProperty("app.query-budget.enabled")
+public class QueryTracingConfig {
+
+    /**
+     * Wraps the DataSource so its connections count into the QueryStats of the current thread
+     */
+    @Bean
+    public static BeanPostProcessor tracingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof TracingDataSource)) {
+                    return new TracingDataSource((DataSource) bean);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<QueryBudgetFilter> queryBudgetFilter(
+            MeterRegistry meterRegistry,
+            @Value("${app.query-budget.max-statements}") int maxStatements,
+            @Value("${app.query-budget.max-rows}") long maxRows,
+            @Value("${app.query-budget.max-repeated-statements}") int maxRepetitions,
+            @Value("${app.query-budget.lob-paths}") String[] lobPaths) {
+        return new FilterRegistrationBean<QueryBudgetFilter>(new QueryBudgetFilter(
+            meterRegistry, maxStatements, maxRows, maxRepetitions, Arrays.asList(lobPaths)));
+    }
+}
@@ -0,0 +1,100 @@
+package com.photoalbum.config;
+
+import com.photoalbum.controller.UploadAdmissionFilter;
+import com.photoalbum.service.impl.UploadAdmission;
+import com.photoalbum.util.BoundedExecutor;
+import com.photoalbum.util.VirtualThreads;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.unit.DataSize;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Executors used to validate, stage and decode the files of a multi-file upload in parallel,
+ * and to process uploads accepted for background processing, and the admission control in
+ * front of the upload endpoint
+ */
+@Configuration
+public class UploadConfig {
+
+    /**
+     * Makes the submitting thread wait for room in the queue instead of running the task itself,
+     * so that virtual threads never do the CPU-bound decoding on their carrier threads
+     */
+    private static final RejectedExecutionHandler WAIT_FOR_QUEUE = (task, executor) -> {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Upload executor is shut down");
+        }
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for the upload queue");
+        }
+    };
+
+    /**
+     * Bounded platform thread pool for the CPU-bound image work (decoding uploads and
+     * transforms); when the queue is full the uploading request thread does the work itself,
+     * which throttles clients instead of rejecting files. With virtual threads the submitting
+     * thread waits for room in the queue instead.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor uploadExecutor(
+            @Value("${app.upload.parallelism}") int parallelism,
+            @Value("${app.upload.queue-capacity}") int queueCapacity,
+            @Value("${app.virtual-threads.enabled}") boolean virtualThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("upload-");
+        executor.setRejectedExecutionHandler(virtualThreads
+            ? WAIT_FOR_QUEUE
+            : new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    /**
+     * Bounded pool for background upload jobs; when its queue is full new jobs are rejected,
+     * so accepted uploads cannot pile up staging files without limit. With virtual threads
+     * every accepted job runs on its own virtual thread, up to workers + queue-capacity jobs.
+     */
+    @Bean
+    public Executor uploadJobExecutor(
+            @Value("${app.upload.jobs.workers}") int workers,
+            @Value("${app.upload.jobs.queue-capacity}") int queueCapacity,
+            @Value("${app.virtual-threads.enabled}") boolean virtualThreads) {
+        if (virtualThreads) {
+            return new BoundedExecutor(VirtualThreads.factory("upload-job-"), workers + queueCapacity);
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("upload-job-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
+    /**
+     * Upload byte budget, checked before the multipart body of /upload is parsed
+     */
+    @Bean
+    public FilterRegistrationBean<UploadAdmissionFilter> uploadAdmissionFilter(
+            UploadAdmission uploadAdmission,
+            @Value("${spring.servlet.multipart.max-request-size}") DataSize maxRequestSize,
+            @Value("${app.upload.admission.retry-after-seconds}") int retryAfterSeconds) {
+        FilterRegistrationBean<UploadAdmissionFilter> registration = new FilterRegistrationBean<UploadAdmissionFilter>(
+            new UploadAdmissionFilter(uploadAdmission, maxRequestSize.toBytes(), retryAfterSeconds));
+        registration.addUrlPatterns("/upload");
+        return registration;
+    }
+}
@@ -0,0 +1,38 @@
+package com.photoalbum.config;
+
+import com.photoalbum.util.VirtualThreads;
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Virtual thread execution mode (app.virtual-threads.enabled, Java 21+): Tomcat runs each
+ * request on a new virtual thread instead of its worker pool, so requests blocked on JDBC or
+ * storage I/O do not hold a platform thread. Upload jobs run on virtual threads as well
+ * (see {@link UploadConfig}), while image decoding stays on the bounded upload executor.
+ */
+@Configuration
+public class VirtualThreadConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    /**
+     * Replaces the Tomcat worker pool; server.tomcat.threads.* no longer applies and the number
+     * of concurrent requests is bounded by server.tomcat.max-connections
+     * @throws IllegalStateException on startup if enabled on a JDK without virtual threads
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer(
+            @Value("${app.virtual-threads.enabled}") boolean enabled) {
+        return protocolHandler -> {
+            if (enabled) {
+                protocolHandler.setExecutor(VirtualThreads.newThreadPerTaskExecutor("http-"));
+                logger.info("Serving requests and running upload jobs on virtual threads");
+            }
+        };
+    }
+}
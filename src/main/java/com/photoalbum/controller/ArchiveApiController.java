@@ -0,0 +1,66 @@
+package com.photoalbum.controller;
+
+import com.photoalbum.model.PhotoMonthCount;
+import com.photoalbum.model.PhotoSummary;
+import com.photoalbum.service.PhotoService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * JSON API for browsing photos by upload month
+ */
+@RestController
+@RequestMapping("/api/archive")
+public class ArchiveApiController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveApiController.class);
+
+    private final PhotoService photoService;
+
+    public ArchiveApiController(PhotoService photoService) {
+        this.photoService = photoService;
+    }
+
+    /**
+     * Get the number of photos per month (yyyy-MM), newest month first
+     */
+    @GetMapping
+    public ResponseEntity<List<PhotoMonthCount>> getMonths() {
+        try {
+            return ResponseEntity.ok(photoService.getMonthHistogram());
+        } catch (Exception ex) {
+            logger.error("Error loading photo month histogram", ex);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Get metadata for the photos uploaded in a month (yyyy-MM), newest first
+     */
+    @GetMapping("/{month}")
+    public ResponseEntity<List<PhotoSummary>> getMonth(@PathVariable String month) {
+        YearMonth yearMonth;
+        try {
+            yearMonth = YearMonth.parse(month);
+        } catch (DateTimeParseException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            return ResponseEntity.ok(photoService.getPhotosByMonth(yearMonth));
+        } catch (Exception ex) {
+            logger.error("Error loading photos for month {}", month, ex);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.photoalbum.controller;
 
 import com.photoalbum.model.Photo;
+import com.photoalbum.model.PhotoNeighbors;
 import com.photoalbum.service.PhotoService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,6 +10,7 @@
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -44,12 +46,14 @@ public String detail(@PathVariable String id, Model model) {
             Photo photo = photoOpt.get();
             model.addAttribute("photo", photo);
 
-            // Find previous and next photos for navigation
-            Optional<Photo> previousPhoto = photoService.getPreviousPhoto(photo);
-            Optional<Photo> nextPhoto = photoService.getNextPhoto(photo);
+            // Display the largest rendition; the image links to the original
+            List<Integer> renditionWidths = photoService.getRenditionWidths();
+            model.addAttribute("previewWidth", renditionWidths.get(renditionWidths.size() - 1));
 
-            model.addAttribute("previousPhotoId", previousPhoto.isPresent() ? previousPhoto.get().getId() : null);
-            model.addAttribute("nextPhotoId", nextPhoto.isPresent() ? nextPhoto.get().getId() : null);
+            // Find previous and next photos for navigation
+            PhotoNeighbors neighbors = photoService.getNeighbors(photo);
+            model.addAttribute("previousPhotoId", neighbors.getPreviousId());
+            model.addAttribute("nextPhotoId", neighbors.getNextId());
 
             return "detail";
         } catch (Exception ex) {
@@ -1,21 +1,36 @@
 package com.photoalbum.controller;
 
-import com.photoalbum.model.Photo;
-import com.photoalbum.model.UploadResult;
+import com.photoalbum.cache.LruCache;
+import com.photoalbum.model.PhotoPage;
+import com.photoalbum.model.UploadJob;
 import com.photoalbum.service.PhotoService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
-import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.RequestContextUtils;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
 
-import java.util.ArrayList;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Controller for the main photo gallery page with upload functionality
@@ -25,75 +40,157 @@ public class HomeController {
 
     private static final Logger logger = LoggerFactory.getLogger(HomeController.class);
 
+    /**
+     * Retry-After sent when the upload job queue is full
+     */
+    private static final int UPLOAD_RETRY_AFTER_SECONDS = 5;
+
+    private static final MediaType TEXT_HTML_UTF8 = new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8);
+
     private final PhotoService photoService;
+    private final ITemplateEngine templateEngine;
+    private final LruCache<String, byte[]> galleryPageCache;
+    private final int pageSize;
 
-    public HomeController(PhotoService photoService) {
+    public HomeController(PhotoService photoService,
+                          ITemplateEngine templateEngine,
+                          LruCache<String, byte[]> galleryPageCache,
+                          @Value("${app.gallery.page-size}") int pageSize) {
         this.photoService = photoService;
+        this.templateEngine = templateEngine;
+        this.galleryPageCache = galleryPageCache;
+        this.pageSize = pageSize;
     }
 
     /**
-     * Handler for GET requests - loads all photos for display
+     * Handler for GET requests - renders the first page of photos for display;
+     * the page fetches the rest from /api/photos as the user scrolls.
+     * With a month (yyyy-MM), shows only the photos uploaded in that month.
+     * <p>
+     * The page is the same for every visitor until the album changes, so it is rendered once
+     * per album version and served from memory, with an ETag for revalidation. Pages carrying
+     * flash messages (after a delete) are rendered per request.
      */
     @GetMapping("/")
-    public String index(Model model) {
+    public ResponseEntity<byte[]> index(@RequestParam(value = "month", required = false) String month,
+                                        HttpServletRequest request, HttpServletResponse response, Locale locale) {
+        YearMonth selectedMonth = parseMonth(month);
+
+        Map<String, ?> flashAttributes = RequestContextUtils.getInputFlashMap(request);
+        if (flashAttributes != null && !flashAttributes.isEmpty()) {
+            Map<String, Object> variables = new HashMap<String, Object>(flashAttributes);
+            try {
+                variables.putAll(loadGallery(selectedMonth));
+            } catch (Exception ex) {
+                logger.error("Error loading photos", ex);
+            }
+            return ResponseEntity.ok()
+                    .contentType(TEXT_HTML_UTF8)
+                    .cacheControl(CacheControl.noStore())
+                    .body(render(variables, request, response, locale));
+        }
+
+        String key = photoService.getAlbumVersion() + "-" + (selectedMonth != null ? selectedMonth : "all")
+                + "-" + locale.toLanguageTag();
+        String eTag = "\"gallery-" + key + "\"";
+        if (new ServletWebRequest(request, response).checkNotModified(eTag)) {
+            return null;
+        }
+
+        byte[] page = galleryPageCache.get(key);
+        if (page == null) {
+            long generation = galleryPageCache.generation();
+            try {
+                page = render(loadGallery(selectedMonth), request, response, locale);
+                galleryPageCache.put(key, page, generation);
+            } catch (Exception ex) {
+                // Render the empty gallery, without caching it
+                logger.error("Error loading photos", ex);
+                return ResponseEntity.ok()
+                        .contentType(TEXT_HTML_UTF8)
+                        .cacheControl(CacheControl.noStore())
+                        .body(render(new HashMap<String, Object>(), request, response, locale));
+            }
+        }
+
+        return ResponseEntity.ok()
+                .contentType(TEXT_HTML_UTF8)
+                .cacheControl(CacheControl.noCache())
+                .eTag(eTag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_LANGUAGE)
+                .body(page);
+    }
+
+    /**
+     * Load the template variables of the gallery page
+     */
+    private Map<String, Object> loadGallery(YearMonth selectedMonth) {
+        Map<String, Object> variables = new HashMap<String, Object>();
+        if (selectedMonth != null) {
+            variables.put("photos", photoService.getPhotosByMonth(selectedMonth));
+            variables.put("selectedMonth", selectedMonth.toString());
+        } else {
+            PhotoPage page = photoService.getPhotoPage(null, pageSize);
+            variables.put("photos", page.getPhotos());
+            variables.put("nextCursor", page.getNextCursor());
+        }
+        variables.put("months", photoService.getMonthHistogram());
+        return variables;
+    }
+
+    private byte[] render(Map<String, Object> variables, HttpServletRequest request,
+                          HttpServletResponse response, Locale locale) {
+        WebContext context = new WebContext(request, response, request.getServletContext(), locale, variables);
+        return templateEngine.process("index", context).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parse a yyyy-MM month parameter, ignoring missing or malformed values
+     */
+    private static YearMonth parseMonth(String month) {
+        if (month == null || month.isEmpty()) {
+            return null;
+        }
         try {
-            List<Photo> photos = photoService.getAllPhotos();
-            model.addAttribute("photos", photos);
-            // Add timestamp for cache busting
-            model.addAttribute("timestamp", System.currentTimeMillis());
-        } catch (Exception ex) {
-            logger.error("Error loading photos", ex);
-            model.addAttribute("photos", new ArrayList<Photo>());
-            model.addAttribute("timestamp", System.currentTimeMillis());
+            return YearMonth.parse(month);
+        } catch (DateTimeParseException ex) {
+            return null;
         }
-        return "index";
     }
 
     /**
-     * Handler for POST requests - uploads one or more photo files
+     * Handler for POST requests - uploads one or more photo files.
+     * With async=true the files are only staged before responding 202 Accepted with the job
+     * status; decoding and saving continue in the background (poll /api/uploads/{job}).
      */
     @PostMapping("/upload")
     @ResponseBody
-    public ResponseEntity<Map<String, Object>> uploadPhotos(@RequestParam("files") List<MultipartFile> files) {
-        Map<String, Object> response = new HashMap<String, Object>();
-        List<Map<String, Object>> uploadedPhotos = new ArrayList<Map<String, Object>>();
-        List<Map<String, Object>> failedUploads = new ArrayList<Map<String, Object>>();
-
+    public ResponseEntity<Map<String, Object>> uploadPhotos(
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam(value = "async", defaultValue = "false") boolean async) {
         if (files == null || files.isEmpty()) {
+            Map<String, Object> response = new HashMap<String, Object>();
             response.put("success", false);
             response.put("error", "No files provided");
             return ResponseEntity.badRequest().body(response);
         }
 
-        for (MultipartFile file : files) {
-            UploadResult result = photoService.uploadPhoto(file);
-
-            if (result.isSuccess()) {
-                Optional<Photo> photoOpt = photoService.getPhotoById(result.getPhotoId());
-                if (photoOpt.isPresent()) {
-                    Photo photo = photoOpt.get();
-                    Map<String, Object> uploadedPhoto = new HashMap<String, Object>();
-                    uploadedPhoto.put("id", photo.getId());
-                    uploadedPhoto.put("originalFileName", photo.getOriginalFileName());
-                    uploadedPhoto.put("filePath", photo.getFilePath());
-                    uploadedPhoto.put("uploadedAt", photo.getUploadedAt());
-                    uploadedPhoto.put("fileSize", photo.getFileSize());
-                    uploadedPhoto.put("width", photo.getWidth());
-                    uploadedPhoto.put("height", photo.getHeight());
-                    uploadedPhotos.add(uploadedPhoto);
-                }
-            } else {
-                Map<String, Object> failedUpload = new HashMap<String, Object>();
-                failedUpload.put("fileName", result.getFileName());
-                failedUpload.put("error", result.getErrorMessage());
-                failedUploads.add(failedUpload);
-            }
+        if (!async) {
+            return ResponseEntity.ok(UploadResponses.results(photoService.uploadPhotos(files)));
         }
 
-        response.put("success", !uploadedPhotos.isEmpty());
-        response.put("uploadedPhotos", uploadedPhotos);
-        response.put("failedUploads", failedUploads);
-
-        return ResponseEntity.ok(response);
+        try {
+            UploadJob job = photoService.submitUploads(files);
+            return ResponseEntity.accepted()
+                .location(URI.create("/api/uploads/" + job.getId()))
+                .body(UploadResponses.job(job));
+        } catch (RejectedExecutionException ex) {
+            Map<String, Object> response = new HashMap<String, Object>();
+            response.put("success", false);
+            response.put("error", "Too many uploads are being processed. Please try again shortly.");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(UPLOAD_RETRY_AFTER_SECONDS))
+                .body(response);
+        }
     }
-}
\ No newline at end of file
+}
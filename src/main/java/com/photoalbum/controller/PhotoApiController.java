@@ -0,0 +1,98 @@
+package com.photoalbum.controller;
+
+import com.photoalbum.model.Photo;
+import com.photoalbum.model.PhotoPage;
+import com.photoalbum.model.SimilarPhoto;
+import com.photoalbum.service.PhotoService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * JSON API over photo metadata, used by the gallery's infinite scroll
+ */
+@RestController
+@RequestMapping("/api/photos")
+public class PhotoApiController {
+
+    private static final Logger logger = LoggerFactory.getLogger(PhotoApiController.class);
+
+    private final PhotoService photoService;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final int defaultSimilarDistance;
+    private final int maxSimilarDistance;
+
+    public PhotoApiController(
+            PhotoService photoService,
+            @Value("${app.gallery.page-size}") int defaultPageSize,
+            @Value("${app.gallery.max-page-size}") int maxPageSize,
+            @Value("${app.similar.default-distance}") int defaultSimilarDistance,
+            @Value("${app.similar.max-distance}") int maxSimilarDistance) {
+        this.photoService = photoService;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.defaultSimilarDistance = defaultSimilarDistance;
+        this.maxSimilarDistance = maxSimilarDistance;
+    }
+
+    /**
+     * Get a page of photo metadata, newest first.
+     * Pass the returned nextCursor as cursor to get the following page; it is null on the last page.
+     */
+    @GetMapping
+    public ResponseEntity<PhotoPage> listPhotos(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        int pageSize = limit != null ? Math.min(limit, maxPageSize) : defaultPageSize;
+        if (pageSize <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            return ResponseEntity.ok(photoService.getPhotoPage(cursor, pageSize));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception ex) {
+            logger.error("Error listing photos", ex);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Get the photos that look like a photo (resized or re-encoded copies, near-duplicates),
+     * closest first. maxDistance is the number of perceptual hash bits (out of 64) that may differ.
+     */
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<List<SimilarPhoto>> similarPhotos(
+            @PathVariable("id") String id,
+            @RequestParam(value = "maxDistance", required = false) Integer maxDistance,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        int distance = maxDistance != null ? maxDistance : defaultSimilarDistance;
+        int count = limit != null ? Math.min(limit, maxPageSize) : defaultPageSize;
+        if (distance < 0 || distance > maxSimilarDistance || count <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            Optional<Photo> photo = photoService.getPhotoById(id);
+            if (!photo.isPresent()) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(photoService.getSimilarPhotos(photo.get(), distance, count));
+        } catch (Exception ex) {
+            logger.error("Error finding photos similar to {}", id, ex);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
@@ -1,23 +1,34 @@
 package com.photoalbum.controller;
 
+import com.photoalbum.model.ImageTransform;
 import com.photoalbum.model.Photo;
+import com.photoalbum.model.PhotoRendition;
 import com.photoalbum.service.PhotoService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.Optional;
 
 /**
- * Controller for serving photo files from Oracle database BLOB storage
+ * Controller for serving photo files from the photo storage backends
  */
 @Controller
 @RequestMapping("/photo")
@@ -25,24 +36,50 @@ public class PhotoFileController {
 
     private static final Logger logger = LoggerFactory.getLogger(PhotoFileController.class);
 
+    /**
+     * Photos never change after upload, so responses may be cached for a year without revalidation
+     */
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
     private final PhotoService photoService;
+    private final int maxTransformDimension;
 
-    public PhotoFileController(PhotoService photoService) {
+    public PhotoFileController(
+            PhotoService photoService,
+            @Value("${app.transform.max-dimension}") int maxTransformDimension) {
         this.photoService = photoService;
+        this.maxTransformDimension = maxTransformDimension;
     }
 
     /**
-     * Serves a photo file by ID from Oracle database BLOB storage
+     * Serves a photo file by ID from its storage backend.
+     * The data is streamed to the response (files with sendfile where supported); Range
+     * requests are answered with 206 Partial Content by Spring MVC's resource region support. A matching
+     * If-None-Match is answered with 304 by Spring MVC before the resource is read,
+     * so revalidation never touches the stored data.
+     * <p>
+     * With w and/or h (and optionally fit=contain|cover) a resized copy is served
+     * from the disk transform cache instead.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Resource> servePhoto(@PathVariable String id) {
+    public ResponseEntity<Resource> servePhoto(@PathVariable String id,
+                                               @RequestParam(value = "w", required = false) Integer width,
+                                               @RequestParam(value = "h", required = false) Integer height,
+                                               @RequestParam(value = "fit", required = false) String fit,
+                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (width != null || height != null || fit != null) {
+            return serveTransformed(id, width, height, fit, ifNoneMatch);
+        }
+        return serveOriginal(id);
+    }
+
+    private ResponseEntity<Resource> serveOriginal(String id) {
         if (id == null || id.trim().isEmpty()) {
             logger.warn("Photo file request with null or empty ID");
             return ResponseEntity.notFound().build();
         }
 
         try {
-            logger.info("=== DEBUGGING: Serving photo request for ID {} ===", id);
             Optional<Photo> photoOpt = photoService.getPhotoById(id);
 
             if (!photoOpt.isPresent()) {
@@ -51,39 +88,197 @@ public ResponseEntity<Resource> servePhoto(@PathVariable String id) {
             }
 
             Photo photo = photoOpt.get();
-            logger.info("Found photo: originalFileName={}, mimeType={}", 
-                    photo.getOriginalFileName(), photo.getMimeType());
 
-            // Get photo data from Oracle database BLOB
-            byte[] photoData = photo.getPhotoData();
-            if (photoData == null || photoData.length == 0) {
+            // Get a streaming resource over the stored photo data
+            Optional<Resource> resource = photoService.getPhotoData(photo);
+            if (!resource.isPresent()) {
                 logger.error("No photo data found for photo ID {}", id);
                 return ResponseEntity.notFound().build();
             }
 
-            logger.info("Photo data retrieved: {} bytes, first 10 bytes: {}", 
-                    photoData.length, 
-                    photoData.length >= 10 ? java.util.Arrays.toString(java.util.Arrays.copyOf(photoData, 10)) : "less than 10 bytes");
-
-            // Create resource from byte array
-            Resource resource = new ByteArrayResource(photoData);
-
-            logger.info("Serving photo ID {} ({}, {} bytes) from Oracle database",
-                    id, photo.getOriginalFileName(), photoData.length);
-
-            // Return the photo data with appropriate content type and aggressive no-cache headers
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(photo.getMimeType()))
-                    .header(HttpHeaders.CACHE_CONTROL, "no-cache, no-store, must-revalidate, private")
-                    .header(HttpHeaders.PRAGMA, "no-cache")
-                    .header(HttpHeaders.EXPIRES, "0")
-                    .header("X-Photo-ID", String.valueOf(id))
-                    .header("X-Photo-Name", photo.getOriginalFileName())
-                    .header("X-Photo-Size", String.valueOf(photoData.length))
-                    .body(resource);
+            PhotoSizeTags.record(photo.getFileSize());
+
+            // Return the photo data with appropriate content type, content-hash ETag and immutable caching
+            if (Sendfile.offer(resource.get())) {
+                return photoHeaders(ResponseEntity.ok(), photo).contentLength(resource.get().contentLength()).build();
+            }
+            return photoHeaders(ResponseEntity.ok(), photo).body(resource.get());
         } catch (Exception ex) {
             logger.error("Error serving photo with ID {} from Oracle database", id, ex);
             return ResponseEntity.status(500).build();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Serves the gallery thumbnail (smallest rendition) of a photo
+     */
+    @GetMapping("/{id}/thumb")
+    public ResponseEntity<Resource> serveThumbnail(@PathVariable String id) {
+        return serveRendition(id, photoService.getRenditionWidths().get(0));
+    }
+
+    /**
+     * Serves a pre-generated rendition of a photo by width.
+     * Falls back to the original when no rendition exists (e.g. the original is smaller).
+     */
+    @GetMapping("/{id}/rendition/{width}")
+    public ResponseEntity<Resource> serveRendition(@PathVariable String id, @PathVariable int width) {
+        if (!photoService.getRenditionWidths().contains(width)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        try {
+            Optional<PhotoRendition> renditionOpt = photoService.getRendition(id, width);
+            if (!renditionOpt.isPresent()) {
+                return serveOriginal(id);
+            }
+
+            PhotoRendition rendition = renditionOpt.get();
+            Optional<Resource> resource = photoService.getRenditionData(rendition);
+            if (!resource.isPresent()) {
+                return serveOriginal(id);
+            }
+
+            PhotoSizeTags.record(rendition.getFileSize());
+            ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+            if (rendition.getContentHash() != null) {
+                builder.eTag(rendition.getContentHash());
+            }
+            builder.contentType(MediaType.parseMediaType(rendition.getMimeType()))
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .header(HttpHeaders.CACHE_CONTROL, IMMUTABLE_CACHE_CONTROL)
+                    .header("X-Photo-ID", id);
+            if (Sendfile.offer(resource.get())) {
+                return builder.contentLength(resource.get().contentLength()).build();
+            }
+            return builder.body(resource.get());
+        } catch (Exception ex) {
+            logger.error("Error serving {}px rendition of photo with ID {}", width, id, ex);
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    /**
+     * Serves an on-demand resized copy of a photo.
+     * The ETag is derived from the content hash and the parameters, so revalidation
+     * is answered with 304 before any resize or cache lookup.
+     */
+    private ResponseEntity<Resource> serveTransformed(String id, Integer width, Integer height, String fit,
+                                                      String ifNoneMatch) {
+        ImageTransform transform;
+        try {
+            transform = ImageTransform.of(width, height, fit, maxTransformDimension);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            Optional<Photo> photoOpt = photoService.getPhotoById(id);
+            if (!photoOpt.isPresent()) {
+                return ResponseEntity.notFound().build();
+            }
+
+            Photo photo = photoOpt.get();
+            String eTag = photo.getContentHash() != null
+                    ? "\"" + photo.getContentHash() + "-" + transform.cacheKey() + "\""
+                    : null;
+            if (eTag != null && ifNoneMatch != null && matches(ifNoneMatch, eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(eTag)
+                        .header(HttpHeaders.CACHE_CONTROL, IMMUTABLE_CACHE_CONTROL)
+                        .build();
+            }
+
+            Optional<Resource> resource = photoService.getTransformedPhoto(photo, transform);
+            if (!resource.isPresent()) {
+                // Not decodable (e.g. WebP without an ImageIO plugin): serve the original
+                return serveOriginal(id);
+            }
+            closeAfterRequest(resource.get());
+
+            PhotoSizeTags.record(resource.get().contentLength());
+            ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+            if (eTag != null) {
+                builder.eTag(eTag);
+            }
+            builder.contentType(MediaTypeFactory.getMediaType(resource.get())
+                            .orElse(MediaType.APPLICATION_OCTET_STREAM))
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .header(HttpHeaders.CACHE_CONTROL, IMMUTABLE_CACHE_CONTROL)
+                    .header("X-Photo-ID", id);
+            if (Sendfile.offer(resource.get())) {
+                return builder.contentLength(resource.get().contentLength()).build();
+            }
+            return builder.body(resource.get());
+        } catch (Exception ex) {
+            logger.error("Error serving {} of photo with ID {}", transform, id, ex);
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    /**
+     * Close a resource that holds a file open once the response has been written
+     */
+    private static void closeAfterRequest(final Resource resource) {
+        if (resource instanceof Closeable) {
+            RequestContextHolder.currentRequestAttributes().registerDestructionCallback(
+                Closeable.class.getName() + "@" + System.identityHashCode(resource), () -> {
+                    try {
+                        ((Closeable) resource).close();
+                    } catch (IOException ex) {
+                        logger.warn("Could not close {}", resource, ex);
+                    }
+                }, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    /**
+     * Check an If-None-Match header value (a list of entity tags or *) against an ETag
+     */
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Answers HEAD requests from photo metadata alone, without opening the stored data
+     */
+    @RequestMapping(value = "/{id}", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> headPhoto(@PathVariable String id) {
+        try {
+            Optional<Photo> photoOpt = photoService.getPhotoById(id);
+            if (!photoOpt.isPresent() || !photoOpt.get().hasData()) {
+                return ResponseEntity.notFound().build();
+            }
+
+            Photo photo = photoOpt.get();
+            return photoHeaders(ResponseEntity.ok(), photo)
+                    .contentLength(photo.getFileSize())
+                    .build();
+        } catch (Exception ex) {
+            logger.error("Error reading photo metadata for ID {}", id, ex);
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    private ResponseEntity.BodyBuilder photoHeaders(ResponseEntity.BodyBuilder builder, Photo photo) {
+        if (photo.getContentHash() != null) {
+            builder.eTag(photo.getContentHash());
+        }
+        return builder
+                .contentType(MediaType.parseMediaType(photo.getMimeType()))
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CACHE_CONTROL, IMMUTABLE_CACHE_CONTROL)
+                .header("X-Photo-ID", String.valueOf(photo.getId()))
+                .header("X-Photo-Name", photo.getOriginalFileName())
+                .header("X-Photo-Size", String.valueOf(photo.getFileSize()));
+    }
+}
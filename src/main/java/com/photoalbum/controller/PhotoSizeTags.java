@@ -0,0 +1,62 @@
+package com.photoalbum.controller;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.boot.actuate.metrics.web.servlet.WebMvcTagsContributor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Tags http.server.requests with the size of the photo served, so serving latency (including
+ * writing the body) can be broken down by size. Photo handlers record the size with
+ * {@link #record}; other requests are tagged size=none. The buckets are coarse to keep the
+ * number of time series small.
+ */
+@Component
+public class PhotoSizeTags implements WebMvcTagsContributor {
+
+    private static final String ATTRIBUTE = PhotoSizeTags.class.getName() + ".size";
+
+    private static final long KB = 1024;
+    private static final long[] UPPER_BOUNDS = {64 * KB, 256 * KB, 1024 * KB, 4096 * KB};
+    private static final Tag[] SIZE_TAGS = {
+        Tag.of("size", "0-64KB"),
+        Tag.of("size", "64KB-256KB"),
+        Tag.of("size", "256KB-1MB"),
+        Tag.of("size", "1MB-4MB"),
+        Tag.of("size", "4MB+")
+    };
+    private static final Tag NO_SIZE = Tag.of("size", "none");
+
+    /**
+     * Record the size of the photo served by the current request
+     * @param size Size in bytes, null if unknown
+     */
+    static void record(Long size) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null || size == null) {
+            return;
+        }
+        int bucket = 0;
+        while (bucket < UPPER_BOUNDS.length && size >= UPPER_BOUNDS[bucket]) {
+            bucket++;
+        }
+        attributes.setAttribute(ATTRIBUTE, SIZE_TAGS[bucket], RequestAttributes.SCOPE_REQUEST);
+    }
+
+    @Override
+    public Iterable<Tag> getTags(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                 Throwable exception) {
+        Object size = request.getAttribute(ATTRIBUTE);
+        return Tags.of(size instanceof Tag ? (Tag) size : NO_SIZE);
+    }
+
+    @Override
+    public Iterable<Tag> getLongRequestTags(HttpServletRequest request, Object handler) {
+        return Tags.empty();
+    }
+}
@@ -0,0 +1,203 @@
+package com.photoalbum.controller;
+
+import com.photoalbum.jdbc.QueryStats;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Counts the statements, rows and LOB bytes of each request (see TracingDataSource) against a
+ * query budget. The counts are sent in the X-Query-* response headers, as far as they are known
+ * when the body starts (LOB data streamed as the body is read later), and recorded in the
+ * db.request.* summaries by URI pattern once the request completes.
+ * <p>
+ * Requests over the budget are logged and counted in db.request.budget.exceeded by reason:
+ * statements, rows, repeated (one statement executed again and again, as in N+1 lookups) or lob
+ * (LOB data read outside the paths that serve photo data). Reasons known when the body starts
+ * are listed in X-Query-Budget-Exceeded.
+ */
+public class QueryBudgetFilter extends OncePerRequestFilter {
+
+    public static final String STATEMENTS_HEADER = "X-Query-Count";
+    public static final String ROWS_HEADER = "X-Query-Rows";
+    public static final String LOB_BYTES_HEADER = "X-Query-Lob-Bytes";
+    public static final String EXCEEDED_HEADER = "X-Query-Budget-Exceeded";
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryBudgetFilter.class);
+
+    private static final UrlPathHelper PATH_HELPER = new UrlPathHelper();
+
+    private final MeterRegistry meterRegistry;
+    private final int maxStatements;
+    private final long maxRows;
+    private final int maxRepetitions;
+    private final List<String> lobPaths;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    /**
+     * @param maxRepetitions Times one statement may be executed in a request
+     * @param lobPaths Path patterns of requests that may read LOB data
+     */
+    public QueryBudgetFilter(MeterRegistry meterRegistry, int maxStatements, long maxRows, int maxRepetitions,
+                             List<String> lobPaths) {
+        this.meterRegistry = meterRegistry;
+        this.maxStatements = maxStatements;
+        this.maxRows = maxRows;
+        this.maxRepetitions = maxRepetitions;
+        this.lobPaths = lobPaths;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        QueryStats stats = QueryStats.start();
+        StatsResponse statsResponse = new StatsResponse(request, response, stats);
+        try {
+            chain.doFilter(request, statsResponse);
+        } finally {
+            QueryStats.stop();
+            statsResponse.writeHeaders();
+            record(request, stats);
+        }
+    }
+
+    private void record(HttpServletRequest request, QueryStats stats) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "other";
+        DistributionSummary.builder("db.request.statements").tag("uri", uri)
+            .register(meterRegistry).record(stats.getStatements());
+        DistributionSummary.builder("db.request.rows").tag("uri", uri)
+            .register(meterRegistry).record(stats.getRows());
+        DistributionSummary.builder("db.request.lob.bytes").tag("uri", uri).baseUnit("bytes")
+            .register(meterRegistry).record(stats.getLobBytes());
+
+        List<String> exceeded = exceeded(request, stats);
+        if (exceeded.isEmpty()) {
+            return;
+        }
+        for (String reason : exceeded) {
+            meterRegistry.counter("db.request.budget.exceeded", "uri", uri, "reason", reason).increment();
+        }
+        logger.warn("{} {} exceeded the query budget ({}): {} statements, {} rows, {} LOB bytes; " +
+                "executed {} times: {}", request.getMethod(), uri, String.join(",", exceeded),
+            stats.getStatements(), stats.getRows(), stats.getLobBytes(),
+            stats.getMaxRepetitions(), stats.getMostRepeated());
+    }
+
+    private List<String> exceeded(HttpServletRequest request, QueryStats stats) {
+        List<String> reasons = Collections.emptyList();
+        if (stats.getStatements() > maxStatements) {
+            reasons = add(reasons, "statements");
+        }
+        if (stats.getRows() > maxRows) {
+            reasons = add(reasons, "rows");
+        }
+        if (stats.getMaxRepetitions() > maxRepetitions) {
+            reasons = add(reasons, "repeated");
+        }
+        if (stats.getLobBytes() > 0 && !isLobPath(request)) {
+            reasons = add(reasons, "lob");
+        }
+        return reasons;
+    }
+
+    private static List<String> add(List<String> reasons, String reason) {
+        List<String> added = reasons.isEmpty() ? new ArrayList<String>(4) : reasons;
+        added.add(reason);
+        return added;
+    }
+
+    private boolean isLobPath(HttpServletRequest request) {
+        String path = PATH_HELPER.getPathWithinApplication(request);
+        for (String lobPath : lobPaths) {
+            if (pathMatcher.match(lobPath, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the X-Query-* headers just before the body starts, or at the end of the request
+     * if there is no body
+     */
+    private class StatsResponse extends HttpServletResponseWrapper {
+
+        private final HttpServletRequest request;
+        private final QueryStats stats;
+        private boolean headersWritten;
+
+        StatsResponse(HttpServletRequest request, HttpServletResponse response, QueryStats stats) {
+            super(response);
+            this.request = request;
+            this.stats = stats;
+        }
+
+        void writeHeaders() {
+            if (headersWritten || isCommitted()) {
+                return;
+            }
+            headersWritten = true;
+            setHeader(STATEMENTS_HEADER, String.valueOf(stats.getStatements()));
+            setHeader(ROWS_HEADER, String.valueOf(stats.getRows()));
+            setHeader(LOB_BYTES_HEADER, String.valueOf(stats.getLobBytes()));
+            List<String> exceeded = exceeded(request, stats);
+            if (!exceeded.isEmpty()) {
+                setHeader(EXCEEDED_HEADER, String.join(",", exceeded));
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeaders();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeaders();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeaders();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeHeaders();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeHeaders();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeHeaders();
+            super.sendRedirect(location);
+        }
+    }
+}
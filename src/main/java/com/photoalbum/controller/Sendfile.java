@@ -0,0 +1,57 @@
+package com.photoalbum.controller;
+
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Hands file-backed responses to the servlet container's sendfile support. Tomcat's NIO
+ * connector then sends the file with FileChannel.transferTo after the handler returns, so the
+ * bytes go from the page cache to the socket without being copied through the JVM.
+ * <p>
+ * Only plain GETs qualify; ranges and conditional requests take the regular path, where
+ * Spring MVC answers them.
+ */
+final class Sendfile {
+
+    static final String SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    static final String FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    static final String START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    static final String END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
+    private Sendfile() {
+    }
+
+    /**
+     * Ask the container to send a resource as the response body
+     * @param resource Resource to send
+     * @return Whether the container will send it; if so, respond with headers
+     *         (including Content-Length) and no body
+     */
+    static boolean offer(Resource resource) throws IOException {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes) || !resource.isFile()) {
+            return false;
+        }
+        HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+        if (!"GET".equals(request.getMethod())
+                || !Boolean.TRUE.equals(request.getAttribute(SUPPORT_ATTRIBUTE))
+                || request.getHeader(HttpHeaders.RANGE) != null
+                || request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                || request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null) {
+            return false;
+        }
+
+        File file = resource.getFile();
+        request.setAttribute(FILENAME_ATTRIBUTE, file.getAbsolutePath());
+        request.setAttribute(START_ATTRIBUTE, 0L);
+        request.setAttribute(END_ATTRIBUTE, file.length());
+        return true;
+    }
+}
@@ -0,0 +1,40 @@
+package com.photoalbum.controller;
+
+import com.photoalbum.model.AlbumStatistics;
+import com.photoalbum.service.PhotoService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * JSON API for album statistics
+ */
+@RestController
+@RequestMapping("/api/stats")
+public class StatisticsApiController {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatisticsApiController.class);
+
+    private final PhotoService photoService;
+
+    public StatisticsApiController(PhotoService photoService) {
+        this.photoService = photoService;
+    }
+
+    /**
+     * Get photo count, total bytes, per-MIME-type totals, size percentiles and the largest photos
+     */
+    @GetMapping
+    public ResponseEntity<AlbumStatistics> getStatistics() {
+        try {
+            return ResponseEntity.ok(photoService.getStatistics());
+        } catch (Exception ex) {
+            logger.error("Error loading album statistics", ex);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.photoalbum.controller;
+
+import com.photoalbum.service.impl.UploadAdmission;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Admits upload requests against the global upload byte budget before their multipart body
+ * is read. The request's Content-Length (or the maximum request size when it is not known) is
+ * reserved until the request completes; when the budget stays exhausted for the queue timeout
+ * the request is answered 503 with Retry-After without reading the body.
+ */
+public class UploadAdmissionFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadAdmissionFilter.class);
+
+    private final UploadAdmission uploadAdmission;
+    private final long maxRequestSize;
+    private final int retryAfterSeconds;
+
+    public UploadAdmissionFilter(UploadAdmission uploadAdmission, long maxRequestSize, int retryAfterSeconds) {
+        this.uploadAdmission = uploadAdmission;
+        this.maxRequestSize = maxRequestSize;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long size = request.getContentLengthLong();
+        long reserved = size >= 0 ? Math.min(size, maxRequestSize) : maxRequestSize;
+        int permits = uploadAdmission.reserveBytes(reserved);
+        if (permits == 0) {
+            logger.warn("Upload reserving {} bytes ({}) rejected, upload budget exhausted ({} bytes in use)",
+                reserved, size >= 0 ? "Content-Length " + size : "no Content-Length, maximum request size",
+                uploadAdmission.getBytesInUse());
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write(
+                "{\"success\":false,\"error\":\"Too many uploads are in progress. Please try again shortly.\"}");
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            uploadAdmission.releaseBytes(permits);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.photoalbum.controller;
+
+import com.photoalbum.model.UploadJob;
+import com.photoalbum.service.PhotoService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * JSON API reporting the progress of uploads accepted for background processing
+ */
+@RestController
+@RequestMapping("/api/uploads")
+public class UploadApiController {
+
+    private final PhotoService photoService;
+
+    public UploadApiController(PhotoService photoService) {
+        this.photoService = photoService;
+    }
+
+    /**
+     * Get the status of an upload job: QUEUED, PROCESSING (with the number of processed files)
+     * or COMPLETED (with the uploaded photos and failed files, as returned by a synchronous upload)
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<Map<String, Object>> getUploadJob(@PathVariable("jobId") String jobId) {
+        Optional<UploadJob> job = photoService.getUploadJob(jobId);
+        if (!job.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+            .cacheControl(CacheControl.noStore())
+            .body(UploadResponses.job(job.get()));
+    }
+}
@@ -0,0 +1,68 @@
+package com.photoalbum.controller;
+
+import com.photoalbum.model.Photo;
+import com.photoalbum.model.UploadJob;
+import com.photoalbum.model.UploadResult;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON bodies describing upload results, shared by the upload and upload job endpoints
+ */
+final class UploadResponses {
+
+    private UploadResponses() {
+    }
+
+    /**
+     * Uploaded photos and failed files of an upload
+     */
+    static Map<String, Object> results(List<UploadResult> results) {
+        Map<String, Object> response = new HashMap<String, Object>();
+        List<Map<String, Object>> uploadedPhotos = new ArrayList<Map<String, Object>>();
+        List<Map<String, Object>> failedUploads = new ArrayList<Map<String, Object>>();
+
+        for (UploadResult result : results) {
+            if (result.isSuccess()) {
+                Photo photo = result.getPhoto();
+                Map<String, Object> uploadedPhoto = new HashMap<String, Object>();
+                uploadedPhoto.put("id", photo.getId());
+                uploadedPhoto.put("originalFileName", photo.getOriginalFileName());
+                uploadedPhoto.put("filePath", photo.getFilePath());
+                uploadedPhoto.put("uploadedAt", photo.getUploadedAt());
+                uploadedPhoto.put("fileSize", photo.getFileSize());
+                uploadedPhoto.put("width", photo.getWidth());
+                uploadedPhoto.put("height", photo.getHeight());
+                uploadedPhotos.add(uploadedPhoto);
+            } else {
+                Map<String, Object> failedUpload = new HashMap<String, Object>();
+                failedUpload.put("fileName", result.getFileName());
+                failedUpload.put("error", result.getErrorMessage());
+                failedUploads.add(failedUpload);
+            }
+        }
+
+        response.put("success", !uploadedPhotos.isEmpty());
+        response.put("uploadedPhotos", uploadedPhotos);
+        response.put("failedUploads", failedUploads);
+        return response;
+    }
+
+    /**
+     * Status and progress of an upload job, with the results once it is completed
+     */
+    static Map<String, Object> job(UploadJob job) {
+        Map<String, Object> response = job.getStatus() == UploadJob.Status.COMPLETED
+            ? results(job.getResults())
+            : new HashMap<String, Object>();
+        response.put("jobId", job.getId());
+        response.put("status", job.getStatus());
+        response.put("totalFiles", job.getTotalFiles());
+        response.put("processedFiles", job.getProcessedFiles());
+        response.put("statusUrl", "/api/uploads/" + job.getId());
+        return response;
+    }
+}
@@ -0,0 +1,96 @@
+package com.photoalbum.jdbc;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Statements executed, rows read and LOB bytes read on one thread between {@link #start} and
+ * {@link #stop}, as counted by {@link TracingDataSource}. Identical SQL is counted per statement
+ * text, so a statement repeated once per item (N+1) shows up in {@link #getMaxRepetitions}.
+ */
+public class QueryStats {
+
+    private static final ThreadLocal<QueryStats> CURRENT = new ThreadLocal<QueryStats>();
+
+    private int statements;
+    private long rows;
+    private long lobBytes;
+    private final Map<String, Integer> executions = new HashMap<String, Integer>();
+    private String mostRepeated;
+    private int maxRepetitions;
+
+    /**
+     * Start counting on the current thread
+     * @return The counts, updated as statements run on this thread
+     */
+    public static QueryStats start() {
+        QueryStats stats = new QueryStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    /**
+     * Stop counting on the current thread
+     */
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Counts of the current thread, null when not counting
+     */
+    public static QueryStats current() {
+        return CURRENT.get();
+    }
+
+    void executed(String sql) {
+        statements++;
+        Integer count = executions.get(sql);
+        int repetitions = count != null ? count + 1 : 1;
+        executions.put(sql, repetitions);
+        if (repetitions > maxRepetitions) {
+            maxRepetitions = repetitions;
+            mostRepeated = sql;
+        }
+    }
+
+    void rowRead() {
+        rows++;
+    }
+
+    void lobRead(long bytes) {
+        lobBytes += bytes;
+    }
+
+    /**
+     * Statements executed; a JDBC batch counts once
+     */
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Bytes of binary column data read, as byte arrays, streams or BLOBs
+     */
+    public long getLobBytes() {
+        return lobBytes;
+    }
+
+    /**
+     * Number of times the most repeated statement was executed
+     */
+    public int getMaxRepetitions() {
+        return maxRepetitions;
+    }
+
+    /**
+     * SQL of the most repeated statement, null if none was executed
+     */
+    public String getMostRepeated() {
+        return mostRepeated;
+    }
+}
@@ -0,0 +1,207 @@
+package com.photoalbum.jdbc;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Blob;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * DataSource whose connections count statements, rows and LOB bytes into the {@link QueryStats}
+ * of the current thread. Connections, statements, result sets and BLOBs are wrapped in dynamic
+ * proxies; with no QueryStats on the thread nothing is counted. unwrap() reaches the pool, so
+ * the pool's own metrics keep working.
+ */
+public class TracingDataSource extends DelegatingDataSource {
+
+    public TracingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(super.getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(super.getConnection(username, password)));
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(TracingDataSource.class.getClassLoader(),
+            new Class<?>[] {type}, handler));
+    }
+
+    /**
+     * Forwards calls to the wrapped JDBC object; subclasses count and wrap the results
+     */
+    private abstract static class Handler implements InvocationHandler {
+
+        final Object target;
+
+        Handler(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("equals")) {
+                return proxy == args[0];
+            }
+            if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+            return traced(method, args, result);
+        }
+
+        abstract Object traced(Method method, Object[] args, Object result);
+    }
+
+    private static class ConnectionHandler extends Handler {
+
+        ConnectionHandler(Connection target) {
+            super(target);
+        }
+
+        @Override
+        Object traced(Method method, Object[] args, Object result) {
+            String name = method.getName();
+            if (result instanceof Statement && (name.equals("createStatement")
+                    || name.equals("prepareStatement") || name.equals("prepareCall"))) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                return Proxy.newProxyInstance(TracingDataSource.class.getClassLoader(),
+                    new Class<?>[] {method.getReturnType()}, new StatementHandler(result, sql));
+            }
+            return result;
+        }
+    }
+
+    private static class StatementHandler extends Handler {
+
+        /** SQL of a prepared statement, null for plain statements */
+        private final String preparedSql;
+
+        StatementHandler(Object target, String preparedSql) {
+            super(target);
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        Object traced(Method method, Object[] args, Object result) {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                QueryStats stats = QueryStats.current();
+                if (stats != null) {
+                    String sql = args != null && args.length > 0 && args[0] instanceof String
+                        ? (String) args[0] : preparedSql;
+                    stats.executed(sql != null ? sql : "batch");
+                }
+            }
+            if (result instanceof ResultSet) {
+                return proxy(ResultSet.class, new ResultSetHandler(result));
+            }
+            return result;
+        }
+    }
+
+    private static class ResultSetHandler extends Handler {
+
+        ResultSetHandler(Object target) {
+            super(target);
+        }
+
+        @Override
+        Object traced(Method method, Object[] args, Object result) {
+            String name = method.getName();
+            if (name.equals("next")) {
+                QueryStats stats = QueryStats.current();
+                if (stats != null && Boolean.TRUE.equals(result)) {
+                    stats.rowRead();
+                }
+                return result;
+            }
+            return lob(result);
+        }
+    }
+
+    private static class BlobHandler extends Handler {
+
+        BlobHandler(Object target) {
+            super(target);
+        }
+
+        @Override
+        Object traced(Method method, Object[] args, Object result) {
+            return lob(result);
+        }
+    }
+
+    /**
+     * Count or wrap LOB data returned by a result set or BLOB
+     */
+    private static Object lob(Object result) {
+        if (result instanceof Blob) {
+            return proxy(Blob.class, new BlobHandler(result));
+        }
+        QueryStats stats = QueryStats.current();
+        if (stats == null) {
+            return result;
+        }
+        if (result instanceof InputStream) {
+            return new CountingInputStream((InputStream) result, stats);
+        }
+        if (result instanceof byte[]) {
+            stats.lobRead(((byte[]) result).length);
+        }
+        return result;
+    }
+
+    /**
+     * Counts the bytes read into the QueryStats of the thread that opened the stream
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private final QueryStats stats;
+
+        CountingInputStream(InputStream in, QueryStats stats) {
+            super(in);
+            this.stats = stats;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                stats.lobRead(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                stats.lobRead(read);
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.photoalbum.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Album-wide statistics, read from summary tables maintained on upload and delete
+ */
+public class AlbumStatistics {
+
+    private final long photoCount;
+    private final long totalBytes;
+    private final List<PhotoMimeStats> mimeTypes;
+    private final Map<String, Long> sizePercentiles;
+    private final List<PhotoSummary> largest;
+
+    public AlbumStatistics(long photoCount, long totalBytes, List<PhotoMimeStats> mimeTypes,
+                           Map<String, Long> sizePercentiles, List<PhotoSummary> largest) {
+        this.photoCount = photoCount;
+        this.totalBytes = totalBytes;
+        this.mimeTypes = mimeTypes;
+        this.sizePercentiles = sizePercentiles;
+        this.largest = largest;
+    }
+
+    public long getPhotoCount() {
+        return photoCount;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Count and total size per MIME type
+     */
+    public List<PhotoMimeStats> getMimeTypes() {
+        return mimeTypes;
+    }
+
+    /**
+     * Estimated file size percentiles in bytes (p50, p90, p99), accurate to within 25%
+     */
+    public Map<String, Long> getSizePercentiles() {
+        return sizePercentiles;
+    }
+
+    /**
+     * The largest photos, largest first
+     */
+    public List<PhotoSummary> getLargest() {
+        return largest;
+    }
+}
@@ -0,0 +1,47 @@
+package com.photoalbum.model;
+
+import javax.persistence.*;
+
+/**
+ * Version of the album contents, shared by all instances: a single row whose counter is
+ * incremented by every upload and delete transaction
+ */
+@Entity
+@Table(name = "album_version")
+public class AlbumVersion {
+
+    /**
+     * Always 1
+     */
+    @Id
+    @Column(name = "id")
+    private Integer id;
+
+    /**
+     * Starts from the time the row was created, so versions of a recreated schema do not
+     * repeat earlier ones
+     */
+    @Column(name = "version", nullable = false, columnDefinition = "NUMBER(19,0)")
+    private long version;
+
+    // Default constructor
+    public AlbumVersion() {
+    }
+
+    // Getters and Setters
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
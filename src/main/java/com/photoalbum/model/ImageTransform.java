@@ -0,0 +1,113 @@
+package com.photoalbum.model;
+
+import java.util.Locale;
+
+/**
+ * Requested on-demand resize of a photo (the w, h and fit query parameters of /photo/{id})
+ */
+public final class ImageTransform {
+
+    /**
+     * How the image is fitted into the requested box
+     */
+    public enum Fit {
+        /** Scale to fit entirely inside the box, preserving the aspect ratio */
+        CONTAIN,
+        /** Scale to fill the box, preserving the aspect ratio and cropping the overflow */
+        COVER
+    }
+
+    private final Integer width;
+    private final Integer height;
+    private final Fit fit;
+
+    private ImageTransform(Integer width, Integer height, Fit fit) {
+        this.width = width;
+        this.height = height;
+        this.fit = fit;
+    }
+
+    /**
+     * Parse and validate transform parameters
+     * @param width Requested width in pixels, or null
+     * @param height Requested height in pixels, or null
+     * @param fit contain (default) or cover
+     * @param maxDimension Largest width or height that may be requested
+     * @return The transform
+     * @throws IllegalArgumentException if the parameters are invalid
+     */
+    public static ImageTransform of(Integer width, Integer height, String fit, int maxDimension) {
+        if (width == null && height == null) {
+            throw new IllegalArgumentException("At least one of w or h is required");
+        }
+        checkDimension("w", width, maxDimension);
+        checkDimension("h", height, maxDimension);
+
+        Fit parsedFit = Fit.CONTAIN;
+        if (fit != null && !fit.isEmpty()) {
+            try {
+                parsedFit = Fit.valueOf(fit.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Unsupported fit: " + fit);
+            }
+        }
+        return new ImageTransform(width, height, parsedFit);
+    }
+
+    private static void checkDimension(String name, Integer value, int maxDimension) {
+        if (value != null && (value <= 0 || value > maxDimension)) {
+            throw new IllegalArgumentException(name + " must be between 1 and " + maxDimension);
+        }
+    }
+
+    /**
+     * Compute the output size for a source image. Never upscales.
+     * For COVER this is the box itself; the scaled image is cropped to it.
+     * @param sourceWidth Source width in pixels
+     * @param sourceHeight Source height in pixels
+     * @return {width, height} of the output image
+     */
+    public int[] targetSize(int sourceWidth, int sourceHeight) {
+        int boxWidth = width != null ? Math.min(width, sourceWidth) : sourceWidth;
+        int boxHeight = height != null ? Math.min(height, sourceHeight) : sourceHeight;
+        if (fit == Fit.COVER && width != null && height != null) {
+            return new int[] {boxWidth, boxHeight};
+        }
+
+        double scale = Math.min((double) boxWidth / sourceWidth, (double) boxHeight / sourceHeight);
+        if (width == null) {
+            scale = (double) boxHeight / sourceHeight;
+        } else if (height == null) {
+            scale = (double) boxWidth / sourceWidth;
+        }
+        return new int[] {
+            Math.max(1, (int) Math.round(sourceWidth * scale)),
+            Math.max(1, (int) Math.round(sourceHeight * scale))
+        };
+    }
+
+    /**
+     * Stable key identifying this transform, e.g. "w320-h-contain"
+     */
+    public String cacheKey() {
+        return "w" + (width != null ? width : "") + "-h" + (height != null ? height : "")
+                + "-" + fit.name().toLowerCase(Locale.ROOT);
+    }
+
+    public Integer getWidth() {
+        return width;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public Fit getFit() {
+        return fit;
+    }
+
+    @Override
+    public String toString() {
+        return "ImageTransform{" + cacheKey() + '}';
+    }
+}
@@ -6,6 +6,8 @@
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.Size;
 
+import org.springframework.data.domain.Persistable;
+
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -14,9 +16,12 @@
  */
 @Entity
 @Table(name = "photos", indexes = {
-    @Index(name = "idx_photos_uploaded_at", columnList = "uploaded_at", unique = false)
+    @Index(name = "idx_photos_uploaded_at", columnList = "uploaded_at, id", unique = false),
+    @Index(name = "idx_photos_file_size", columnList = "file_size", unique = false),
+    @Index(name = "idx_photos_storage_key", columnList = "storage_key", unique = false),
+    @Index(name = "idx_photos_blob_id", columnList = "blob_id", unique = false)
 })
-public class Photo {
+public class Photo implements Persistable<String>, StoredContent {
 
     /**
      * Unique identifier for the photo using UUID
@@ -34,11 +39,25 @@ public class Photo {
     private String originalFileName;
 
     /**
-     * Binary photo data stored directly in Oracle database
+     * Binary photo data when kept in the photo_blob table (shared by identical
+     * photos and renditions), loaded only on access
+     */
+    @ManyToOne(fetch = FetchType.LAZY, cascade = CascadeType.PERSIST)
+    @JoinColumn(name = "blob_id")
+    private PhotoBlob blob;
+
+    /**
+     * Foreign key of the photo data row, readable without initializing the blob association
+     */
+    @Column(name = "blob_id", length = 36, insertable = false, updatable = false)
+    private String blobId;
+
+    /**
+     * Key of the photo data in the filesystem photo store (its SHA-256), null while it is in photo_blob
      */
-    @Lob
-    @Column(name = "photo_data", nullable = true)
-    private byte[] photoData;
+    @Size(max = 64)
+    @Column(name = "storage_key", length = 64)
+    private String storageKey;
 
     /**
      * GUID-based filename with extension (for compatibility)
@@ -71,6 +90,20 @@ public class Photo {
     @Column(name = "mime_type", nullable = false, length = 50)
     private String mimeType;
 
+    /**
+     * SHA-256 of the photo data (hex), computed at upload time and used as a strong ETag
+     */
+    @Size(max = 64)
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    /**
+     * Perceptual difference hash of the image, for finding visually similar photos;
+     * null if the image could not be decoded
+     */
+    @Column(name = "perceptual_hash", columnDefinition = "NUMBER(19,0)")
+    private Long perceptualHash;
+
     /**
      * Timestamp of upload
      */
@@ -90,6 +123,12 @@ public class Photo {
     @Column(name = "height")
     private Integer height;
 
+    /**
+     * True until the entity has been persisted or loaded, so save() persists instead of merging
+     */
+    @Transient
+    private boolean isNew = true;
+
     // Default constructor
     public Photo() {
         this.id = UUID.randomUUID().toString();
@@ -100,7 +139,7 @@ public Photo() {
     public Photo(String originalFileName, byte[] photoData, String storedFileName, String filePath, Long fileSize, String mimeType) {
         this();
         this.originalFileName = originalFileName;
-        this.photoData = photoData;
+        setPhotoData(photoData);
         this.storedFileName = storedFileName;
         this.filePath = filePath;
         this.fileSize = fileSize;
@@ -134,12 +173,29 @@ public void setOriginalFileName(String originalFileName) {
         this.originalFileName = originalFileName;
     }
 
-    public byte[] getPhotoData() {
-        return photoData;
+    public PhotoBlob getBlob() {
+        return blob;
+    }
+
+    public void setBlob(PhotoBlob blob) {
+        this.blob = blob;
+        this.blobId = blob != null ? blob.getId() : null;
+    }
+
+    public String getBlobId() {
+        return blobId;
+    }
+
+    public String getStorageKey() {
+        return storageKey;
+    }
+
+    public void setStorageKey(String storageKey) {
+        this.storageKey = storageKey;
     }
 
     public void setPhotoData(byte[] photoData) {
-        this.photoData = photoData;
+        setBlob(photoData != null ? new PhotoBlob(photoData) : null);
     }
 
     public String getStoredFileName() {
@@ -174,6 +230,22 @@ public void setMimeType(String mimeType) {
         this.mimeType = mimeType;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public Long getPerceptualHash() {
+        return perceptualHash;
+    }
+
+    public void setPerceptualHash(Long perceptualHash) {
+        this.perceptualHash = perceptualHash;
+    }
+
     public LocalDateTime getUploadedAt() {
         return uploadedAt;
     }
@@ -198,6 +270,17 @@ public void setHeight(Integer height) {
         this.height = height;
     }
 
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostPersist
+    @PostLoad
+    void markNotNew() {
+        this.isNew = false;
+    }
+
     @Override
     public String toString() {
         return "Photo{" +
@@ -207,6 +290,7 @@ public String toString() {
                 ", filePath='" + filePath + '\'' +
                 ", fileSize=" + fileSize +
                 ", mimeType='" + mimeType + '\'' +
+                ", contentHash='" + contentHash + '\'' +
                 ", uploadedAt=" + uploadedAt +
                 ", width=" + width +
                 ", height=" + height +
@@ -0,0 +1,115 @@
+package com.photoalbum.model;
+
+import javax.persistence.*;
+
+import org.hibernate.engine.jdbc.BlobProxy;
+
+import java.io.InputStream;
+import java.sql.Blob;
+import java.util.UUID;
+
+/**
+ * Binary payload of a photo, kept in its own table so that reading photo
+ * metadata never fetches the LOB.
+ * <p>
+ * Identical payloads are stored once: the content hash is unique, and the row is shared by
+ * every photo and rendition with that content and deleted when the last of them is.
+ */
+@Entity
+@Table(name = "photo_blob", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_photo_blob_content_hash", columnNames = {"content_hash"})
+})
+public class PhotoBlob {
+
+    /**
+     * Unique identifier for the blob using UUID
+     */
+    @Id
+    @Column(name = "id", length = 36)
+    private String id;
+
+    /**
+     * Binary photo data stored directly in Oracle database.
+     * Mapped as a java.sql.Blob so uploads can be bound as a stream instead of a byte[].
+     */
+    @Lob
+    @Column(name = "photo_data", nullable = false)
+    private Blob photoData;
+
+    /**
+     * SHA-256 of the payload (hex), used to find an existing copy on upload.
+     * Null for rows stored before deduplication.
+     */
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    /**
+     * Number of photos and renditions referencing this payload
+     */
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+
+    // Default constructor
+    public PhotoBlob() {
+        this.id = UUID.randomUUID().toString();
+        this.refCount = 1;
+    }
+
+    // Constructor with in-memory photo data
+    public PhotoBlob(byte[] photoData) {
+        this();
+        this.photoData = BlobProxy.generateProxy(photoData);
+    }
+
+    // Constructor with streamed photo data; the stream is read when the entity is flushed
+    public PhotoBlob(InputStream photoData, long length) {
+        this();
+        this.photoData = BlobProxy.generateProxy(photoData, length);
+    }
+
+    // Constructor with streamed photo data and its content hash
+    public PhotoBlob(InputStream photoData, long length, String contentHash) {
+        this(photoData, length);
+        this.contentHash = contentHash;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Blob getPhotoData() {
+        return photoData;
+    }
+
+    public void setPhotoData(Blob photoData) {
+        this.photoData = photoData;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public int getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(int refCount) {
+        this.refCount = refCount;
+    }
+
+    @Override
+    public String toString() {
+        return "PhotoBlob{" +
+                "id=" + id +
+                '}';
+    }
+}
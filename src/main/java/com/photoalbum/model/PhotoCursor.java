@@ -0,0 +1,70 @@
+package com.photoalbum.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in the gallery's (uploaded_at DESC, id DESC) order, exchanged with clients as an
+ * opaque URL-safe token. The next page starts right after the photo the cursor points at.
+ */
+public final class PhotoCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final LocalDateTime uploadedAt;
+    private final String id;
+
+    public PhotoCursor(LocalDateTime uploadedAt, String id) {
+        this.uploadedAt = uploadedAt;
+        this.id = id;
+    }
+
+    /**
+     * Cursor pointing at the given photo
+     */
+    public static PhotoCursor after(PhotoSummary photo) {
+        return new PhotoCursor(photo.getUploadedAt(), photo.getId());
+    }
+
+    /**
+     * Parse a token produced by {@link #encode()}
+     * @param token The token
+     * @return The cursor
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static PhotoCursor decode(String token) {
+        String value;
+        try {
+            value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        int separator = value.indexOf(SEPARATOR);
+        if (separator <= 0 || separator == value.length() - 1) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        try {
+            return new PhotoCursor(LocalDateTime.parse(value.substring(0, separator)), value.substring(separator + 1));
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+    }
+
+    /**
+     * Opaque, URL-safe token for this cursor
+     */
+    public String encode() {
+        String value = uploadedAt.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getUploadedAt() {
+        return uploadedAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+}
@@ -0,0 +1,74 @@
+package com.photoalbum.model;
+
+import javax.persistence.*;
+
+/**
+ * Number and total size of the photos of one MIME type, kept up to date by upload and delete
+ */
+@Entity
+@Table(name = "photo_mime_stats")
+public class PhotoMimeStats {
+
+    /**
+     * MIME type, e.g. image/jpeg
+     */
+    @Id
+    @Column(name = "mime_type", length = 50)
+    private String mimeType;
+
+    /**
+     * Number of photos of this type
+     */
+    @Column(name = "photo_count", nullable = false)
+    private long photoCount;
+
+    /**
+     * Total size in bytes of the photos of this type
+     */
+    @Column(name = "total_bytes", nullable = false)
+    private long totalBytes;
+
+    // Default constructor
+    public PhotoMimeStats() {
+    }
+
+    public PhotoMimeStats(String mimeType, long photoCount, long totalBytes) {
+        this.mimeType = mimeType;
+        this.photoCount = photoCount;
+        this.totalBytes = totalBytes;
+    }
+
+    // Getters and Setters
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    public void setMimeType(String mimeType) {
+        this.mimeType = mimeType;
+    }
+
+    public long getPhotoCount() {
+        return photoCount;
+    }
+
+    public void setPhotoCount(long photoCount) {
+        this.photoCount = photoCount;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public void setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "PhotoMimeStats{" +
+                "mimeType='" + mimeType + '\'' +
+                ", photoCount=" + photoCount +
+                ", totalBytes=" + totalBytes +
+                '}';
+    }
+}
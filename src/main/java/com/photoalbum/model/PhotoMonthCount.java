@@ -0,0 +1,59 @@
+package com.photoalbum.model;
+
+import javax.persistence.*;
+
+/**
+ * Number of photos uploaded in a calendar month. One row per month, kept up to date by
+ * upload and delete so the archive timeline never has to count over the photos table.
+ */
+@Entity
+@Table(name = "photo_month_counts")
+public class PhotoMonthCount {
+
+    /**
+     * Month in ISO format (yyyy-MM), e.g. 2024-05
+     */
+    @Id
+    @Column(name = "month_key", length = 7)
+    private String month;
+
+    /**
+     * Number of photos uploaded in the month
+     */
+    @Column(name = "photo_count", nullable = false)
+    private long photoCount;
+
+    // Default constructor
+    public PhotoMonthCount() {
+    }
+
+    public PhotoMonthCount(String month, long photoCount) {
+        this.month = month;
+        this.photoCount = photoCount;
+    }
+
+    // Getters and Setters
+    public String getMonth() {
+        return month;
+    }
+
+    public void setMonth(String month) {
+        this.month = month;
+    }
+
+    public long getPhotoCount() {
+        return photoCount;
+    }
+
+    public void setPhotoCount(long photoCount) {
+        this.photoCount = photoCount;
+    }
+
+    @Override
+    public String toString() {
+        return "PhotoMonthCount{" +
+                "month='" + month + '\'' +
+                ", photoCount=" + photoCount +
+                '}';
+    }
+}
@@ -0,0 +1,18 @@
+package com.photoalbum.model;
+
+/**
+ * Projection with the IDs of the photos next to a photo in (uploaded_at, id) order,
+ * used for the previous/next navigation of the detail page
+ */
+public interface PhotoNeighbors {
+
+    /**
+     * ID of the next older photo, or null if the photo is the oldest
+     */
+    String getPreviousId();
+
+    /**
+     * ID of the next newer photo, or null if the photo is the newest
+     */
+    String getNextId();
+}
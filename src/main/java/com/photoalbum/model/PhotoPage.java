@@ -0,0 +1,28 @@
+package com.photoalbum.model;
+
+import java.util.List;
+
+/**
+ * One page of gallery metadata and the cursor of the next page
+ */
+public class PhotoPage {
+
+    private final List<PhotoSummary> photos;
+    private final String nextCursor;
+
+    public PhotoPage(List<PhotoSummary> photos, String nextCursor) {
+        this.photos = photos;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<PhotoSummary> getPhotos() {
+        return photos;
+    }
+
+    /**
+     * Token for the next page, or null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
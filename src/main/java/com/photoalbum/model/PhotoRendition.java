@@ -0,0 +1,246 @@
+package com.photoalbum.model;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.Size;
+
+import org.springframework.data.domain.Persistable;
+
+import java.util.UUID;
+
+/**
+ * A pre-generated, downscaled copy of a photo (e.g. the gallery thumbnail).
+ * The encoded bytes are kept in the photo storage backend like the original.
+ */
+@Entity
+@Table(name = "photo_renditions", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_photo_renditions_photo_size", columnNames = {"photo_id", "size_class"})
+}, indexes = {
+    @Index(name = "idx_photo_renditions_storage_key", columnList = "storage_key", unique = false),
+    @Index(name = "idx_photo_renditions_blob_id", columnList = "blob_id", unique = false)
+})
+public class PhotoRendition implements Persistable<String>, StoredContent {
+
+    /**
+     * Unique identifier for the rendition using UUID
+     */
+    @Id
+    @Column(name = "id", length = 36)
+    private String id;
+
+    /**
+     * ID of the photo this rendition was generated from
+     */
+    @NotBlank
+    @Column(name = "photo_id", nullable = false, length = 36)
+    private String photoId;
+
+    /**
+     * Requested rendition width (e.g. 320 or 1024) used to look the rendition up
+     */
+    @NotNull
+    @Column(name = "size_class", nullable = false)
+    private Integer sizeClass;
+
+    /**
+     * Encoded image data when kept in the photo_blob table (shared by identical
+     * photos and renditions), loaded only on access
+     */
+    @ManyToOne(fetch = FetchType.LAZY, cascade = CascadeType.PERSIST)
+    @JoinColumn(name = "blob_id")
+    private PhotoBlob blob;
+
+    /**
+     * Foreign key of the rendition data row, readable without initializing the blob association
+     */
+    @Column(name = "blob_id", length = 36, insertable = false, updatable = false)
+    private String blobId;
+
+    /**
+     * Key of the rendition data in the filesystem photo store (its SHA-256), null while it is in photo_blob
+     */
+    @Size(max = 64)
+    @Column(name = "storage_key", length = 64)
+    private String storageKey;
+
+    /**
+     * Encoded size in bytes
+     */
+    @NotNull
+    @Positive
+    @Column(name = "file_size", nullable = false, columnDefinition = "NUMBER(19,0)")
+    private Long fileSize;
+
+    /**
+     * MIME type of the encoded rendition (image/jpeg or image/png)
+     */
+    @NotBlank
+    @Size(max = 50)
+    @Column(name = "mime_type", nullable = false, length = 50)
+    private String mimeType;
+
+    /**
+     * SHA-256 of the encoded rendition (hex), used as a strong ETag
+     */
+    @Size(max = 64)
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    /**
+     * Rendition width in pixels
+     */
+    @Column(name = "width")
+    private Integer width;
+
+    /**
+     * Rendition height in pixels
+     */
+    @Column(name = "height")
+    private Integer height;
+
+    /**
+     * Encoded image data of a new rendition, until it is written to the photo storage
+     */
+    @Transient
+    private byte[] data;
+
+    /**
+     * True until the entity has been persisted or loaded, so save() persists instead of merging
+     */
+    @Transient
+    private boolean isNew = true;
+
+    // Default constructor
+    public PhotoRendition() {
+        this.id = UUID.randomUUID().toString();
+    }
+
+    // Constructor with required fields
+    public PhotoRendition(String photoId, Integer sizeClass, byte[] data, String mimeType, Integer width, Integer height) {
+        this();
+        this.photoId = photoId;
+        this.sizeClass = sizeClass;
+        this.data = data;
+        this.fileSize = (long) data.length;
+        this.mimeType = mimeType;
+        this.width = width;
+        this.height = height;
+    }
+
+    // Getters and Setters
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getPhotoId() {
+        return photoId;
+    }
+
+    public void setPhotoId(String photoId) {
+        this.photoId = photoId;
+    }
+
+    public Integer getSizeClass() {
+        return sizeClass;
+    }
+
+    public void setSizeClass(Integer sizeClass) {
+        this.sizeClass = sizeClass;
+    }
+
+    public PhotoBlob getBlob() {
+        return blob;
+    }
+
+    public void setBlob(PhotoBlob blob) {
+        this.blob = blob;
+        this.blobId = blob != null ? blob.getId() : null;
+    }
+
+    public String getBlobId() {
+        return blobId;
+    }
+
+    public String getStorageKey() {
+        return storageKey;
+    }
+
+    public void setStorageKey(String storageKey) {
+        this.storageKey = storageKey;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public Long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    public void setMimeType(String mimeType) {
+        this.mimeType = mimeType;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public Integer getWidth() {
+        return width;
+    }
+
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostPersist
+    @PostLoad
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    @Override
+    public String toString() {
+        return "PhotoRendition{" +
+                "id=" + id +
+                ", photoId=" + photoId +
+                ", sizeClass=" + sizeClass +
+                ", fileSize=" + fileSize +
+                ", mimeType='" + mimeType + '\'' +
+                ", width=" + width +
+                ", height=" + height +
+                '}';
+    }
+}
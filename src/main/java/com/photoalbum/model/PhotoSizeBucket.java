@@ -0,0 +1,59 @@
+package com.photoalbum.model;
+
+import javax.persistence.*;
+
+/**
+ * Number of photos whose file size falls in a {@link com.photoalbum.util.SizeBuckets} bucket,
+ * kept up to date by upload and delete and used to estimate size percentiles
+ */
+@Entity
+@Table(name = "photo_size_buckets")
+public class PhotoSizeBucket {
+
+    /**
+     * Bucket index (see SizeBuckets.bucketOf)
+     */
+    @Id
+    @Column(name = "bucket")
+    private Integer bucket;
+
+    /**
+     * Number of photos in the bucket
+     */
+    @Column(name = "photo_count", nullable = false)
+    private long photoCount;
+
+    // Default constructor
+    public PhotoSizeBucket() {
+    }
+
+    public PhotoSizeBucket(Integer bucket, long photoCount) {
+        this.bucket = bucket;
+        this.photoCount = photoCount;
+    }
+
+    // Getters and Setters
+    public Integer getBucket() {
+        return bucket;
+    }
+
+    public void setBucket(Integer bucket) {
+        this.bucket = bucket;
+    }
+
+    public long getPhotoCount() {
+        return photoCount;
+    }
+
+    public void setPhotoCount(long photoCount) {
+        this.photoCount = photoCount;
+    }
+
+    @Override
+    public String toString() {
+        return "PhotoSizeBucket{" +
+                "bucket=" + bucket +
+                ", photoCount=" + photoCount +
+                '}';
+    }
+}
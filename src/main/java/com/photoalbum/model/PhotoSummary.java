@@ -0,0 +1,24 @@
+package com.photoalbum.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Metadata-only projection of a photo used for gallery listings.
+ * Exposes only the scalar columns so the binary photo data is never loaded.
+ */
+public interface PhotoSummary {
+
+    String getId();
+
+    String getOriginalFileName();
+
+    Long getFileSize();
+
+    String getMimeType();
+
+    LocalDateTime getUploadedAt();
+
+    Integer getWidth();
+
+    Integer getHeight();
+}
@@ -0,0 +1,47 @@
+package com.photoalbum.model;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Marks a one-time job on the summary tables as done, e.g. the backfill from the photos
+ * table. Claiming the row with an INSERT also serializes instances running the job at once.
+ */
+@Entity
+@Table(name = "photo_summary_state")
+public class PhotoSummaryState {
+
+    /**
+     * Name of the job, e.g. backfill
+     */
+    @Id
+    @Column(name = "state_key", length = 30)
+    private String key;
+
+    /**
+     * Time the job was claimed
+     */
+    @Column(name = "completed_at", nullable = false)
+    private LocalDateTime completedAt;
+
+    // Default constructor
+    public PhotoSummaryState() {
+    }
+
+    // Getters and Setters
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
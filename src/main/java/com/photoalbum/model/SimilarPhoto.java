@@ -0,0 +1,26 @@
+package com.photoalbum.model;
+
+/**
+ * A photo that looks similar to another one, and how similar
+ */
+public class SimilarPhoto {
+
+    private final PhotoSummary photo;
+    private final int distance;
+
+    public SimilarPhoto(PhotoSummary photo, int distance) {
+        this.photo = photo;
+        this.distance = distance;
+    }
+
+    public PhotoSummary getPhoto() {
+        return photo;
+    }
+
+    /**
+     * Number of differing bits between the perceptual hashes (0 for identical-looking images)
+     */
+    public int getDistance() {
+        return distance;
+    }
+}
@@ -0,0 +1,85 @@
+package com.photoalbum.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * An uploaded file copied to a local staging file, together with the size, SHA-256 and
+ * sniffed MIME type computed while copying. Closing it deletes the staging file.
+ */
+public class StagedUpload implements Closeable {
+
+    private final Path path;
+    private final String originalFileName;
+    private final String declaredContentType;
+    private final String sniffedMimeType;
+    private final long size;
+    private final String contentHash;
+
+    public StagedUpload(Path path, String originalFileName, String declaredContentType,
+                        String sniffedMimeType, long size, String contentHash) {
+        this.path = path;
+        this.originalFileName = originalFileName;
+        this.declaredContentType = declaredContentType;
+        this.sniffedMimeType = sniffedMimeType;
+        this.size = size;
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * Open a new stream over the staged content
+     */
+    public InputStream openStream() throws IOException {
+        return Files.newInputStream(path);
+    }
+
+    // Getters
+    public Path getPath() {
+        return path;
+    }
+
+    public String getOriginalFileName() {
+        return originalFileName;
+    }
+
+    public String getDeclaredContentType() {
+        return declaredContentType;
+    }
+
+    /**
+     * MIME type detected from the file signature, or null if the format is not recognized
+     */
+    public String getSniffedMimeType() {
+        return sniffedMimeType;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * SHA-256 of the content (hex)
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    @Override
+    public void close() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Override
+    public String toString() {
+        return "StagedUpload{" +
+                "path=" + path +
+                ", originalFileName='" + originalFileName + '\'' +
+                ", sniffedMimeType='" + sniffedMimeType + '\'' +
+                ", size=" + size +
+                ", contentHash='" + contentHash + '\'' +
+                '}';
+    }
+}
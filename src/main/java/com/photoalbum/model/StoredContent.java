@@ -0,0 +1,32 @@
+package com.photoalbum.model;
+
+/**
+ * A photo or rendition whose encoded bytes are kept in a photo storage backend:
+ * either a photo_blob row (blob ID) or a file in the content-addressed store (storage key)
+ */
+public interface StoredContent {
+
+    String getId();
+
+    Long getFileSize();
+
+    /**
+     * SHA-256 of the data (hex), used to store identical data once
+     */
+    String getContentHash();
+
+    String getBlobId();
+
+    void setBlob(PhotoBlob blob);
+
+    String getStorageKey();
+
+    void setStorageKey(String storageKey);
+
+    /**
+     * Whether the data is stored in any backend
+     */
+    default boolean hasData() {
+        return getBlobId() != null || getStorageKey() != null;
+    }
+}
@@ -0,0 +1,80 @@
+package com.photoalbum.model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An upload accepted for background processing: its files are staged, then decoded and saved
+ * by the upload worker pool while the client polls the job's status
+ */
+public class UploadJob {
+
+    public enum Status {
+        /** Waiting for an upload worker */
+        QUEUED,
+        /** Files are being decoded and saved */
+        PROCESSING,
+        /** All files are processed; the results are available */
+        COMPLETED
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final int totalFiles;
+    private final AtomicInteger processedFiles = new AtomicInteger();
+    private volatile Status status = Status.QUEUED;
+    private volatile List<UploadResult> results = Collections.<UploadResult>emptyList();
+    private volatile long completedAt;
+
+    public UploadJob(int totalFiles) {
+        this.totalFiles = totalFiles;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getTotalFiles() {
+        return totalFiles;
+    }
+
+    /**
+     * Number of files decoded (or rejected) so far; saving happens once all are processed
+     */
+    public int getProcessedFiles() {
+        return processedFiles.get();
+    }
+
+    /**
+     * One result per file, in upload order; empty until the job is completed
+     */
+    public List<UploadResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Time the job completed (System.currentTimeMillis()), 0 while it is running
+     */
+    public long getCompletedAt() {
+        return completedAt;
+    }
+
+    public void started() {
+        status = Status.PROCESSING;
+    }
+
+    public void fileProcessed() {
+        processedFiles.incrementAndGet();
+    }
+
+    public void completed(List<UploadResult> results) {
+        this.results = Collections.unmodifiableList(results);
+        this.completedAt = System.currentTimeMillis();
+        this.status = Status.COMPLETED;
+    }
+}
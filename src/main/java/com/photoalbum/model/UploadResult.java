@@ -9,6 +9,11 @@ public class UploadResult {
     private String errorMessage;
     private String photoId;
 
+    /**
+     * The saved photo (metadata only), so callers need not reload it
+     */
+    private Photo photo;
+
     // Default constructor
     public UploadResult() {
     }
@@ -62,6 +67,14 @@ public void setPhotoId(String photoId) {
         this.photoId = photoId;
     }
 
+    public Photo getPhoto() {
+        return photo;
+    }
+
+    public void setPhoto(Photo photo) {
+        this.photo = photo;
+    }
+
     @Override
     public String toString() {
         return "UploadResult{" +
@@ -0,0 +1,46 @@
+package com.photoalbum.repository;
+
+import com.photoalbum.model.AlbumVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * Repository interface for the shared album version row
+ */
+@Repository
+public interface AlbumVersionRepository extends JpaRepository<AlbumVersion, Integer> {
+
+    /**
+     * Read the album version
+     * @return The version, empty if the row does not exist yet
+     */
+    @Query("SELECT v.version FROM AlbumVersion v WHERE v.id = 1")
+    Optional<Long> findVersion();
+
+    /**
+     * Create the version row unless it exists. Concurrent creators fail with a
+     * DataIntegrityViolationException.
+     * @param initial Initial version
+     * @return Number of rows inserted
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO ALBUM_VERSION (ID, VERSION) SELECT 1, :initial FROM DUAL " +
+                   "WHERE NOT EXISTS (SELECT 1 FROM ALBUM_VERSION WHERE ID = 1)",
+           nativeQuery = true)
+    int create(@Param("initial") long initial);
+
+    /**
+     * Increment the album version
+     * @return Number of rows changed, 0 if the row does not exist yet
+     */
+    @Modifying
+    @Query(value = "UPDATE ALBUM_VERSION SET VERSION = VERSION + 1 WHERE ID = 1", nativeQuery = true)
+    int increment();
+}
@@ -0,0 +1,71 @@
+package com.photoalbum.repository;
+
+import com.photoalbum.model.PhotoBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for PhotoBlob entity operations
+ */
+@Repository
+public interface PhotoBlobRepository extends JpaRepository<PhotoBlob, String>, PhotoBlobRepositoryCustom {
+
+    /**
+     * Find the photo data rows with the given contents (unique index lookups)
+     * @param contentHashes SHA-256 of the data (hex)
+     * @return Content hash and blob ID of the data already stored
+     */
+    @Query("SELECT b.contentHash, b.id FROM PhotoBlob b WHERE b.contentHash IN :contentHashes")
+    List<Object[]> findIdsByContentHashes(@Param("contentHashes") Collection<String> contentHashes);
+
+    /**
+     * Find which of the given photo data rows exist
+     * @param ids The blob IDs
+     * @return IDs of the existing rows
+     */
+    @Query("SELECT b.id FROM PhotoBlob b WHERE b.id IN :ids")
+    List<String> findExistingIds(@Param("ids") Collection<String> ids);
+
+    /**
+     * Add references to photo data rows. The rows stay locked until the transaction ends,
+     * so a concurrent delete of the last other reference waits for it.
+     * @param ids The blob IDs
+     * @param references Number of references to add to each row
+     * @return Number of rows updated, fewer than the IDs if rows were deleted in the meantime
+     */
+    @Modifying
+    @Query("UPDATE PhotoBlob b SET b.refCount = b.refCount + :references WHERE b.id IN :ids")
+    int addReferences(@Param("ids") Collection<String> ids, @Param("references") int references);
+
+    /**
+     * Remove a reference from a photo data row
+     * @param id The blob ID
+     * @return Number of rows updated
+     */
+    @Modifying
+    @Query("UPDATE PhotoBlob b SET b.refCount = b.refCount - 1 WHERE b.id = :id")
+    int removeReference(@Param("id") String id);
+
+    /**
+     * Find the photo data rows among the given ones that are no longer referenced
+     * @param ids The blob IDs
+     * @return IDs of the rows whose reference count dropped to zero
+     */
+    @Query("SELECT b.id FROM PhotoBlob b WHERE b.id IN :ids AND b.refCount <= 0")
+    List<String> findUnreferencedIds(@Param("ids") Collection<String> ids);
+
+    /**
+     * Delete photo data rows by ID without loading their LOBs
+     * @param ids The blob IDs
+     * @return Number of rows deleted
+     */
+    @Modifying
+    @Query("DELETE FROM PhotoBlob b WHERE b.id IN :ids")
+    int deleteBlobsByIds(@Param("ids") Collection<String> ids);
+}
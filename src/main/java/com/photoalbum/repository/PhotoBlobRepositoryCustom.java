@@ -0,0 +1,20 @@
+package com.photoalbum.repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Custom PhotoBlob operations that work on the JDBC LOB stream directly
+ */
+public interface PhotoBlobRepositoryCustom {
+
+    /**
+     * Open a stream over the photo data of a blob row without materializing it in memory.
+     * The stream holds its own database connection until it is closed.
+     * @param id The blob ID
+     * @param offset Number of leading bytes to skip (0-based)
+     * @return Stream positioned at the requested offset
+     * @throws IOException if the blob does not exist or cannot be read
+     */
+    InputStream openDataStream(String id, long offset) throws IOException;
+}
@@ -0,0 +1,102 @@
+package com.photoalbum.repository;
+
+import org.springframework.jdbc.support.JdbcUtils;
+
+import javax.sql.DataSource;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Blob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * JDBC implementation of the streaming PhotoBlob operations
+ */
+public class PhotoBlobRepositoryImpl implements PhotoBlobRepositoryCustom {
+
+    private static final String SELECT_DATA_SQL = "SELECT PHOTO_DATA FROM PHOTO_BLOB WHERE ID = ?";
+
+    private final DataSource dataSource;
+
+    public PhotoBlobRepositoryImpl(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public InputStream openDataStream(String id, long offset) throws IOException {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = dataSource.getConnection();
+            statement = connection.prepareStatement(SELECT_DATA_SQL);
+            statement.setString(1, id);
+            resultSet = statement.executeQuery();
+            if (!resultSet.next()) {
+                throw new FileNotFoundException("Photo data " + id + " not found");
+            }
+
+            Blob blob = resultSet.getBlob(1);
+            long length = blob.length();
+            InputStream data = offset > 0
+                    ? blob.getBinaryStream(Math.min(offset, length) + 1, Math.max(length - offset, 0))
+                    : blob.getBinaryStream();
+            return new BlobInputStream(data, blob, resultSet, statement, connection);
+        } catch (SQLException ex) {
+            JdbcUtils.closeResultSet(resultSet);
+            JdbcUtils.closeStatement(statement);
+            JdbcUtils.closeConnection(connection);
+            throw new IOException("Error opening photo data " + id, ex);
+        } catch (IOException | RuntimeException ex) {
+            JdbcUtils.closeResultSet(resultSet);
+            JdbcUtils.closeStatement(statement);
+            JdbcUtils.closeConnection(connection);
+            throw ex;
+        }
+    }
+
+    /**
+     * LOB stream that releases the blob locator and its JDBC resources when closed
+     */
+    private static class BlobInputStream extends FilterInputStream {
+
+        private final Blob blob;
+        private final ResultSet resultSet;
+        private final PreparedStatement statement;
+        private final Connection connection;
+        private boolean closed;
+
+        BlobInputStream(InputStream in, Blob blob, ResultSet resultSet,
+                        PreparedStatement statement, Connection connection) {
+            super(in);
+            this.blob = blob;
+            this.resultSet = resultSet;
+            this.statement = statement;
+            this.connection = connection;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                super.close();
+            } finally {
+                try {
+                    blob.free();
+                } catch (SQLException | AbstractMethodError ex) {
+                    // Freeing the locator is best effort; closing the connection releases it anyway
+                }
+                JdbcUtils.closeResultSet(resultSet);
+                JdbcUtils.closeStatement(statement);
+                JdbcUtils.closeConnection(connection);
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.photoalbum.repository;
+
+import com.photoalbum.model.PhotoMimeStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Repository interface for the per-MIME-type photo totals
+ */
+@Repository
+public interface PhotoMimeStatsRepository extends JpaRepository<PhotoMimeStats, String> {
+
+    /**
+     * Find the MIME types that have photos
+     * @return Totals per MIME type, by MIME type
+     */
+    @Query("SELECT s FROM PhotoMimeStats s WHERE s.photoCount > 0 ORDER BY s.mimeType")
+    List<PhotoMimeStats> findNonEmpty();
+
+    /**
+     * Create the row of a MIME type with zero totals unless it exists, in its own transaction.
+     * Concurrent creators of the same MIME type fail with a DataIntegrityViolationException.
+     * @param mimeType MIME type
+     * @return Number of rows inserted
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO PHOTO_MIME_STATS (MIME_TYPE, PHOTO_COUNT, TOTAL_BYTES) " +
+                   "SELECT :mimeType, 0, 0 FROM DUAL " +
+                   "WHERE NOT EXISTS (SELECT 1 FROM PHOTO_MIME_STATS WHERE MIME_TYPE = :mimeType)",
+           nativeQuery = true)
+    int createMimeType(@Param("mimeType") String mimeType);
+
+    /**
+     * Add to the totals of a MIME type, creating its row if needed, in a single statement.
+     * Rows should be created beforehand with {@link #createMimeType}, as with the month counts.
+     * @param mimeType MIME type
+     * @param count Number of photos added (negative for deletes)
+     * @param bytes Bytes added (negative for deletes)
+     * @return Number of rows changed
+     */
+    @Modifying
+    @Query(value = "MERGE INTO PHOTO_MIME_STATS S " +
+                   "USING (SELECT CAST(:mimeType AS VARCHAR2(50)) AS MIME_TYPE FROM DUAL) T " +
+                   "ON (S.MIME_TYPE = T.MIME_TYPE) " +
+                   "WHEN MATCHED THEN UPDATE SET S.PHOTO_COUNT = S.PHOTO_COUNT + :count, " +
+                   "S.TOTAL_BYTES = S.TOTAL_BYTES + :bytes " +
+                   "WHEN NOT MATCHED THEN INSERT (MIME_TYPE, PHOTO_COUNT, TOTAL_BYTES) " +
+                   "VALUES (:mimeType, :count, :bytes)",
+           nativeQuery = true)
+    int addToMimeType(@Param("mimeType") String mimeType, @Param("count") long count, @Param("bytes") long bytes);
+
+    /**
+     * Set the totals of a MIME type from the photos table in one statement (used to backfill)
+     * @param mimeType MIME type
+     * @return Number of rows changed
+     */
+    @Modifying
+    @Query(value = "UPDATE PHOTO_MIME_STATS SET " +
+                   "PHOTO_COUNT = (SELECT COUNT(*) FROM PHOTOS WHERE MIME_TYPE = :mimeType), " +
+                   "TOTAL_BYTES = (SELECT COALESCE(SUM(FILE_SIZE), 0) FROM PHOTOS WHERE MIME_TYPE = :mimeType) " +
+                   "WHERE MIME_TYPE = :mimeType",
+           nativeQuery = true)
+    int recountMimeType(@Param("mimeType") String mimeType);
+}
@@ -0,0 +1,73 @@
+package com.photoalbum.repository;
+
+import com.photoalbum.model.PhotoMonthCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository interface for the month histogram of the photo archive
+ */
+@Repository
+public interface PhotoMonthCountRepository extends JpaRepository<PhotoMonthCount, String> {
+
+    /**
+     * Find the months that have photos, newest first
+     * @return Month counts with at least one photo
+     */
+    @Query("SELECT c FROM PhotoMonthCount c WHERE c.photoCount > 0 ORDER BY c.month DESC")
+    List<PhotoMonthCount> findNonEmptyOrderByMonthDesc();
+
+    /**
+     * Create the row of a month with a zero count unless it exists, in its own transaction.
+     * Concurrent creators of the same month fail with a DataIntegrityViolationException.
+     * @param month Month in yyyy-MM format
+     * @return Number of rows inserted
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO PHOTO_MONTH_COUNTS (MONTH_KEY, PHOTO_COUNT) " +
+                   "SELECT :month, 0 FROM DUAL " +
+                   "WHERE NOT EXISTS (SELECT 1 FROM PHOTO_MONTH_COUNTS WHERE MONTH_KEY = :month)",
+           nativeQuery = true)
+    int createMonth(@Param("month") String month);
+
+    /**
+     * Add to the count of a month, creating its row if needed, in a single statement. Rows
+     * should be created beforehand with {@link #createMonth}: when two transactions both take
+     * the insert branch for a new month, one fails on the primary key.
+     * @param month Month in yyyy-MM format
+     * @param delta Number of photos added (negative for deletes)
+     * @return Number of rows changed
+     */
+    @Modifying
+    @Query(value = "MERGE INTO PHOTO_MONTH_COUNTS C " +
+                   "USING (SELECT CAST(:month AS VARCHAR2(7)) AS MONTH_KEY FROM DUAL) S ON (C.MONTH_KEY = S.MONTH_KEY) " +
+                   "WHEN MATCHED THEN UPDATE SET C.PHOTO_COUNT = C.PHOTO_COUNT + :delta " +
+                   "WHEN NOT MATCHED THEN INSERT (MONTH_KEY, PHOTO_COUNT) VALUES (:month, :delta)",
+           nativeQuery = true)
+    int addToMonth(@Param("month") String month, @Param("delta") long delta);
+
+    /**
+     * Set the count of a month to the number of photos uploaded in it (used to backfill).
+     * The count is read and written by one statement, so it is not skewed by uploads running
+     * at the same time: their own MERGE adds them once they commit.
+     * @param month Month in yyyy-MM format
+     * @param start Start of the month
+     * @param end Start of the next month
+     * @return Number of rows changed
+     */
+    @Modifying
+    @Query(value = "UPDATE PHOTO_MONTH_COUNTS SET PHOTO_COUNT = " +
+                   "(SELECT COUNT(*) FROM PHOTOS WHERE UPLOADED_AT >= :start AND UPLOADED_AT < :end) " +
+                   "WHERE MONTH_KEY = :month",
+           nativeQuery = true)
+    int recountMonth(@Param("month") String month, @Param("start") LocalDateTime start,
+                     @Param("end") LocalDateTime end);
+}
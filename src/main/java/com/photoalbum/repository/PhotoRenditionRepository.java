@@ -0,0 +1,59 @@
+package com.photoalbum.repository;
+
+import com.photoalbum.model.PhotoRendition;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository interface for PhotoRendition entity operations
+ */
+@Repository
+public interface PhotoRenditionRepository extends JpaRepository<PhotoRendition, String> {
+
+    /**
+     * Find the rendition of a photo for a size class
+     * @param photoId The photo ID
+     * @param sizeClass The rendition width, e.g. 320
+     * @return Rendition metadata if it was generated
+     */
+    Optional<PhotoRendition> findByPhotoIdAndSizeClass(String photoId, Integer sizeClass);
+
+    /**
+     * Find all renditions of a photo (metadata only; the data is loaded on access)
+     * @param photoId The photo ID
+     * @return Renditions of the photo
+     */
+    List<PhotoRendition> findByPhotoId(String photoId);
+
+    /**
+     * Whether any rendition references a file in the filesystem photo store
+     * @param storageKey The storage key (content hash)
+     * @return True if the file is still in use
+     */
+    boolean existsByStorageKey(String storageKey);
+
+    /**
+     * Find the IDs of renditions whose data is still in the photo_blob table, in ID order
+     * @param afterId Only IDs greater than this one (" " for the first batch; "" is NULL in Oracle)
+     * @param pageable Batch size (the page number must be 0)
+     * @return Rendition IDs
+     */
+    @Query("SELECT r.id FROM PhotoRendition r WHERE r.blobId IS NOT NULL AND r.id > :afterId ORDER BY r.id")
+    List<String> findIdsStoredInDatabase(@Param("afterId") String afterId, Pageable pageable);
+
+    /**
+     * Delete all renditions of a photo
+     * @param photoId The photo ID
+     * @return Number of rows deleted
+     */
+    @Modifying
+    @Query("DELETE FROM PhotoRendition r WHERE r.photoId = :photoId")
+    int deleteByPhotoId(@Param("photoId") String photoId);
+}
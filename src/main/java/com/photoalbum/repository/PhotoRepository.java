@@ -1,12 +1,16 @@
 package com.photoalbum.repository;
 
 import com.photoalbum.model.Photo;
+import com.photoalbum.model.PhotoNeighbors;
+import com.photoalbum.model.PhotoSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -16,86 +20,134 @@
 public interface PhotoRepository extends JpaRepository<Photo, String> {
 
     /**
-     * Find all photos ordered by upload date (newest first)
-     * @return List of photos ordered by upload date descending
+     * Find metadata of the newest photos (first gallery page).
+     * Only scalar columns are selected so no photo data is read.
+     * @param pageable Page size (the page number must be 0)
+     * @return Photo summaries ordered by (uploaded_at, id) descending
      */
-    @Query(value = "SELECT ID, ORIGINAL_FILE_NAME, PHOTO_DATA, STORED_FILE_NAME, FILE_PATH, FILE_SIZE, " +
-                   "MIME_TYPE, UPLOADED_AT, WIDTH, HEIGHT " +
-                   "FROM PHOTOS " +
-                   "ORDER BY UPLOADED_AT DESC", 
-           nativeQuery = true)
-    List<Photo> findAllOrderByUploadedAtDesc();
+    @Query("SELECT p.id AS id, p.originalFileName AS originalFileName, p.fileSize AS fileSize, " +
+           "p.mimeType AS mimeType, p.uploadedAt AS uploadedAt, p.width AS width, p.height AS height " +
+           "FROM Photo p " +
+           "ORDER BY p.uploadedAt DESC, p.id DESC")
+    List<PhotoSummary> findSummaries(Pageable pageable);
 
     /**
-     * Find photos uploaded before a specific photo (for navigation)
-     * @param uploadedAt The upload timestamp to compare against
-     * @return List of photos uploaded before the given timestamp
+     * Find metadata of the photos after a keyset position in gallery order (next gallery page).
+     * Reads a range of idx_photos_uploaded_at, so deep pages cost the same as the first one.
+     * @param uploadedAt Upload timestamp of the last photo of the previous page
+     * @param id ID of the last photo of the previous page
+     * @param pageable Page size (the page number must be 0)
+     * @return Photo summaries ordered by (uploaded_at, id) descending
      */
-    @Query(value = "SELECT * FROM (" +
-                   "SELECT ID, ORIGINAL_FILE_NAME, PHOTO_DATA, STORED_FILE_NAME, FILE_PATH, FILE_SIZE, " +
-                   "MIME_TYPE, UPLOADED_AT, WIDTH, HEIGHT, ROWNUM as RN " +
-                   "FROM PHOTOS " +
-                   "WHERE UPLOADED_AT < :uploadedAt " +
-                   "ORDER BY UPLOADED_AT DESC" +
-                   ") WHERE ROWNUM <= 10", 
-           nativeQuery = true)
-    List<Photo> findPhotosUploadedBefore(@Param("uploadedAt") LocalDateTime uploadedAt);
+    @Query("SELECT p.id AS id, p.originalFileName AS originalFileName, p.fileSize AS fileSize, " +
+           "p.mimeType AS mimeType, p.uploadedAt AS uploadedAt, p.width AS width, p.height AS height " +
+           "FROM Photo p " +
+           "WHERE p.uploadedAt <= :uploadedAt AND (p.uploadedAt < :uploadedAt OR p.id < :id) " +
+           "ORDER BY p.uploadedAt DESC, p.id DESC")
+    List<PhotoSummary> findSummariesBefore(@Param("uploadedAt") LocalDateTime uploadedAt,
+                                           @Param("id") String id, Pageable pageable);
 
     /**
-     * Find photos uploaded after a specific photo (for navigation)
-     * @param uploadedAt The upload timestamp to compare against
-     * @return List of photos uploaded after the given timestamp
+     * Find the IDs of the photos just before and after a photo in (uploaded_at, id) order.
+     * Each side is a keyset lookup of a single row on idx_photos_uploaded_at, so the cost
+     * does not depend on the number of photos.
+     * @param uploadedAt Upload timestamp of the photo
+     * @param id ID of the photo (tie-breaker for equal timestamps)
+     * @return Previous (older) and next (newer) photo IDs, null at either end
      */
-    @Query(value = "SELECT ID, ORIGINAL_FILE_NAME, PHOTO_DATA, STORED_FILE_NAME, " +
-                   "NVL(FILE_PATH, 'default_path') as FILE_PATH, FILE_SIZE, " +
-                   "MIME_TYPE, UPLOADED_AT, WIDTH, HEIGHT " +
-                   "FROM PHOTOS " +
-                   "WHERE UPLOADED_AT > :uploadedAt " +
-                   "ORDER BY UPLOADED_AT ASC", 
+    @Query(value = "SELECT " +
+                   "(SELECT ID FROM PHOTOS " +
+                   "WHERE UPLOADED_AT <= :uploadedAt AND (UPLOADED_AT < :uploadedAt OR ID < :id) " +
+                   "ORDER BY UPLOADED_AT DESC, ID DESC FETCH FIRST 1 ROWS ONLY) AS previousId, " +
+                   "(SELECT ID FROM PHOTOS " +
+                   "WHERE UPLOADED_AT >= :uploadedAt AND (UPLOADED_AT > :uploadedAt OR ID > :id) " +
+                   "ORDER BY UPLOADED_AT ASC, ID ASC FETCH FIRST 1 ROWS ONLY) AS nextId " +
+                   "FROM DUAL",
            nativeQuery = true)
-    List<Photo> findPhotosUploadedAfter(@Param("uploadedAt") LocalDateTime uploadedAt);
+    PhotoNeighbors findNeighbors(@Param("uploadedAt") LocalDateTime uploadedAt, @Param("id") String id);
 
     /**
-     * Find photos by upload month using Oracle TO_CHAR function - Oracle specific
-     * @param year The year to search for
-     * @param month The month to search for
-     * @return List of photos uploaded in the specified month
+     * Find metadata of the photos uploaded in a time range, newest first.
+     * A half-open range on uploaded_at, so the lookup is a range scan of idx_photos_uploaded_at.
+     * @param start Inclusive start of the range
+     * @param end Exclusive end of the range
+     * @return Photo summaries ordered by (uploaded_at, id) descending
      */
-    @Query(value = "SELECT ID, ORIGINAL_FILE_NAME, PHOTO_DATA, STORED_FILE_NAME, FILE_PATH, FILE_SIZE, " +
-                   "MIME_TYPE, UPLOADED_AT, WIDTH, HEIGHT " +
-                   "FROM PHOTOS " +
-                   "WHERE TO_CHAR(UPLOADED_AT, 'YYYY') = :year " +
-                   "AND TO_CHAR(UPLOADED_AT, 'MM') = :month " +
-                   "ORDER BY UPLOADED_AT DESC", 
-           nativeQuery = true)
-    List<Photo> findPhotosByUploadMonth(@Param("year") String year, @Param("month") String month);
+    @Query("SELECT p.id AS id, p.originalFileName AS originalFileName, p.fileSize AS fileSize, " +
+           "p.mimeType AS mimeType, p.uploadedAt AS uploadedAt, p.width AS width, p.height AS height " +
+           "FROM Photo p " +
+           "WHERE p.uploadedAt >= :start AND p.uploadedAt < :end " +
+           "ORDER BY p.uploadedAt DESC, p.id DESC")
+    List<PhotoSummary> findSummariesUploadedBetween(@Param("start") LocalDateTime start,
+                                                    @Param("end") LocalDateTime end);
 
     /**
-     * Get paginated photos using Oracle ROWNUM - Oracle specific pagination
-     * @param startRow Starting row number (1-based)
-     * @param endRow Ending row number
-     * @return List of photos within the specified row range
+     * Find metadata of the largest photos, largest first.
+     * Reads the top of idx_photos_file_size, so the cost depends only on the page size.
+     * @param pageable Number of photos (the page number must be 0)
+     * @return Photo summaries ordered by file size descending
      */
-    @Query(value = "SELECT * FROM (" +
-                   "SELECT P.*, ROWNUM as RN FROM (" +
-                   "SELECT ID, ORIGINAL_FILE_NAME, PHOTO_DATA, STORED_FILE_NAME, FILE_PATH, FILE_SIZE, " +
-                   "MIME_TYPE, UPLOADED_AT, WIDTH, HEIGHT " +
-                   "FROM PHOTOS ORDER BY UPLOADED_AT DESC" +
-                   ") P WHERE ROWNUM <= :endRow" +
-                   ") WHERE RN >= :startRow", 
-           nativeQuery = true)
-    List<Photo> findPhotosWithPagination(@Param("startRow") int startRow, @Param("endRow") int endRow);
+    @Query("SELECT p.id AS id, p.originalFileName AS originalFileName, p.fileSize AS fileSize, " +
+           "p.mimeType AS mimeType, p.uploadedAt AS uploadedAt, p.width AS width, p.height AS height " +
+           "FROM Photo p " +
+           "ORDER BY p.fileSize DESC, p.id DESC")
+    List<PhotoSummary> findLargestSummaries(Pageable pageable);
 
     /**
-     * Find photos with file size statistics using Oracle analytical functions - Oracle specific
-     * @return List of photos with running totals and rankings
+     * Find the file sizes of all photos (full scan, used only to backfill the size histogram)
+     * @return File size of every photo
      */
-    @Query(value = "SELECT ID, ORIGINAL_FILE_NAME, PHOTO_DATA, STORED_FILE_NAME, FILE_PATH, FILE_SIZE, " +
-                   "MIME_TYPE, UPLOADED_AT, WIDTH, HEIGHT, " +
-                   "RANK() OVER (ORDER BY FILE_SIZE DESC) as SIZE_RANK, " +
-                   "SUM(FILE_SIZE) OVER (ORDER BY UPLOADED_AT ROWS UNBOUNDED PRECEDING) as RUNNING_TOTAL " +
-                   "FROM PHOTOS " +
-                   "ORDER BY UPLOADED_AT DESC", 
-           nativeQuery = true)
-    List<Object[]> findPhotosWithStatistics();
-}
\ No newline at end of file
+    @Query("SELECT p.fileSize FROM Photo p")
+    List<Long> findAllFileSizes();
+
+    /**
+     * Find the MIME types of all photos (full scan, used only to backfill the MIME totals)
+     * @return Distinct MIME types
+     */
+    @Query("SELECT DISTINCT p.mimeType FROM Photo p")
+    List<String> findMimeTypes();
+
+    /**
+     * Find the months photos were uploaded in (full scan, used only to backfill the month histogram)
+     * @return Distinct months in yyyy-MM format
+     */
+    @Query(value = "SELECT DISTINCT TO_CHAR(UPLOADED_AT, 'YYYY-MM') FROM PHOTOS", nativeQuery = true)
+    List<String> findUploadMonths();
+
+    /**
+     * Whether any photo references a file in the filesystem photo store
+     * @param storageKey The storage key (content hash)
+     * @return True if the file is still in use
+     */
+    boolean existsByStorageKey(String storageKey);
+
+    /**
+     * Find the IDs of photos whose data is still in the photo_blob table, in ID order
+     * @param afterId Only IDs greater than this one (" " for the first batch; "" is NULL in Oracle)
+     * @param pageable Batch size (the page number must be 0)
+     * @return Photo IDs
+     */
+    @Query("SELECT p.id FROM Photo p WHERE p.blobId IS NOT NULL AND p.id > :afterId ORDER BY p.id")
+    List<String> findIdsStoredInDatabase(@Param("afterId") String afterId, Pageable pageable);
+
+    /**
+     * Find the perceptual hashes of photos, in ID order (used to build the similarity index)
+     * @param afterId Only IDs greater than this one (" " for the first batch; "" is NULL in Oracle)
+     * @param pageable Batch size (the page number must be 0)
+     * @return Rows of {id, perceptualHash}
+     */
+    @Query("SELECT p.id, p.perceptualHash FROM Photo p " +
+           "WHERE p.perceptualHash IS NOT NULL AND p.id > :afterId ORDER BY p.id")
+    List<Object[]> findPerceptualHashes(@Param("afterId") String afterId, Pageable pageable);
+
+    /**
+     * Find metadata of photos by ID
+     * @param ids Photo IDs
+     * @return Photo summaries, in no particular order
+     */
+    @Query("SELECT p.id AS id, p.originalFileName AS originalFileName, p.fileSize AS fileSize, " +
+           "p.mimeType AS mimeType, p.uploadedAt AS uploadedAt, p.width AS width, p.height AS height " +
+           "FROM Photo p " +
+           "WHERE p.id IN :ids")
+    List<PhotoSummary> findSummariesByIdIn(@Param("ids") Collection<String> ids);
+}
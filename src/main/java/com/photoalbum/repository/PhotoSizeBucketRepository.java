@@ -0,0 +1,68 @@
+package com.photoalbum.repository;
+
+import com.photoalbum.model.PhotoSizeBucket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Repository interface for the photo file size histogram
+ */
+@Repository
+public interface PhotoSizeBucketRepository extends JpaRepository<PhotoSizeBucket, Integer> {
+
+    /**
+     * Find the buckets that have photos, smallest sizes first
+     * @return Non-empty buckets in ascending order
+     */
+    @Query("SELECT b FROM PhotoSizeBucket b WHERE b.photoCount > 0 ORDER BY b.bucket")
+    List<PhotoSizeBucket> findNonEmptyOrderByBucket();
+
+    /**
+     * Create the row of a bucket with a zero count unless it exists, in its own transaction.
+     * Concurrent creators of the same bucket fail with a DataIntegrityViolationException.
+     * @param bucket Bucket index
+     * @return Number of rows inserted
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO PHOTO_SIZE_BUCKETS (BUCKET, PHOTO_COUNT) " +
+                   "SELECT :bucket, 0 FROM DUAL " +
+                   "WHERE NOT EXISTS (SELECT 1 FROM PHOTO_SIZE_BUCKETS WHERE BUCKET = :bucket)",
+           nativeQuery = true)
+    int createBucket(@Param("bucket") int bucket);
+
+    /**
+     * Add to the count of a bucket, creating its row if needed, in a single statement.
+     * Rows should be created beforehand with {@link #createBucket}, as with the month counts.
+     * @param bucket Bucket index
+     * @param delta Number of photos added (negative for deletes)
+     * @return Number of rows changed
+     */
+    @Modifying
+    @Query(value = "MERGE INTO PHOTO_SIZE_BUCKETS B " +
+                   "USING (SELECT CAST(:bucket AS NUMBER(10)) AS BUCKET FROM DUAL) S ON (B.BUCKET = S.BUCKET) " +
+                   "WHEN MATCHED THEN UPDATE SET B.PHOTO_COUNT = B.PHOTO_COUNT + :delta " +
+                   "WHEN NOT MATCHED THEN INSERT (BUCKET, PHOTO_COUNT) VALUES (:bucket, :delta)",
+           nativeQuery = true)
+    int addToBucket(@Param("bucket") int bucket, @Param("delta") long delta);
+
+    /**
+     * Set the count of a bucket from the photos table in one statement (used to backfill)
+     * @param bucket Bucket index
+     * @param lower Smallest size in the bucket
+     * @param upper Smallest size of the next bucket
+     * @return Number of rows changed
+     */
+    @Modifying
+    @Query(value = "UPDATE PHOTO_SIZE_BUCKETS SET PHOTO_COUNT = " +
+                   "(SELECT COUNT(*) FROM PHOTOS WHERE FILE_SIZE >= :lower AND FILE_SIZE < :upper) " +
+                   "WHERE BUCKET = :bucket",
+           nativeQuery = true)
+    int recountBucket(@Param("bucket") int bucket, @Param("lower") long lower, @Param("upper") long upper);
+}
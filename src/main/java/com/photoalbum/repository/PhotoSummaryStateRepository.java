@@ -0,0 +1,27 @@
+package com.photoalbum.repository;
+
+import com.photoalbum.model.PhotoSummaryState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository interface for the markers of one-time summary table jobs
+ */
+@Repository
+public interface PhotoSummaryStateRepository extends JpaRepository<PhotoSummaryState, String> {
+
+    /**
+     * Insert the marker of a job. Waits while another transaction holds an uncommitted
+     * marker of the same job, then fails with a DataIntegrityViolationException if that
+     * transaction committed.
+     * @param key Job name
+     * @return Number of rows inserted
+     */
+    @Modifying
+    @Query(value = "INSERT INTO PHOTO_SUMMARY_STATE (STATE_KEY, COMPLETED_AT) VALUES (:key, CURRENT_TIMESTAMP)",
+           nativeQuery = true)
+    int claim(@Param("key") String key);
+}
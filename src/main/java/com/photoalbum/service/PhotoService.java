@@ -1,9 +1,20 @@
 package com.photoalbum.service;
 
+import com.photoalbum.model.AlbumStatistics;
+import com.photoalbum.model.ImageTransform;
 import com.photoalbum.model.Photo;
+import com.photoalbum.model.PhotoMonthCount;
+import com.photoalbum.model.PhotoNeighbors;
+import com.photoalbum.model.PhotoPage;
+import com.photoalbum.model.PhotoRendition;
+import com.photoalbum.model.PhotoSummary;
+import com.photoalbum.model.SimilarPhoto;
+import com.photoalbum.model.UploadJob;
 import com.photoalbum.model.UploadResult;
+import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,10 +24,34 @@
 public interface PhotoService {
 
     /**
-     * Get all photos ordered by upload date (newest first)
-     * @return List of photos
+     * Get one page of photo metadata ordered by upload date (newest first)
+     * @param cursor Token from {@link PhotoPage#getNextCursor()}, or null for the first page
+     * @param limit Maximum number of photos in the page
+     * @return Photo summaries (no binary data) and the cursor of the next page
+     * @throws IllegalArgumentException if the cursor is malformed
      */
-    List<Photo> getAllPhotos();
+    PhotoPage getPhotoPage(String cursor, int limit);
+
+    /**
+     * Get the number of photos uploaded per month, newest month first.
+     * Read from a histogram maintained on upload and delete, not counted over the photos.
+     * @return Months with at least one photo
+     */
+    List<PhotoMonthCount> getMonthHistogram();
+
+    /**
+     * Get album statistics: totals, per-MIME-type totals, size percentiles and largest photos.
+     * Read from summary tables maintained on upload and delete, not computed over the photos.
+     * @return The statistics
+     */
+    AlbumStatistics getStatistics();
+
+    /**
+     * Get metadata for the photos uploaded in a month, newest first
+     * @param month The month
+     * @return Photo summaries (no binary data)
+     */
+    List<PhotoSummary> getPhotosByMonth(YearMonth month);
 
     /**
      * Get a specific photo by ID
@@ -25,6 +60,45 @@ public interface PhotoService {
      */
     Optional<Photo> getPhotoById(String id);
 
+    /**
+     * Get a streaming resource over the binary data of a photo.
+     * The data is read from the database only when the resource's stream is consumed.
+     * @param photo The photo whose data should be served
+     * @return Resource if the photo has data, empty otherwise
+     */
+    Optional<Resource> getPhotoData(Photo photo);
+
+    /**
+     * Get an on-demand resized copy of a photo, served from the disk transform cache.
+     * Concurrent requests for the same photo and parameters share a single resize.
+     * @param photo The photo to resize
+     * @param transform Requested size and fit
+     * @return Resource over the encoded result, empty if the photo cannot be decoded. It holds
+     *         the file open and is Closeable; close it once the response is written.
+     */
+    Optional<Resource> getTransformedPhoto(Photo photo, ImageTransform transform);
+
+    /**
+     * Configured rendition widths in ascending order; the first one is the gallery thumbnail
+     * @return Rendition widths in pixels
+     */
+    List<Integer> getRenditionWidths();
+
+    /**
+     * Get a pre-generated rendition of a photo
+     * @param photoId Photo ID
+     * @param width Rendition width, one of {@link #getRenditionWidths()}
+     * @return Rendition if one was generated, empty otherwise (e.g. the original is already smaller)
+     */
+    Optional<PhotoRendition> getRendition(String photoId, int width);
+
+    /**
+     * Get a streaming resource over the encoded data of a rendition
+     * @param rendition The rendition whose data should be served
+     * @return Resource if the rendition has data, empty otherwise
+     */
+    Optional<Resource> getRenditionData(PhotoRendition rendition);
+
     /**
      * Upload a photo file
      * @param file The uploaded file
@@ -32,6 +106,30 @@ public interface PhotoService {
      */
     UploadResult uploadPhoto(MultipartFile file);
 
+    /**
+     * Upload several photo files. Files are validated and decoded in parallel and the valid
+     * ones are saved together; each file still succeeds or fails on its own.
+     * @param files The uploaded files
+     * @return One upload result per file, in the same order
+     */
+    List<UploadResult> uploadPhotos(List<MultipartFile> files);
+
+    /**
+     * Accept several photo files for background processing. The files are validated and staged
+     * before this returns; decoding, rendition generation and saving run on the upload job pool.
+     * @param files The uploaded files
+     * @return The queued job, whose status reports progress and, once completed, one result per file
+     * @throws java.util.concurrent.RejectedExecutionException if too many upload jobs are queued
+     */
+    UploadJob submitUploads(List<MultipartFile> files);
+
+    /**
+     * Get an upload job accepted by {@link #submitUploads}
+     * @param id Job ID
+     * @return The job if it is queued, running or recently completed, empty otherwise
+     */
+    Optional<UploadJob> getUploadJob(String id);
+
     /**
      * Delete a photo by ID
      * @param id Photo ID
@@ -40,16 +138,26 @@ public interface PhotoService {
     boolean deletePhoto(String id);
 
     /**
-     * Get the previous photo (older) for navigation
-     * @param currentPhoto The current photo
-     * @return Previous photo if found, empty otherwise
+     * Find photos that look like a photo (e.g. resized or re-encoded copies), closest first.
+     * Looked up in an in-memory index of perceptual hashes, not by comparing with every photo.
+     * @param photo The photo to compare with
+     * @param maxDistance Maximum number of differing perceptual hash bits (out of 64)
+     * @param limit Maximum number of photos returned
+     * @return Similar photos, excluding the photo itself; empty if it has no perceptual hash
+     */
+    List<SimilarPhoto> getSimilarPhotos(Photo photo, int maxDistance, int limit);
+
+    /**
+     * Get the IDs of the photos before (older) and after (newer) a photo for navigation
+     * @param photo The current photo
+     * @return Previous and next photo IDs, null at either end of the album
      */
-    Optional<Photo> getPreviousPhoto(Photo currentPhoto);
+    PhotoNeighbors getNeighbors(Photo photo);
 
     /**
-     * Get the next photo (newer) for navigation
-     * @param currentPhoto The current photo
-     * @return Next photo if found, empty otherwise
+     * Get the current album version, which changes after every committed upload or delete.
+     * Pages rendered from album contents can be cached and revalidated by this version.
+     * @return Opaque version token
      */
-    Optional<Photo> getNextPhoto(Photo currentPhoto);
-}
\ No newline at end of file
+    String getAlbumVersion();
+}
@@ -0,0 +1,259 @@
+package com.photoalbum.service.impl;
+
+import com.photoalbum.model.AlbumStatistics;
+import com.photoalbum.model.Photo;
+import com.photoalbum.model.PhotoMimeStats;
+import com.photoalbum.model.PhotoMonthCount;
+import com.photoalbum.model.PhotoSizeBucket;
+import com.photoalbum.model.PhotoSummary;
+import com.photoalbum.repository.PhotoMimeStatsRepository;
+import com.photoalbum.repository.PhotoMonthCountRepository;
+import com.photoalbum.repository.PhotoRepository;
+import com.photoalbum.repository.PhotoSizeBucketRepository;
+import com.photoalbum.repository.PhotoSummaryStateRepository;
+import com.photoalbum.util.SizeBuckets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Summary tables derived from the photos table: the month histogram, the per-MIME-type
+ * totals and the file size histogram. They are updated in the uploading or deleting
+ * transaction, so reads never aggregate over the photos.
+ */
+@Component
+public class AlbumSummaries {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlbumSummaries.class);
+
+    /** Marker row of the one-time backfill */
+    private static final String BACKFILL = "backfill";
+
+    private final PhotoRepository photoRepository;
+    private final PhotoMonthCountRepository photoMonthCountRepository;
+    private final PhotoMimeStatsRepository photoMimeStatsRepository;
+    private final PhotoSizeBucketRepository photoSizeBucketRepository;
+    private final PhotoSummaryStateRepository photoSummaryStateRepository;
+    private final SharedAlbumVersion sharedAlbumVersion;
+    private final TransactionTemplate transactionTemplate;
+    private final int largestCount;
+
+    /** Keys whose summary rows are known to exist */
+    private final Set<String> createdMonths = ConcurrentHashMap.newKeySet();
+    private final Set<String> createdMimeTypes = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> createdBuckets = ConcurrentHashMap.newKeySet();
+
+    public AlbumSummaries(
+            PhotoRepository photoRepository,
+            PhotoMonthCountRepository photoMonthCountRepository,
+            PhotoMimeStatsRepository photoMimeStatsRepository,
+            PhotoSizeBucketRepository photoSizeBucketRepository,
+            PhotoSummaryStateRepository photoSummaryStateRepository,
+            SharedAlbumVersion sharedAlbumVersion,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.stats.largest-count}") int largestCount) {
+        this.photoRepository = photoRepository;
+        this.photoMonthCountRepository = photoMonthCountRepository;
+        this.photoMimeStatsRepository = photoMimeStatsRepository;
+        this.photoSizeBucketRepository = photoSizeBucketRepository;
+        this.photoSummaryStateRepository = photoSummaryStateRepository;
+        this.sharedAlbumVersion = sharedAlbumVersion;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.largestCount = largestCount;
+    }
+
+    /**
+     * Create the summary rows the photos will be counted into, each in its own short
+     * transaction, so that {@link #record} only updates existing rows. Two upload transactions
+     * creating the same new row with the MERGE would otherwise fail one of them on the primary
+     * key; here the loser of that race just finds the row created. Call before the transaction
+     * that records the photos.
+     * @param photos Photos about to be added
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void createRows(List<Photo> photos) {
+        sharedAlbumVersion.createRow();
+        for (Photo photo : photos) {
+            createRow(createdMonths, monthKey(photo.getUploadedAt()), photoMonthCountRepository::createMonth);
+            createRow(createdMimeTypes, photo.getMimeType(), photoMimeStatsRepository::createMimeType);
+            createRow(createdBuckets, SizeBuckets.bucketOf(photo.getFileSize()), photoSizeBucketRepository::createBucket);
+        }
+    }
+
+    private static <K> void createRow(Set<K> created, K key, Consumer<K> create) {
+        if (created.contains(key)) {
+            return;
+        }
+        try {
+            create.accept(key);
+        } catch (DataIntegrityViolationException ex) {
+            // Created by a concurrent transaction
+        } catch (DataAccessException ex) {
+            // The MERGE in record still creates the row
+            logger.warn("Could not create summary row {}", key, ex);
+            return;
+        }
+        created.add(key);
+    }
+
+    /**
+     * Count photos into the summaries (sign 1) or out of them (sign -1), and increment the
+     * shared album version. Rows are changed in key order so concurrent transactions lock
+     * them in the same order.
+     * @param photos Photos added or removed
+     * @param sign 1 for added photos, -1 for removed photos
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(List<Photo> photos, int sign) {
+        Map<String, Long> months = new TreeMap<String, Long>();
+        Map<String, long[]> mimeTypes = new TreeMap<String, long[]>();
+        Map<Integer, Long> buckets = new TreeMap<Integer, Long>();
+        for (Photo photo : photos) {
+            add(months, monthKey(photo.getUploadedAt()), 1);
+            long[] totals = mimeTypes.get(photo.getMimeType());
+            if (totals == null) {
+                totals = new long[2];
+                mimeTypes.put(photo.getMimeType(), totals);
+            }
+            totals[0]++;
+            totals[1] += photo.getFileSize();
+            add(buckets, SizeBuckets.bucketOf(photo.getFileSize()), 1);
+        }
+
+        for (Map.Entry<String, Long> month : months.entrySet()) {
+            photoMonthCountRepository.addToMonth(month.getKey(), sign * month.getValue());
+        }
+        for (Map.Entry<String, long[]> mimeType : mimeTypes.entrySet()) {
+            photoMimeStatsRepository.addToMimeType(mimeType.getKey(),
+                sign * mimeType.getValue()[0], sign * mimeType.getValue()[1]);
+        }
+        for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+            photoSizeBucketRepository.addToBucket(bucket.getKey(), sign * bucket.getValue());
+        }
+        sharedAlbumVersion.increment();
+    }
+
+    /**
+     * Months with at least one photo, newest first
+     */
+    @Transactional(readOnly = true)
+    public List<PhotoMonthCount> getMonthHistogram() {
+        return photoMonthCountRepository.findNonEmptyOrderByMonthDesc();
+    }
+
+    /**
+     * Album statistics from the summary tables plus the top of the file size index
+     */
+    @Transactional(readOnly = true)
+    public AlbumStatistics getStatistics() {
+        List<PhotoMimeStats> mimeTypes = photoMimeStatsRepository.findNonEmpty();
+        long photoCount = 0;
+        long totalBytes = 0;
+        for (PhotoMimeStats stats : mimeTypes) {
+            photoCount += stats.getPhotoCount();
+            totalBytes += stats.getTotalBytes();
+        }
+
+        Map<Integer, Long> buckets = new TreeMap<Integer, Long>();
+        for (PhotoSizeBucket bucket : photoSizeBucketRepository.findNonEmptyOrderByBucket()) {
+            buckets.put(bucket.getBucket(), bucket.getPhotoCount());
+        }
+        Map<String, Long> percentiles = new LinkedHashMap<String, Long>();
+        percentiles.put("p50", SizeBuckets.percentile(buckets, 0.50));
+        percentiles.put("p90", SizeBuckets.percentile(buckets, 0.90));
+        percentiles.put("p99", SizeBuckets.percentile(buckets, 0.99));
+
+        List<PhotoSummary> largest = photoRepository.findLargestSummaries(PageRequest.of(0, largestCount));
+        return new AlbumStatistics(photoCount, totalBytes, mimeTypes, percentiles, largest);
+    }
+
+    /**
+     * Recount the summary tables from the photos table once per schema, e.g. for schemas
+     * created before the tables existed. The first instance to run claims the backfill marker
+     * row; instances starting at the same time wait for its claim and then skip. Each row is
+     * set to its recounted value rather than added to, in one statement per row and in the key
+     * order uploads lock rows in, so uploads running meanwhile are counted exactly once.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void backfill() {
+        if (photoSummaryStateRepository.existsById(BACKFILL)) {
+            return;
+        }
+
+        // Create the rows of all keys first, so the recount only updates existing rows
+        for (String month : photoRepository.findUploadMonths()) {
+            createRow(createdMonths, month, photoMonthCountRepository::createMonth);
+        }
+        for (String mimeType : photoRepository.findMimeTypes()) {
+            createRow(createdMimeTypes, mimeType, photoMimeStatsRepository::createMimeType);
+        }
+        Set<Integer> buckets = new TreeSet<Integer>();
+        for (Long size : photoRepository.findAllFileSizes()) {
+            buckets.add(SizeBuckets.bucketOf(size));
+        }
+        for (Integer bucket : buckets) {
+            createRow(createdBuckets, bucket, photoSizeBucketRepository::createBucket);
+        }
+
+        transactionTemplate.execute(status -> {
+            try {
+                photoSummaryStateRepository.claim(BACKFILL);
+            } catch (DataIntegrityViolationException ex) {
+                logger.info("Photo summary tables were backfilled by another instance");
+                status.setRollbackOnly();
+                return null;
+            }
+
+            List<PhotoMonthCount> months = photoMonthCountRepository.findAll(Sort.by("month"));
+            for (PhotoMonthCount month : months) {
+                YearMonth yearMonth = YearMonth.parse(month.getMonth());
+                photoMonthCountRepository.recountMonth(month.getMonth(),
+                    yearMonth.atDay(1).atStartOfDay(), yearMonth.plusMonths(1).atDay(1).atStartOfDay());
+            }
+            List<PhotoMimeStats> mimeTypes = photoMimeStatsRepository.findAll(Sort.by("mimeType"));
+            for (PhotoMimeStats mimeType : mimeTypes) {
+                photoMimeStatsRepository.recountMimeType(mimeType.getMimeType());
+            }
+            List<PhotoSizeBucket> sizeBuckets = photoSizeBucketRepository.findAll(Sort.by("bucket"));
+            for (PhotoSizeBucket bucket : sizeBuckets) {
+                photoSizeBucketRepository.recountBucket(bucket.getBucket(),
+                    SizeBuckets.lowerBound(bucket.getBucket()), SizeBuckets.upperBound(bucket.getBucket()));
+            }
+            logger.info("Backfilled photo summary tables: {} months, {} MIME types, {} size buckets",
+                months.size(), mimeTypes.size(), sizeBuckets.size());
+            return null;
+        });
+    }
+
+    /**
+     * Histogram key (yyyy-MM) of the month a photo was uploaded in
+     */
+    private static String monthKey(LocalDateTime uploadedAt) {
+        return YearMonth.from(uploadedAt).toString();
+    }
+
+    private static <K> void add(Map<K, Long> counts, K key, long delta) {
+        Long count = counts.get(key);
+        counts.put(key, count == null ? delta : count + delta);
+    }
+}
@@ -1,24 +1,73 @@
 package com.photoalbum.service.impl;
 
+import com.photoalbum.cache.DiskLruCache;
+import com.photoalbum.cache.LruCache;
+import com.photoalbum.model.AlbumStatistics;
+import com.photoalbum.model.ImageTransform;
 import com.photoalbum.model.Photo;
+import com.photoalbum.model.PhotoCursor;
+import com.photoalbum.model.PhotoMonthCount;
+import com.photoalbum.model.PhotoNeighbors;
+import com.photoalbum.model.PhotoPage;
+import com.photoalbum.model.PhotoRendition;
+import com.photoalbum.model.PhotoSummary;
+import com.photoalbum.model.SimilarPhoto;
+import com.photoalbum.model.StagedUpload;
+import com.photoalbum.model.StoredContent;
+import com.photoalbum.model.UploadJob;
 import com.photoalbum.model.UploadResult;
+import com.photoalbum.repository.PhotoRenditionRepository;
 import com.photoalbum.repository.PhotoRepository;
 import com.photoalbum.service.PhotoService;
+import com.photoalbum.storage.PhotoStorage;
+import com.photoalbum.util.HammingIndex;
+import com.photoalbum.util.ImageUtil;
+import com.photoalbum.util.TransactionUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.imageio.ImageIO;
+import javax.imageio.stream.FileImageInputStream;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service implementation for photo operations including upload, retrieval, and deletion
@@ -29,27 +78,114 @@ public class PhotoServiceImpl implements PhotoService {
 
     private static final Logger logger = LoggerFactory.getLogger(PhotoServiceImpl.class);
 
+    /**
+     * Width an original is decoded at (at least) for its perceptual hash when no rendition needs more
+     */
+    private static final int PERCEPTUAL_HASH_DECODE_WIDTH = 64;
+
     private final PhotoRepository photoRepository;
+    private final PhotoRenditionRepository photoRenditionRepository;
+    private final AlbumSummaries albumSummaries;
+    private final SimilarityIndex similarityIndex;
+    private final RenditionGenerator renditionGenerator;
+    private final UploadStager uploadStager;
+    private final UploadJobs uploadJobs;
+    private final UploadAdmission uploadAdmission;
+    private final Executor uploadExecutor;
+    private final boolean virtualThreads;
+    private final TransactionTemplate transactionTemplate;
+    private final DiskLruCache transformCache;
+    private final LruCache<String, PhotoNeighbors> neighborCache;
+    private final List<PhotoStorage> storages;
+    private final PhotoStorage writeStorage;
     private final long maxFileSizeBytes;
     private final List<String> allowedMimeTypes;
+    private final SharedAlbumVersion sharedAlbumVersion;
+    private final Timer readStage;
+    private final Timer validateStage;
+    private final Timer decodeStage;
+    private final Timer persistStage;
 
     public PhotoServiceImpl(
             PhotoRepository photoRepository,
+            PhotoRenditionRepository photoRenditionRepository,
+            AlbumSummaries albumSummaries,
+            SharedAlbumVersion sharedAlbumVersion,
+            SimilarityIndex similarityIndex,
+            RenditionGenerator renditionGenerator,
+            UploadStager uploadStager,
+            UploadJobs uploadJobs,
+            UploadAdmission uploadAdmission,
+            @Qualifier("uploadExecutor") Executor uploadExecutor,
+            @Value("${app.virtual-threads.enabled}") boolean virtualThreads,
+            PlatformTransactionManager transactionManager,
+            DiskLruCache transformCache,
+            LruCache<String, PhotoNeighbors> neighborCache,
+            List<PhotoStorage> storages,
+            @Value("${app.storage.backend}") String storageBackend,
             @Value("${app.file-upload.max-file-size-bytes}") long maxFileSizeBytes,
-            @Value("${app.file-upload.allowed-mime-types}") String[] allowedMimeTypes) {
+            @Value("${app.file-upload.allowed-mime-types}") String[] allowedMimeTypes,
+            MeterRegistry meterRegistry) {
         this.photoRepository = photoRepository;
+        this.photoRenditionRepository = photoRenditionRepository;
+        this.albumSummaries = albumSummaries;
+        this.similarityIndex = similarityIndex;
+        this.renditionGenerator = renditionGenerator;
+        this.uploadStager = uploadStager;
+        this.uploadJobs = uploadJobs;
+        this.uploadAdmission = uploadAdmission;
+        this.uploadExecutor = uploadExecutor;
+        this.virtualThreads = virtualThreads;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transformCache = transformCache;
+        this.neighborCache = neighborCache;
+        this.sharedAlbumVersion = sharedAlbumVersion;
+        sharedAlbumVersion.addListener(neighborCache::invalidateAll);
+        this.storages = storages;
+        this.writeStorage = storages.stream()
+            .filter(storage -> storage.getName().equals(storageBackend))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("Unknown photo storage backend " + storageBackend));
         this.maxFileSizeBytes = maxFileSizeBytes;
         this.allowedMimeTypes = Arrays.asList(allowedMimeTypes);
+        this.readStage = uploadStageTimer("read", meterRegistry);
+        this.validateStage = uploadStageTimer("validate", meterRegistry);
+        this.decodeStage = uploadStageTimer("decode", meterRegistry);
+        this.persistStage = uploadStageTimer("persist", meterRegistry);
     }
 
     /**
-     * Get all photos ordered by upload date (newest first)
+     * Timer of one upload stage: read (copying the upload to staging), validate (content sniffing
+     * and reading the dimensions), decode (renditions and perceptual hash) or persist (saving a batch)
+     */
+    private static Timer uploadStageTimer(String stage, MeterRegistry meterRegistry) {
+        return Timer.builder("photo.upload.stage")
+                .description("Time spent in a stage of photo uploads")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Get one page of photo metadata ordered by upload date (newest first), paging by
+     * (uploaded_at, id) keyset
      */
     @Override
     @Transactional(readOnly = true)
-    public List<Photo> getAllPhotos() {
+    public PhotoPage getPhotoPage(String cursor, int limit) {
+        PhotoCursor position = cursor != null && !cursor.isEmpty() ? PhotoCursor.decode(cursor) : null;
         try {
-            return photoRepository.findAllOrderByUploadedAtDesc();
+            // Read one extra row to learn whether there is a next page
+            PageRequest page = PageRequest.of(0, limit + 1);
+            List<PhotoSummary> photos = position == null
+                ? photoRepository.findSummaries(page)
+                : photoRepository.findSummariesBefore(position.getUploadedAt(), position.getId(), page);
+
+            if (photos.size() <= limit) {
+                return new PhotoPage(photos, null);
+            }
+            photos = photos.subList(0, limit);
+            return new PhotoPage(photos, PhotoCursor.after(photos.get(limit - 1)).encode());
         } catch (Exception ex) {
             logger.error("Error retrieving photos from database", ex);
             throw new RuntimeException("Error retrieving photos", ex);
@@ -70,105 +206,485 @@ public Optional<Photo> getPhotoById(String id) {
         }
     }
 
+    /**
+     * Get a resource over the binary data of a photo, from the storage backend that holds it.
+     * No transaction is needed: the resource opens its own connection or file when it is read.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Optional<Resource> getPhotoData(Photo photo) {
+        return storageOf(photo).map(storage -> storage.read(photo));
+    }
+
+    /**
+     * Get an on-demand resized copy of a photo, served from the disk transform cache. With
+     * virtual threads the transform runs on the upload executor, off the request thread. The
+     * cache file is opened here, so deleting the photo meanwhile does not truncate the response.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Optional<Resource> getTransformedPhoto(Photo photo, ImageTransform transform) {
+        Optional<Resource> original = getPhotoData(photo);
+        if (!original.isPresent()) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.<Resource>of(transformCache.open(photo.getId() + "/" + transform.cacheKey(), target -> virtualThreads
+                ? onUploadExecutor(() -> writeTransformed(photo, original.get(), transform, target))
+                : writeTransformed(photo, original.get(), transform, target)));
+        } catch (IOException ex) {
+            logger.warn("Could not transform photo {} with {}", photo.getId(), transform, ex);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Decode a photo, apply a transform and encode the result to a file
+     * @return File extension of the encoded image
+     */
+    private String writeTransformed(Photo photo, Resource original, ImageTransform transform, Path target)
+            throws IOException {
+        BufferedImage image;
+        try (InputStream in = original.getInputStream()) {
+            image = decodeForTransform(in, transform);
+        }
+        if (image == null) {
+            throw new IOException("Unsupported image format " + photo.getMimeType());
+        }
+
+        BufferedImage result = applyTransform(image, transform);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target))) {
+            ImageUtil.encode(result, out);
+        }
+        return ImageUtil.encodedExtension(result);
+    }
+
+    /**
+     * Run image work on the upload executor and wait for it, so that virtual request threads
+     * do not keep their carrier threads busy decoding
+     */
+    private <T> T onUploadExecutor(Callable<T> work) throws IOException {
+        FutureTask<T> task = new FutureTask<T>(work);
+        uploadExecutor.execute(task);
+        try {
+            return task.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the upload executor");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Configured rendition widths in ascending order
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<Integer> getRenditionWidths() {
+        return renditionGenerator.getWidths();
+    }
+
+    /**
+     * Get a pre-generated rendition of a photo
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<PhotoRendition> getRendition(String photoId, int width) {
+        try {
+            return photoRenditionRepository.findByPhotoIdAndSizeClass(photoId, width);
+        } catch (Exception ex) {
+            logger.error("Error retrieving {}px rendition of photo with ID {}", width, photoId, ex);
+            throw new RuntimeException("Error retrieving rendition", ex);
+        }
+    }
+
+    /**
+     * Get a streaming resource over the encoded data of a rendition
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Optional<Resource> getRenditionData(PhotoRendition rendition) {
+        return storageOf(rendition).map(storage -> storage.read(rendition));
+    }
+
     /**
      * Upload a photo file
      */
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public UploadResult uploadPhoto(MultipartFile file) {
-        UploadResult result = new UploadResult();
-        result.setFileName(file.getOriginalFilename());
+        return uploadPhotos(Collections.singletonList(file)).get(0);
+    }
+
+    /**
+     * Upload several photo files. Validation, staging and rendition decoding run in parallel on
+     * the upload executor; the valid files are then inserted in one transaction so Hibernate can
+     * batch the INSERTs. No database connection is held while files are being decoded.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<UploadResult> uploadPhotos(List<MultipartFile> files) {
+        List<CompletableFuture<PreparedUpload>> futures = new ArrayList<CompletableFuture<PreparedUpload>>();
+        try {
+            for (final MultipartFile file : files) {
+                futures.add(CompletableFuture.supplyAsync(() -> prepareUpload(stageUpload(file)), uploadExecutor));
+            }
+
+            List<PreparedUpload> prepared = new ArrayList<PreparedUpload>(files.size());
+            for (CompletableFuture<PreparedUpload> future : futures) {
+                prepared.add(future.join());
+            }
+            return saveUploads(prepared);
+        } finally {
+            // Also the uploads still being prepared if submitting or preparing another one failed
+            for (CompletableFuture<PreparedUpload> future : futures) {
+                future.thenAccept(PreparedUpload::close);
+            }
+        }
+    }
+
+    /**
+     * Validate and stage the files on the calling thread (the multipart data is only readable
+     * during the request), then queue the decoding and saving as an upload job
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public UploadJob submitUploads(List<MultipartFile> files) {
+        final List<PreparedUpload> staged = new ArrayList<PreparedUpload>(files.size());
+        try {
+            for (MultipartFile file : files) {
+                staged.add(stageUpload(file));
+            }
+            return uploadJobs.submit(files.size(), job -> processJob(job, staged));
+        } catch (RuntimeException ex) {
+            closeAll(staged);
+            throw ex;
+        }
+    }
+
+    /**
+     * Get an upload job queued by {@link #submitUploads}
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Optional<UploadJob> getUploadJob(String id) {
+        return uploadJobs.get(id);
+    }
+
+    /**
+     * Decode the staged files of a job in parallel on the upload executor, then save them.
+     * Runs on an upload job worker.
+     */
+    private void processJob(UploadJob job, List<PreparedUpload> staged) {
+        List<UploadResult> results = new ArrayList<UploadResult>(staged.size());
+        List<CompletableFuture<PreparedUpload>> futures = new ArrayList<CompletableFuture<PreparedUpload>>();
+        try {
+            for (final PreparedUpload upload : staged) {
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    prepareUpload(upload);
+                    job.fileProcessed();
+                    return upload;
+                }, uploadExecutor));
+            }
+            for (CompletableFuture<PreparedUpload> future : futures) {
+                future.join();
+            }
+            results = saveUploads(staged);
+        } catch (Exception ex) {
+            logger.error("Unexpected error in upload job {}", job.getId(), ex);
+            results.clear();
+            for (PreparedUpload upload : staged) {
+                if (upload.result.isSuccess()) {
+                    results.add(upload.result);
+                } else {
+                    results.add(UploadResult.failure(upload.result.getFileName(),
+                        "An unexpected error occurred. Please try again."));
+                }
+            }
+        } finally {
+            // Uploads still being prepared after a failure are closed once they finish
+            for (int i = 0; i < staged.size(); i++) {
+                final PreparedUpload upload = staged.get(i);
+                if (i < futures.size()) {
+                    futures.get(i).whenComplete((done, ex) -> upload.close());
+                } else {
+                    upload.close();
+                }
+            }
+            job.completed(results);
+        }
+    }
+
+    /**
+     * Save the prepared uploads and collect their results
+     */
+    private List<UploadResult> saveUploads(List<PreparedUpload> prepared) {
+        persistUploads(prepared);
+
+        List<UploadResult> results = new ArrayList<UploadResult>(prepared.size());
+        for (PreparedUpload upload : prepared) {
+            results.add(upload.result);
+        }
+        return results;
+    }
+
+    private static void closeAll(List<PreparedUpload> uploads) {
+        for (PreparedUpload upload : uploads) {
+            upload.close();
+        }
+    }
+
+    /**
+     * Validate a file and copy it to a staging file. Never throws; failures are reported
+     * through the result of the returned upload, which then has no staged file.
+     */
+    private PreparedUpload stageUpload(MultipartFile file) {
+        PreparedUpload upload = new PreparedUpload(file.getOriginalFilename());
+        UploadResult result = upload.result;
 
         try {
             // Validate file type
-            if (!allowedMimeTypes.contains(file.getContentType().toLowerCase())) {
-                result.setSuccess(false);
+            if (file.getContentType() == null || !allowedMimeTypes.contains(file.getContentType().toLowerCase())) {
                 result.setErrorMessage("File type not supported. Please upload JPEG, PNG, GIF, or WebP images.");
                 logger.warn("Upload rejected: Invalid file type {} for {}", 
                     file.getContentType(), file.getOriginalFilename());
-                return result;
+                return upload;
             }
 
             // Validate file size
             if (file.getSize() > maxFileSizeBytes) {
-                result.setSuccess(false);
                 result.setErrorMessage(String.format("File size exceeds %dMB limit.", maxFileSizeBytes / 1024 / 1024));
                 logger.warn("Upload rejected: File size {} exceeds limit for {}", 
                     file.getSize(), file.getOriginalFilename());
-                return result;
+                return upload;
             }
 
             // Validate file length
             if (file.getSize() <= 0) {
-                result.setSuccess(false);
                 result.setErrorMessage("File is empty.");
-                return result;
+                return upload;
+            }
+
+            // Copy the upload to a staging file, computing its size, hash and signature in the same pass
+            long started = System.nanoTime();
+            try {
+                upload.staged = uploadStager.stage(file);
+                readStage.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            } catch (IOException ex) {
+                logger.error("Error reading file data for {}", file.getOriginalFilename(), ex);
+                result.setErrorMessage("Error reading file data. Please try again.");
+            }
+        } catch (Exception ex) {
+            logger.error("Unexpected error during photo upload for {}", file.getOriginalFilename(), ex);
+            result.setErrorMessage("An unexpected error occurred. Please try again.");
+        }
+
+        return upload;
+    }
+
+    /**
+     * Check the content of a staged file, read its dimensions and create its renditions and
+     * perceptual hash. Does nothing for uploads that failed staging. Never throws; failures
+     * are reported through the result of the upload.
+     */
+    private PreparedUpload prepareUpload(PreparedUpload upload) {
+        if (upload.staged == null) {
+            return upload;
+        }
+        UploadResult result = upload.result;
+        StagedUpload file = upload.staged;
+
+        long started = System.nanoTime();
+        try {
+            // Validate the actual content, not just the type declared by the client
+            String mimeType = upload.staged.getSniffedMimeType();
+            if (mimeType == null || !allowedMimeTypes.contains(mimeType)) {
+                result.setErrorMessage("File type not supported. Please upload JPEG, PNG, GIF, or WebP images.");
+                logger.warn("Upload rejected: Content of {} does not match a supported image type (declared {})",
+                    file.getOriginalFileName(), file.getDeclaredContentType());
+                return upload;
             }
 
             // Generate unique filename for compatibility (stored in database, not on disk)
-            String extension = getFileExtension(file.getOriginalFilename());
+            String extension = getFileExtension(file.getOriginalFileName());
             String storedFileName = UUID.randomUUID().toString() + extension;
             String relativePath = "/uploads/" + storedFileName; // For compatibility only
 
-            // Extract image dimensions and read file data
+            // Read image dimensions from the image header, without decoding pixels
             Integer width = null;
             Integer height = null;
-            byte[] photoData = null;
-            
-            try {
-                // Read file content for database storage
-                photoData = file.getBytes();
-                
-                // Extract image dimensions from byte array
-                try (ByteArrayInputStream bis = new ByteArrayInputStream(photoData)) {
-                    BufferedImage image = ImageIO.read(bis);
-                    if (image != null) {
-                        width = image.getWidth();
-                        height = image.getHeight();
-                    }
+            try (ImageInputStream input = new FileImageInputStream(upload.staged.getPath().toFile())) {
+                int[] dimensions = ImageUtil.readDimensions(input);
+                if (dimensions != null) {
+                    width = dimensions[0];
+                    height = dimensions[1];
                 }
-            } catch (IOException ex) {
-                logger.error("Error reading file data for {}", file.getOriginalFilename(), ex);
-                result.setSuccess(false);
-                result.setErrorMessage("Error reading file data. Please try again.");
-                return result;
             } catch (Exception ex) {
-                logger.warn("Could not extract image dimensions for {}", file.getOriginalFilename(), ex);
+                logger.warn("Could not extract image dimensions for {}", file.getOriginalFileName(), ex);
                 // Continue without dimensions - not critical
             }
+            validateStage.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
 
-            // Create photo entity with database BLOB storage
+            // Create photo entity; the data is streamed from the staging file into the photo_blob table
             Photo photo = new Photo(
-                file.getOriginalFilename(),
-                photoData,  // Store actual photo data in Oracle database
+                file.getOriginalFileName(),
                 storedFileName,
                 relativePath, // Keep for compatibility, not used for serving
-                file.getSize(),
-                file.getContentType()
+                upload.staged.getSize(),
+                mimeType
             );
             photo.setWidth(width);
             photo.setHeight(height);
+            photo.setContentHash(upload.staged.getContentHash());
 
-            // Save to database (with BLOB photo data)
-            try {
-                photo = photoRepository.save(photo);
+            upload.photo = photo;
+            // Create downscaled renditions (e.g. gallery thumbnails) and the perceptual hash
+            upload.renditions = createRenditions(photo, upload.staged.getPath());
+        } catch (RejectedExecutionException ex) {
+            logger.warn("Upload rejected: No decode capacity for {}", file.getOriginalFileName());
+            upload.photo = null;
+            result.setErrorMessage("The server is busy processing other photos. Please try again shortly.");
+        } catch (Exception ex) {
+            logger.error("Unexpected error during photo upload for {}", file.getOriginalFileName(), ex);
+            upload.photo = null;
+            result.setErrorMessage("An unexpected error occurred. Please try again.");
+        }
 
-                result.setSuccess(true);
-                result.setPhotoId(photo.getId());
+        return upload;
+    }
 
-                logger.info("Successfully uploaded photo {} with ID {} to Oracle database", 
-                    file.getOriginalFilename(), photo.getId());
-            } catch (Exception ex) {
-                logger.error("Error saving photo to Oracle database for {}", file.getOriginalFilename(), ex);
-                result.setSuccess(false);
-                result.setErrorMessage("Error saving photo to database. Please try again.");
+    /**
+     * Insert all prepared photos in one batched transaction. If that fails, retry each photo in
+     * its own transaction so one bad file does not fail the others.
+     */
+    private void persistUploads(List<PreparedUpload> prepared) {
+        List<PreparedUpload> pending = new ArrayList<PreparedUpload>();
+        for (PreparedUpload upload : prepared) {
+            if (upload.photo != null) {
+                pending.add(upload);
             }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        long started = System.nanoTime();
+        try {
+            insertOrRetry(pending);
+        } finally {
+            persistStage.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void insertOrRetry(final List<PreparedUpload> pending) {
+        List<Photo> photos = new ArrayList<Photo>(pending.size());
+        for (PreparedUpload upload : pending) {
+            photos.add(upload.photo);
+        }
+        albumSummaries.createRows(photos);
+
+        try {
+            transactionTemplate.execute(status -> {
+                insert(pending);
+                return null;
+            });
+            for (PreparedUpload upload : pending) {
+                upload.succeeded();
+            }
+            return;
         } catch (Exception ex) {
-            logger.error("Unexpected error during photo upload for {}", file.getOriginalFilename(), ex);
-            result.setSuccess(false);
-            result.setErrorMessage("An unexpected error occurred. Please try again.");
+            if (pending.size() == 1) {
+                logger.error("Error saving photo to Oracle database for {}", pending.get(0).result.getFileName(), ex);
+                pending.get(0).failed("Error saving photo to database. Please try again.");
+                return;
+            }
+            logger.warn("Batch insert of {} photos failed, retrying one by one", pending.size(), ex);
+        }
+
+        for (final PreparedUpload upload : pending) {
+            try {
+                // The rolled-back entities cannot be saved again, so rebuild them from the staged file
+                upload.photo = copyForRetry(upload.photo);
+                upload.renditions = createRenditions(upload.photo, upload.staged.getPath());
+                transactionTemplate.execute(status -> {
+                    insert(Collections.singletonList(upload));
+                    return null;
+                });
+                upload.succeeded();
+            } catch (Exception ex) {
+                logger.error("Error saving photo to Oracle database for {}", upload.result.getFileName(), ex);
+                upload.failed("Error saving photo to database. Please try again.");
+            }
+        }
+    }
+
+    /**
+     * Write the data of the batch to the storage backend, then save the photos and renditions and
+     * flush while the staging streams are open, so BLOBs of the database backend are bound from them
+     */
+    private void insert(List<PreparedUpload> uploads) {
+        final Map<StoredContent, PreparedUpload> stagedPhotos = new IdentityHashMap<StoredContent, PreparedUpload>();
+        List<StoredContent> contents = new ArrayList<StoredContent>();
+        List<Photo> photos = new ArrayList<Photo>(uploads.size());
+        List<PhotoRendition> renditions = new ArrayList<PhotoRendition>();
+        for (PreparedUpload upload : uploads) {
+            stagedPhotos.put(upload.photo, upload);
+            contents.add(upload.photo);
+            contents.addAll(upload.renditions);
+            photos.add(upload.photo);
+            renditions.addAll(upload.renditions);
         }
 
-        return result;
+        final List<InputStream> streams = new ArrayList<InputStream>(contents.size());
+        try {
+            writeStorage.writeAll(contents, content -> {
+                PreparedUpload upload = stagedPhotos.get(content);
+                InputStream data = upload != null
+                    ? upload.staged.openStream()
+                    : new ByteArrayInputStream(((PhotoRendition) content).getData());
+                streams.add(data);
+                return data;
+            });
+            photoRepository.saveAll(photos);
+            photoRenditionRepository.saveAll(renditions);
+            photoRepository.flush();
+            albumSummaries.record(photos, 1);
+            similarityIndex.added(photos);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            for (InputStream stream : streams) {
+                try {
+                    stream.close();
+                } catch (IOException ex) {
+                    logger.warn("Could not close staging stream", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * New, unsaved copy of a photo's metadata with the same ID
+     */
+    private static Photo copyForRetry(Photo photo) {
+        Photo copy = new Photo(photo.getOriginalFileName(), photo.getStoredFileName(), photo.getFilePath(),
+            photo.getFileSize(), photo.getMimeType());
+        copy.setId(photo.getId());
+        copy.setUploadedAt(photo.getUploadedAt());
+        copy.setWidth(photo.getWidth());
+        copy.setHeight(photo.getHeight());
+        copy.setContentHash(photo.getContentHash());
+        copy.setPerceptualHash(photo.getPerceptualHash());
+        return copy;
     }
 
     /**
@@ -184,9 +700,27 @@ public boolean deletePhoto(String id) {
             }
 
             Photo photo = photoOpt.get();
+            List<StoredContent> contents = new ArrayList<StoredContent>(photoRenditionRepository.findByPhotoId(id));
+            contents.add(photo);
 
-            // Delete from Oracle database (photos stored as BLOB)
+            // Delete the metadata rows first (they hold the foreign keys), then the stored data
+            photoRenditionRepository.deleteByPhotoId(id);
             photoRepository.delete(photo);
+            photoRepository.flush();
+            albumSummaries.record(Collections.singletonList(photo), -1);
+            similarityIndex.removed(id);
+            TransactionUtil.afterCommit(() -> transformCache.removeGroup(id));
+            for (PhotoStorage storage : storages) {
+                List<StoredContent> held = new ArrayList<StoredContent>();
+                for (StoredContent content : contents) {
+                    if (storage.holds(content)) {
+                        held.add(content);
+                    }
+                }
+                if (!held.isEmpty()) {
+                    storage.delete(held);
+                }
+            }
 
             logger.info("Successfully deleted photo ID {} from Oracle database", id);
             return true;
@@ -197,23 +731,176 @@ public boolean deletePhoto(String id) {
     }
 
     /**
-     * Get the previous photo (older) for navigation
+     * Get the number of photos per month from the precomputed histogram, newest month first
      */
     @Override
     @Transactional(readOnly = true)
-    public Optional<Photo> getPreviousPhoto(Photo currentPhoto) {
-        List<Photo> olderPhotos = photoRepository.findPhotosUploadedBefore(currentPhoto.getUploadedAt());
-        return olderPhotos.isEmpty() ? Optional.<Photo>empty() : Optional.of(olderPhotos.get(0));
+    public List<PhotoMonthCount> getMonthHistogram() {
+        return albumSummaries.getMonthHistogram();
     }
 
     /**
-     * Get the next photo (newer) for navigation
+     * Get album statistics from the summary tables
      */
     @Override
     @Transactional(readOnly = true)
-    public Optional<Photo> getNextPhoto(Photo currentPhoto) {
-        List<Photo> newerPhotos = photoRepository.findPhotosUploadedAfter(currentPhoto.getUploadedAt());
-        return newerPhotos.isEmpty() ? Optional.<Photo>empty() : Optional.of(newerPhotos.get(0));
+    public AlbumStatistics getStatistics() {
+        try {
+            return albumSummaries.getStatistics();
+        } catch (Exception ex) {
+            logger.error("Error retrieving album statistics from database", ex);
+            throw new RuntimeException("Error retrieving statistics", ex);
+        }
+    }
+
+    /**
+     * Get metadata for the photos uploaded in a month, newest first
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<PhotoSummary> getPhotosByMonth(YearMonth month) {
+        try {
+            return photoRepository.findSummariesUploadedBetween(
+                month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay());
+        } catch (Exception ex) {
+            logger.error("Error retrieving photos for month {} from database", month, ex);
+            throw new RuntimeException("Error retrieving photos", ex);
+        }
+    }
+
+    /**
+     * Find visually similar photos through the in-memory similarity index; only the
+     * metadata of the matches is read from the database
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<SimilarPhoto> getSimilarPhotos(Photo photo, int maxDistance, int limit) {
+        if (photo.getPerceptualHash() == null) {
+            return Collections.<SimilarPhoto>emptyList();
+        }
+        try {
+            List<HammingIndex.Match> matches = new ArrayList<HammingIndex.Match>();
+            for (HammingIndex.Match match : similarityIndex.search(photo.getPerceptualHash(), maxDistance)) {
+                if (!match.getId().equals(photo.getId())) {
+                    matches.add(match);
+                }
+            }
+            // Fetch a few more than needed in case the index still lists a deleted photo
+            List<HammingIndex.Match> candidates = matches.subList(0, Math.min(matches.size(), limit * 2));
+            List<String> ids = new ArrayList<String>(candidates.size());
+            for (HammingIndex.Match match : candidates) {
+                ids.add(match.getId());
+            }
+            Map<String, PhotoSummary> summaries = new HashMap<String, PhotoSummary>();
+            if (!ids.isEmpty()) {
+                for (PhotoSummary summary : photoRepository.findSummariesByIdIn(ids)) {
+                    summaries.put(summary.getId(), summary);
+                }
+            }
+
+            List<SimilarPhoto> similar = new ArrayList<SimilarPhoto>(limit);
+            for (HammingIndex.Match match : candidates) {
+                PhotoSummary summary = summaries.get(match.getId());
+                if (summary != null && similar.size() < limit) {
+                    similar.add(new SimilarPhoto(summary, match.getDistance()));
+                }
+            }
+            return similar;
+        } catch (Exception ex) {
+            logger.error("Error finding photos similar to photo with ID {}", photo.getId(), ex);
+            throw new RuntimeException("Error finding similar photos", ex);
+        }
+    }
+
+    /**
+     * Get the IDs of the previous and next photos for navigation, cached for hot photos
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public PhotoNeighbors getNeighbors(Photo photo) {
+        // Drops the cached neighbors if the album changed on another instance
+        sharedAlbumVersion.current();
+        PhotoNeighbors neighbors = neighborCache.get(photo.getId());
+        if (neighbors == null) {
+            long generation = neighborCache.generation();
+            neighbors = photoRepository.findNeighbors(photo.getUploadedAt(), photo.getId());
+            neighborCache.put(photo.getId(), neighbors, generation);
+        }
+        return neighbors;
+    }
+
+    /**
+     * Current album version: changes whenever photos are uploaded or deleted on any instance
+     * (see {@link SharedAlbumVersion} for how soon other instances notice)
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public String getAlbumVersion() {
+        return Long.toString(sharedAlbumVersion.current(), 36);
+    }
+
+    /**
+     * Storage backend that holds the data of a photo or rendition
+     */
+    private Optional<PhotoStorage> storageOf(StoredContent content) {
+        return storages.stream().filter(storage -> storage.holds(content)).findFirst();
+    }
+
+    /**
+     * Create the renditions of a photo and set its perceptual hash, decoding the original once,
+     * subsampled to the largest rendition width so the decoded raster stays small regardless
+     * of the source resolution. Takes a slot of the decode budget while decoding.
+     * @throws RejectedExecutionException if no decode slot frees up in time
+     */
+    private List<PhotoRendition> createRenditions(Photo photo, Path source) {
+        if (photo.getWidth() == null) {
+            return Collections.<PhotoRendition>emptyList();
+        }
+        int renditionWidth = renditionGenerator.requiredDecodeWidth(photo.getWidth());
+        int decodeWidth = Math.max(renditionWidth, PERCEPTUAL_HASH_DECODE_WIDTH);
+        if (!uploadAdmission.acquireDecode()) {
+            throw new RejectedExecutionException("Decode budget exhausted");
+        }
+        long started = System.nanoTime();
+        try (ImageInputStream input = new FileImageInputStream(source.toFile())) {
+            BufferedImage image = ImageUtil.readSubsampled(input, decodeWidth, 0);
+            if (image == null) {
+                return Collections.<PhotoRendition>emptyList();
+            }
+            photo.setPerceptualHash(ImageUtil.differenceHash(image));
+            return renditionWidth > 0
+                ? renditionGenerator.createRenditions(photo.getId(), photo.getWidth(), image)
+                : Collections.<PhotoRendition>emptyList();
+        } catch (Exception ex) {
+            logger.warn("Could not create renditions for {}", photo.getOriginalFileName(), ex);
+            return Collections.<PhotoRendition>emptyList();
+        } finally {
+            decodeStage.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            uploadAdmission.releaseDecode();
+        }
+    }
+
+    /**
+     * Decode a photo for a transform, subsampled to what the requested size needs
+     */
+    private BufferedImage decodeForTransform(InputStream in, ImageTransform transform) throws IOException {
+        int boxWidth = transform.getWidth() != null ? transform.getWidth() : 0;
+        int boxHeight = transform.getHeight() != null ? transform.getHeight() : 0;
+        try (ImageInputStream input = new MemoryCacheImageInputStream(in)) {
+            return ImageUtil.readSubsampled(input, boxWidth, boxHeight);
+        }
+    }
+
+    /**
+     * Resize a decoded image according to a transform
+     */
+    private BufferedImage applyTransform(BufferedImage image, ImageTransform transform) {
+        int[] size = transform.targetSize(image.getWidth(), image.getHeight());
+        if (transform.getFit() == ImageTransform.Fit.COVER
+                && transform.getWidth() != null && transform.getHeight() != null) {
+            return ImageUtil.cover(image, size[0], size[1]);
+        }
+        return ImageUtil.scale(image, size[0], size[1]);
     }
 
     /**
@@ -226,4 +913,46 @@ private String getFileExtension(String filename) {
         int lastDotIndex = filename.lastIndexOf('.');
         return lastDotIndex > 0 ? filename.substring(lastDotIndex) : "";
     }
-}
\ No newline at end of file
+
+    /**
+     * A file of a multi-file upload between the parallel prepare step and the batched insert
+     */
+    private static final class PreparedUpload {
+
+        private final UploadResult result;
+        private StagedUpload staged;
+        private Photo photo;
+        private List<PhotoRendition> renditions = Collections.<PhotoRendition>emptyList();
+
+        PreparedUpload(String fileName) {
+            this.result = UploadResult.failure(fileName, null);
+        }
+
+        void succeeded() {
+            result.setSuccess(true);
+            result.setPhotoId(photo.getId());
+            result.setPhoto(photo);
+            logger.info("Successfully uploaded photo {} with ID {} to Oracle database", 
+                result.getFileName(), photo.getId());
+        }
+
+        void failed(String errorMessage) {
+            result.setSuccess(false);
+            result.setErrorMessage(errorMessage);
+        }
+
+        /**
+         * Delete the staging file
+         */
+        void close() {
+            if (staged == null) {
+                return;
+            }
+            try {
+                staged.close();
+            } catch (IOException ex) {
+                logger.warn("Could not delete staging file {}", staged.getPath(), ex);
+            }
+        }
+    }
+}
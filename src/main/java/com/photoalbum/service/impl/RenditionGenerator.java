@@ -0,0 +1,91 @@
+package com.photoalbum.service.impl;
+
+import com.photoalbum.model.PhotoRendition;
+import com.photoalbum.util.HashUtil;
+import com.photoalbum.util.ImageUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Generates fixed-width renditions (e.g. gallery thumbnails) of uploaded photos
+ */
+@Component
+public class RenditionGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(RenditionGenerator.class);
+
+    private final List<Integer> widths;
+
+    public RenditionGenerator(@Value("${app.renditions.widths:320,1024}") int[] widths) {
+        List<Integer> sorted = new ArrayList<Integer>();
+        for (int width : widths) {
+            if (width <= 0) {
+                throw new IllegalArgumentException("Rendition widths must be positive: " + Arrays.toString(widths));
+            }
+            sorted.add(width);
+        }
+        Collections.sort(sorted);
+        this.widths = Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * Configured rendition widths in ascending order
+     */
+    public List<Integer> getWidths() {
+        return widths;
+    }
+
+    /**
+     * Width the original must be decoded at for {@link #createRenditions}: the largest
+     * configured width that is smaller than the original
+     * @param sourceWidth Width of the original in pixels
+     * @return Required width, or 0 if the original is too small for any rendition
+     */
+    public int requiredDecodeWidth(int sourceWidth) {
+        int required = 0;
+        for (Integer width : widths) {
+            if (width < sourceWidth) {
+                required = width;
+            }
+        }
+        return required;
+    }
+
+    /**
+     * Create a rendition for every configured width smaller than the original.
+     * Images that are already small enough get no rendition for that width; the
+     * original is served instead.
+     * @param photoId ID of the photo the renditions belong to
+     * @param sourceWidth Width of the original in pixels
+     * @param image The decoded image, possibly subsampled to {@link #requiredDecodeWidth}
+     * @return Renditions ready to be saved (may be empty)
+     */
+    public List<PhotoRendition> createRenditions(String photoId, int sourceWidth, BufferedImage image) {
+        List<PhotoRendition> renditions = new ArrayList<PhotoRendition>();
+        for (Integer width : widths) {
+            if (width >= sourceWidth || width > image.getWidth()) {
+                continue;
+            }
+            try {
+                BufferedImage scaled = ImageUtil.scaleToWidth(image, width);
+                byte[] data = ImageUtil.encode(scaled);
+                PhotoRendition rendition = new PhotoRendition(photoId, width, data,
+                        ImageUtil.encodedMimeType(scaled), scaled.getWidth(), scaled.getHeight());
+                rendition.setContentHash(HashUtil.sha256Hex(data));
+                renditions.add(rendition);
+            } catch (IOException | RuntimeException ex) {
+                logger.warn("Could not create {}px rendition for photo {}", width, photoId, ex);
+            }
+        }
+        return renditions;
+    }
+}
@@ -0,0 +1,132 @@
+package com.photoalbum.service.impl;
+
+import com.photoalbum.repository.AlbumVersionRepository;
+import com.photoalbum.util.TransactionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The album version shared by all instances, from the album_version row that upload and
+ * delete transactions increment. Each instance re-reads it at most once per refresh interval,
+ * so caches keyed by the version notice changes made on other instances within that interval
+ * and changes made on this instance as soon as they commit.
+ */
+@Component
+public class SharedAlbumVersion {
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedAlbumVersion.class);
+
+    private final AlbumVersionRepository albumVersionRepository;
+    private final TransactionTemplate requiresNew;
+    private final long refreshNanos;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<Runnable>();
+
+    /** Guards the last version seen; not a monitor, which would pin virtual request threads */
+    private final Lock lock = new ReentrantLock();
+    private long version = -1;
+    private long refreshedAt;
+    private volatile boolean created;
+
+    public SharedAlbumVersion(
+            AlbumVersionRepository albumVersionRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.album-version.refresh-millis}") long refreshMillis) {
+        this.albumVersionRepository = albumVersionRepository;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.refreshNanos = TimeUnit.MILLISECONDS.toNanos(refreshMillis);
+    }
+
+    /**
+     * Run an action whenever the version changes, e.g. to drop caches not keyed by it
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Current version, read from the database if it was last read before the refresh interval
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public long current() {
+        lock.lock();
+        try {
+            if (version >= 0 && System.nanoTime() - refreshedAt < refreshNanos) {
+                return version;
+            }
+        } finally {
+            lock.unlock();
+        }
+        createRow();
+        long latest = albumVersionRepository.findVersion().orElse(0L);
+        observed(latest);
+        return latest;
+    }
+
+    /**
+     * Create the version row unless it exists, in its own transaction, so that upload
+     * transactions only update it and a concurrent creator does not roll back the caller's
+     * transaction
+     */
+    public void createRow() {
+        if (created) {
+            return;
+        }
+        try {
+            requiresNew.execute(status -> albumVersionRepository.create(System.currentTimeMillis()));
+        } catch (DataIntegrityViolationException ex) {
+            // Created by another instance
+        } catch (DataAccessException ex) {
+            logger.warn("Could not create the album version row", ex);
+            return;
+        }
+        created = true;
+    }
+
+    /**
+     * Increment the version in the current transaction; this instance sees the new version once
+     * the transaction commits
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void increment() {
+        if (albumVersionRepository.increment() == 0) {
+            albumVersionRepository.create(System.currentTimeMillis());
+        }
+        final long incremented = albumVersionRepository.findVersion().orElse(0L);
+        TransactionUtil.afterCommit(() -> observed(incremented));
+    }
+
+    private void observed(long latest) {
+        boolean changed;
+        lock.lock();
+        try {
+            changed = latest > version;
+            if (latest >= version) {
+                version = latest;
+                refreshedAt = System.nanoTime();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (changed) {
+            for (Runnable listener : listeners) {
+                listener.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.photoalbum.service.impl;
+
+import com.photoalbum.model.Photo;
+import com.photoalbum.repository.PhotoRepository;
+import com.photoalbum.util.HammingIndex;
+import com.photoalbum.util.TransactionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of the perceptual hashes of all photos, for finding visually similar photos
+ * without comparing against every photo. Loaded from the photos table on startup and kept up
+ * to date as photos are uploaded and deleted.
+ * <p>
+ * The index may briefly list a photo deleted while it was being loaded, so callers check the
+ * matches against the database.
+ */
+@Component
+public class SimilarityIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SimilarityIndex.class);
+
+    private final PhotoRepository photoRepository;
+    private final int batchSize;
+    private final HammingIndex index = new HammingIndex();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public SimilarityIndex(
+            PhotoRepository photoRepository,
+            @Value("${app.similar.load-batch-size}") int batchSize) {
+        this.photoRepository = photoRepository;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Load the hashes of all photos, in ID order and one batch at a time
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            String afterId = " ";
+            while (true) {
+                List<Object[]> rows = photoRepository.findPerceptualHashes(afterId, PageRequest.of(0, batchSize));
+                if (rows.isEmpty()) {
+                    break;
+                }
+                lock.writeLock().lock();
+                try {
+                    for (Object[] row : rows) {
+                        index.add((String) row[0], ((Number) row[1]).longValue());
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                afterId = (String) rows.get(rows.size() - 1)[0];
+            }
+            logger.info("Loaded {} perceptual hashes into the similarity index", size());
+        } catch (Exception ex) {
+            logger.error("Error loading the similarity index", ex);
+        }
+    }
+
+    /**
+     * Add photos once the current transaction commits
+     * @param photos Uploaded photos (those without a hash are skipped)
+     */
+    public void added(List<Photo> photos) {
+        final List<Photo> hashed = new ArrayList<Photo>(photos.size());
+        for (Photo photo : photos) {
+            if (photo.getPerceptualHash() != null) {
+                hashed.add(photo);
+            }
+        }
+        if (hashed.isEmpty()) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                for (Photo photo : hashed) {
+                    index.add(photo.getId(), photo.getPerceptualHash());
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Remove a photo once the current transaction commits
+     * @param id Deleted photo ID
+     */
+    public void removed(final String id) {
+        TransactionUtil.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                index.remove(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Find the photos whose hash is within a distance of a hash
+     * @param hash The perceptual hash to compare with
+     * @param maxDistance Maximum number of differing bits
+     * @return Matching photo IDs with their distance, closest first
+     */
+    public List<HammingIndex.Match> search(long hash, int maxDistance) {
+        lock.readLock().lock();
+        try {
+            return index.search(hash, maxDistance);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of indexed photos
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.photoalbum.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recounts the summary tables (month histogram, MIME type totals, size histogram) from the
+ * photos table on the first startup against a schema, e.g. for schemas created before they
+ * were introduced. After that, upload and delete keep them up to date.
+ */
+@Component
+public class SummaryBackfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(SummaryBackfill.class);
+
+    private final AlbumSummaries albumSummaries;
+
+    public SummaryBackfill(AlbumSummaries albumSummaries) {
+        this.albumSummaries = albumSummaries;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        try {
+            albumSummaries.backfill();
+        } catch (Exception ex) {
+            logger.error("Error backfilling photo summary tables", ex);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.photoalbum.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Global budgets for uploads in flight: the bytes of upload requests being received and
+ * processed, and the number of images being decoded at once (decoded rasters are the largest
+ * allocations of an upload). Callers wait briefly for budget to free up and are turned away
+ * when it does not, instead of running the server out of memory under a burst of uploads.
+ */
+@Component
+public class UploadAdmission {
+
+    /**
+     * The byte budget is counted in KiB so it fits a semaphore's int permits
+     */
+    private static final int UNIT = 1024;
+
+    private final Semaphore bytes;
+    private final Semaphore decodes;
+    private final int maxBytePermits;
+    private final int maxDecodes;
+    private final long queueTimeoutMillis;
+    private final long decodeWaitMillis;
+    private final Counter byteRejections;
+    private final Counter decodeRejections;
+
+    public UploadAdmission(
+            @Value("${app.upload.admission.max-bytes}") long maxBytes,
+            @Value("${app.upload.admission.max-concurrent-decodes}") int maxDecodes,
+            @Value("${app.upload.admission.queue-timeout-millis}") long queueTimeoutMillis,
+            @Value("${app.upload.admission.decode-wait-millis}") long decodeWaitMillis,
+            MeterRegistry meterRegistry) {
+        this.maxBytePermits = (int) Math.min(Integer.MAX_VALUE, Math.max(1, maxBytes / UNIT));
+        this.maxDecodes = maxDecodes;
+        this.bytes = new Semaphore(maxBytePermits, true);
+        this.decodes = new Semaphore(maxDecodes, true);
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.decodeWaitMillis = decodeWaitMillis;
+        this.byteRejections = meterRegistry.counter("upload.admission.rejections", "budget", "bytes");
+        this.decodeRejections = meterRegistry.counter("upload.admission.rejections", "budget", "decodes");
+        Gauge.builder("upload.admission.bytes.in.use", this, UploadAdmission::getBytesInUse)
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("upload.admission.bytes.limit", this, admission -> (double) admission.maxBytePermits * UNIT)
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("upload.admission.decodes.in.use", this, UploadAdmission::getDecodesInUse)
+                .register(meterRegistry);
+        Gauge.builder("upload.admission.decodes.limit", this, admission -> admission.maxDecodes)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reserve bytes of the upload budget, waiting up to the queue timeout
+     * @param size Size of the upload in bytes; uploads larger than the whole budget reserve all of it
+     * @return Permits to pass to {@link #releaseBytes}, or 0 if the budget stayed exhausted
+     */
+    public int reserveBytes(long size) {
+        long units = size / UNIT + (size % UNIT != 0 ? 1 : 0);
+        int permits = (int) Math.min(maxBytePermits, Math.max(1, units));
+        try {
+            if (bytes.tryAcquire(permits, queueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                return permits;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        byteRejections.increment();
+        return 0;
+    }
+
+    /**
+     * Return bytes reserved by {@link #reserveBytes}
+     */
+    public void releaseBytes(int permits) {
+        if (permits > 0) {
+            bytes.release(permits);
+        }
+    }
+
+    /**
+     * Take a decode slot, waiting up to the decode wait; release it with {@link #releaseDecode}
+     * @return True if a slot was taken
+     */
+    public boolean acquireDecode() {
+        try {
+            if (decodes.tryAcquire(decodeWaitMillis, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        decodeRejections.increment();
+        return false;
+    }
+
+    public void releaseDecode() {
+        decodes.release();
+    }
+
+    /**
+     * Bytes of the budget currently reserved
+     */
+    public long getBytesInUse() {
+        return (long) (maxBytePermits - bytes.availablePermits()) * UNIT;
+    }
+
+    /**
+     * Images currently being decoded
+     */
+    public int getDecodesInUse() {
+        return maxDecodes - decodes.availablePermits();
+    }
+}
@@ -0,0 +1,81 @@
+package com.photoalbum.service.impl;
+
+import com.photoalbum.model.UploadJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Runs upload jobs on the bounded upload job pool and keeps their status for polling.
+ * Completed jobs are forgotten after the retention period.
+ */
+@Component
+public class UploadJobs {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadJobs.class);
+
+    private final Executor uploadJobExecutor;
+    private final long retentionMillis;
+    private final Map<String, UploadJob> jobs = new ConcurrentHashMap<String, UploadJob>();
+
+    public UploadJobs(
+            @Qualifier("uploadJobExecutor") Executor uploadJobExecutor,
+            @Value("${app.upload.jobs.retention-seconds}") long retentionSeconds) {
+        this.uploadJobExecutor = uploadJobExecutor;
+        this.retentionMillis = retentionSeconds * 1000;
+    }
+
+    /**
+     * Queue a job
+     * @param totalFiles Number of files in the upload
+     * @param work Processes the job; must complete it
+     * @return The queued job
+     * @throws RejectedExecutionException if the job queue is full
+     */
+    public UploadJob submit(int totalFiles, final Consumer<UploadJob> work) {
+        removeExpired();
+        final UploadJob job = new UploadJob(totalFiles);
+        jobs.put(job.getId(), job);
+        try {
+            uploadJobExecutor.execute(() -> {
+                job.started();
+                work.accept(job);
+            });
+        } catch (RejectedExecutionException ex) {
+            jobs.remove(job.getId());
+            logger.warn("Upload job queue is full, rejecting upload of {} files", totalFiles);
+            throw ex;
+        }
+        return job;
+    }
+
+    /**
+     * Get a job that is queued, running or recently completed
+     * @param id Job ID
+     * @return The job, empty if unknown or expired
+     */
+    public Optional<UploadJob> get(String id) {
+        removeExpired();
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    private void removeExpired() {
+        long now = System.currentTimeMillis();
+        for (Iterator<UploadJob> it = jobs.values().iterator(); it.hasNext(); ) {
+            UploadJob job = it.next();
+            if (job.getStatus() == UploadJob.Status.COMPLETED && now - job.getCompletedAt() > retentionMillis) {
+                it.remove();
+            }
+        }
+    }
+}
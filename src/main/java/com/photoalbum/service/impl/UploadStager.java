@@ -0,0 +1,90 @@
+package com.photoalbum.service.impl;
+
+import com.photoalbum.model.StagedUpload;
+import com.photoalbum.util.HashUtil;
+import com.photoalbum.util.ImageUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+
+/**
+ * Copies uploaded files to local staging files in a single streaming pass that also
+ * computes the size, SHA-256 and sniffed MIME type, so the heap cost per upload is one
+ * fixed-size buffer regardless of the file size
+ */
+@Component
+public class UploadStager {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Number of leading bytes kept for MIME type sniffing
+     */
+    private static final int SIGNATURE_LENGTH = 16;
+
+    private final Path stagingDirectory;
+
+    public UploadStager(@Value("${app.file-upload.staging-directory}") String stagingDirectory) throws IOException {
+        this.stagingDirectory = Paths.get(stagingDirectory);
+        Files.createDirectories(this.stagingDirectory);
+    }
+
+    /**
+     * Stage an uploaded file
+     * @param file The uploaded file
+     * @return The staged upload; the caller must close it to delete the staging file
+     * @throws IOException if the upload cannot be read or the staging file cannot be written
+     */
+    public StagedUpload stage(MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return stage(in, file.getOriginalFilename(), file.getContentType());
+        }
+    }
+
+    /**
+     * Stage content from a stream
+     * @param in The content (not closed)
+     * @param originalFileName File name as uploaded by the user
+     * @param declaredContentType Content type declared by the client
+     * @return The staged upload; the caller must close it to delete the staging file
+     * @throws IOException if the content cannot be read or the staging file cannot be written
+     */
+    public StagedUpload stage(InputStream in, String originalFileName, String declaredContentType) throws IOException {
+        Path path = Files.createTempFile(stagingDirectory, "upload-", ".tmp");
+        try {
+            MessageDigest digest = HashUtil.newSha256();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            byte[] signature = new byte[SIGNATURE_LENGTH];
+            int signatureLength = 0;
+            long size = 0;
+
+            try (OutputStream out = Files.newOutputStream(path)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    if (signatureLength < SIGNATURE_LENGTH) {
+                        int count = Math.min(read, SIGNATURE_LENGTH - signatureLength);
+                        System.arraycopy(buffer, 0, signature, signatureLength, count);
+                        signatureLength += count;
+                    }
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                    size += read;
+                }
+            }
+
+            return new StagedUpload(path, originalFileName, declaredContentType,
+                    ImageUtil.sniffMimeType(signature, signatureLength), size, HashUtil.toHex(digest.digest()));
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(path);
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.photoalbum.storage;
+
+import com.photoalbum.cache.ByteBufferCache;
+import com.photoalbum.model.PhotoBlob;
+import com.photoalbum.model.StoredContent;
+import com.photoalbum.repository.PhotoBlobRepository;
+import com.photoalbum.util.TransactionUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Keeps photo data in the photo_blob table. Reads stream the BLOB over JDBC, with
+ * frequently read BLOBs served from the in-memory photo data cache.
+ * <p>
+ * Identical data is stored once: a write whose content hash is already in photo_blob adds a
+ * reference to that row instead of binding a new BLOB, and a row is deleted together with
+ * its last reference. A batch of writes looks up and references the existing rows with one
+ * query and one UPDATE.
+ * <p>
+ * BLOB bytes transferred are counted in photo.storage.bytes (backend=database,
+ * operation=read|write); cache hits do not touch the database and are not counted.
+ */
+@Component
+public class DatabasePhotoStorage implements PhotoStorage {
+
+    public static final String NAME = "database";
+
+    private final PhotoBlobRepository photoBlobRepository;
+    private final ByteBufferCache photoDataCache;
+    private final Counter bytesRead;
+    private final Counter bytesWritten;
+
+    public DatabasePhotoStorage(PhotoBlobRepository photoBlobRepository, ByteBufferCache photoDataCache,
+                                MeterRegistry meterRegistry) {
+        this.photoBlobRepository = photoBlobRepository;
+        this.photoDataCache = photoDataCache;
+        this.bytesRead = StorageMetrics.bytes(meterRegistry, NAME, "read");
+        this.bytesWritten = StorageMetrics.bytes(meterRegistry, NAME, "write");
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean holds(StoredContent content) {
+        return content.getBlobId() != null;
+    }
+
+    /**
+     * Reference the existing photo_blob row with the same content, or attach a new row bound to
+     * the stream; it is inserted with the photo or rendition. A duplicate never reads the stream.
+     */
+    @Override
+    public void write(StoredContent content, final InputStream data, final long size) throws IOException {
+        writeAll(Collections.singletonList(content), c -> data, c -> size);
+    }
+
+    /**
+     * As {@link #write} for each content, with one query for the existing rows of the batch and
+     * one UPDATE for their references, so nothing is flushed in between. Contents of the batch
+     * with identical new data share one new row.
+     */
+    @Override
+    public void writeAll(List<? extends StoredContent> contents, ContentData data) throws IOException {
+        writeAll(contents, data, StoredContent::getFileSize);
+    }
+
+    private void writeAll(List<? extends StoredContent> contents, ContentData data,
+                          ToLongFunction<StoredContent> sizes) throws IOException {
+        Map<String, String> existing = referenceExisting(contents);
+        Map<String, PhotoBlob> added = new HashMap<String, PhotoBlob>();
+        for (StoredContent content : contents) {
+            String contentHash = content.getContentHash();
+            content.setStorageKey(null);
+            if (contentHash != null && existing.containsKey(contentHash)) {
+                content.setBlob(photoBlobRepository.getReferenceById(existing.get(contentHash)));
+                continue;
+            }
+            PhotoBlob blob = contentHash != null ? added.get(contentHash) : null;
+            if (blob != null) {
+                blob.setRefCount(blob.getRefCount() + 1);
+                content.setBlob(blob);
+                continue;
+            }
+            final long size = sizes.applyAsLong(content);
+            blob = new PhotoBlob(data.open(content), size, contentHash);
+            if (contentHash != null) {
+                added.put(contentHash, blob);
+            }
+            content.setBlob(blob);
+            TransactionUtil.afterCommit(() -> bytesWritten.increment(size));
+        }
+    }
+
+    /**
+     * Add a reference to the existing photo_blob rows for each content with the same data
+     * @return Blob IDs by content hash of the rows referenced
+     */
+    private Map<String, String> referenceExisting(List<? extends StoredContent> contents) {
+        Map<String, Integer> references = new HashMap<String, Integer>();
+        for (StoredContent content : contents) {
+            if (content.getContentHash() != null) {
+                references.merge(content.getContentHash(), 1, Integer::sum);
+            }
+        }
+        if (references.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, String> existing = new HashMap<String, String>();
+        for (Object[] row : photoBlobRepository.findIdsByContentHashes(references.keySet())) {
+            existing.put((String) row[0], (String) row[1]);
+        }
+        if (existing.isEmpty()) {
+            return existing;
+        }
+
+        // One UPDATE per distinct number of references, usually just one
+        Map<Integer, List<String>> idsByReferences = new TreeMap<Integer, List<String>>();
+        for (Map.Entry<String, String> entry : existing.entrySet()) {
+            idsByReferences.computeIfAbsent(references.get(entry.getKey()), count -> new ArrayList<String>())
+                .add(entry.getValue());
+        }
+        int updated = 0;
+        for (Map.Entry<Integer, List<String>> entry : idsByReferences.entrySet()) {
+            updated += photoBlobRepository.addReferences(entry.getValue(), entry.getKey());
+        }
+        if (updated < existing.size()) {
+            // Rows deleted in the meantime get new rows; the updated ones are locked
+            Set<String> remaining = new HashSet<String>(photoBlobRepository.findExistingIds(existing.values()));
+            existing.values().retainAll(remaining);
+        }
+        return existing;
+    }
+
+    /**
+     * A cached buffer on a hit, otherwise a database stream that loads the BLOB into the
+     * cache if the cache admits it
+     */
+    @Override
+    public Resource read(StoredContent content) {
+        ByteBuffer cached = photoDataCache.get(content.getBlobId());
+        if (cached != null) {
+            return new ByteBufferResource(cached, "Cached photo data [" + content.getId() + "]");
+        }
+        return new PhotoDataResource(photoBlobRepository, content.getBlobId(), content.getFileSize(),
+            content.getId(), photoDataCache, bytesRead);
+    }
+
+    /**
+     * Release the photo_blob rows (the referencing rows must already be deleted and flushed);
+     * unreferenced rows are bulk deleted, so the data is never loaded, and their cached copies
+     * are dropped after commit
+     */
+    @Override
+    public void delete(List<? extends StoredContent> contents) {
+        List<String> blobIds = new ArrayList<String>(contents.size());
+        for (StoredContent content : contents) {
+            blobIds.add(content.getBlobId());
+        }
+        release(blobIds);
+    }
+
+    /**
+     * Remove one reference from each photo_blob row (the referencing rows must already be
+     * updated or deleted and flushed), deleting the rows left without references
+     * @param blobIds The blob IDs, once per released reference
+     */
+    void release(List<String> blobIds) {
+        if (blobIds.isEmpty()) {
+            return;
+        }
+        for (String blobId : blobIds) {
+            photoBlobRepository.removeReference(blobId);
+        }
+        final List<String> unreferenced = photoBlobRepository.findUnreferencedIds(new HashSet<String>(blobIds));
+        if (unreferenced.isEmpty()) {
+            return;
+        }
+        photoBlobRepository.deleteBlobsByIds(unreferenced);
+        TransactionUtil.afterCommit(() -> {
+            for (String blobId : unreferenced) {
+                photoDataCache.invalidate(blobId);
+            }
+        });
+    }
+
+    /**
+     * Open a stream over the data of a photo_blob row, for moving it to another backend
+     */
+    InputStream openStream(String blobId) throws IOException {
+        return photoBlobRepository.openDataStream(blobId, 0);
+    }
+}
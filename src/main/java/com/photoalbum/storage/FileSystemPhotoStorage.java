@@ -0,0 +1,244 @@
+package com.photoalbum.storage;
+
+import com.photoalbum.model.StoredContent;
+import com.photoalbum.repository.PhotoRenditionRepository;
+import com.photoalbum.repository.PhotoRepository;
+import com.photoalbum.util.HashUtil;
+import com.photoalbum.util.TransactionUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps photo data as files in a local, content-addressed store: the storage key is the
+ * SHA-256 of the data and the file lives at {root}/{key[0..2]}/{key[2..4]}/{key}, so no
+ * directory grows beyond a few hundred entries and identical data is stored (and written) once.
+ * The rows referencing a file are counted through the storage_key indexes.
+ * <p>
+ * Writes go to a temporary file that is fsynced and atomically renamed into place, so a
+ * reader never sees a partial file. Served files are sent with sendfile where the servlet
+ * container supports it.
+ * <p>
+ * A file is deleted once no committed row references it, but an upload that reuses it may not
+ * have committed yet. Writes therefore pin their key until their transaction completes, and the
+ * delete skips pinned keys; pinning and the check before deleting hold the same lock stripe,
+ * so a file is either deleted before an upload looks for it (and written again) or kept. This
+ * assumes the store directory is used by one instance.
+ */
+@Component
+public class FileSystemPhotoStorage implements PhotoStorage {
+
+    public static final String NAME = "filesystem";
+
+    private static final Logger logger = LoggerFactory.getLogger(FileSystemPhotoStorage.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final Path root;
+    private final Path temporaryDirectory;
+    private final PhotoRepository photoRepository;
+    private final PhotoRenditionRepository photoRenditionRepository;
+    private final Counter bytesRead;
+    private final Counter bytesWritten;
+    /** Keys written by transactions that have not completed, with the number of writes */
+    private final ConcurrentMap<String, Integer> pinnedKeys = new ConcurrentHashMap<String, Integer>();
+    /**
+     * Lock stripes for pinning and deleting keys; ReentrantLocks, since the delete queries the
+     * database while holding one and a monitor would pin the carrier of a virtual thread
+     */
+    private final Lock[] locks = new Lock[LOCK_STRIPES];
+
+    public FileSystemPhotoStorage(
+            @Value("${app.storage.filesystem.directory}") String directory,
+            PhotoRepository photoRepository,
+            PhotoRenditionRepository photoRenditionRepository,
+            MeterRegistry meterRegistry) throws IOException {
+        this.root = Paths.get(directory).toAbsolutePath();
+        this.temporaryDirectory = root.resolve("tmp");
+        this.photoRepository = photoRepository;
+        this.photoRenditionRepository = photoRenditionRepository;
+        this.bytesRead = StorageMetrics.bytes(meterRegistry, NAME, "read");
+        this.bytesWritten = StorageMetrics.bytes(meterRegistry, NAME, "write");
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        Files.createDirectories(temporaryDirectory);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean holds(StoredContent content) {
+        return content.getStorageKey() != null;
+    }
+
+    /**
+     * Write the data to the store (unless identical data is already there) and point the
+     * photo or rendition at it. A file written for a transaction that rolls back stays
+     * behind unreferenced, and is reused if the same data is uploaded again. Must run in the
+     * transaction that saves the reference, which keeps the file from being deleted meanwhile.
+     */
+    @Override
+    public void write(StoredContent content, InputStream data, long size) throws IOException {
+        // Files are named by their content, so an existing file with the known hash is a copy
+        String contentHash = content.getContentHash();
+        if (contentHash != null && KEY_PATTERN.matcher(contentHash).matches()) {
+            pin(contentHash);
+            if (Files.exists(pathOf(contentHash))) {
+                content.setStorageKey(contentHash);
+                content.setBlob(null);
+                return;
+            }
+        }
+
+        Path temp = Files.createTempFile(temporaryDirectory, "photo", ".tmp");
+        try {
+            MessageDigest digest = HashUtil.newSha256();
+            long written = 0;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+                 OutputStream out = new DigestOutputStream(Channels.newOutputStream(channel), digest)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = data.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    written += read;
+                }
+                out.flush();
+                channel.force(true);
+            }
+            if (written != size) {
+                throw new IOException("Expected " + size + " bytes of photo data but read " + written);
+            }
+
+            String key = HashUtil.toHex(digest.digest());
+            if (!key.equals(contentHash)) {
+                pin(key);
+            }
+            Path target = pathOf(key);
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                move(temp, target);
+                bytesWritten.increment(written);
+            }
+            content.setStorageKey(key);
+            content.setBlob(null);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * The file, counted in photo.storage.bytes as read in full: it is usually sent with
+     * sendfile, where the bytes are not seen by the application
+     */
+    @Override
+    public Resource read(StoredContent content) {
+        if (content.getFileSize() != null) {
+            bytesRead.increment(content.getFileSize());
+        }
+        return new FileSystemResource(pathOf(content.getStorageKey()));
+    }
+
+    /**
+     * After commit, delete the files no longer referenced by any photo or rendition, unless
+     * an upload in progress reuses them
+     */
+    @Override
+    public void delete(List<? extends StoredContent> contents) {
+        final List<String> keys = new ArrayList<String>(contents.size());
+        for (StoredContent content : contents) {
+            keys.add(content.getStorageKey());
+        }
+        TransactionUtil.afterCommit(() -> {
+            for (String key : keys) {
+                Lock lock = lockOf(key);
+                lock.lock();
+                try {
+                    if (pinnedKeys.containsKey(key)
+                            || photoRepository.existsByStorageKey(key)
+                            || photoRenditionRepository.existsByStorageKey(key)) {
+                        continue;
+                    }
+                    Files.deleteIfExists(pathOf(key));
+                } catch (IOException ex) {
+                    logger.warn("Could not delete photo file {}", key, ex);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        });
+    }
+
+    /**
+     * Keep the file of a key until the current transaction completes. A delete that already
+     * holds the key's lock finishes first.
+     */
+    private void pin(final String key) {
+        Lock lock = lockOf(key);
+        lock.lock();
+        try {
+            pinnedKeys.merge(key, 1, Integer::sum);
+        } finally {
+            lock.unlock();
+        }
+        TransactionUtil.afterCompletion(() -> pinnedKeys.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null));
+    }
+
+    private Lock lockOf(String key) {
+        return locks[(key.hashCode() & Integer.MAX_VALUE) % locks.length];
+    }
+
+    /**
+     * Sharded location of a key
+     */
+    Path pathOf(String key) {
+        if (key == null || !KEY_PATTERN.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid storage key " + key);
+        }
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target);
+        } catch (FileAlreadyExistsException ex) {
+            // Written concurrently by another upload of the same data
+        }
+    }
+}
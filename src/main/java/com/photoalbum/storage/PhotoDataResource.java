@@ -0,0 +1,149 @@
+package com.photoalbum.storage;
+
+import com.photoalbum.cache.ByteBufferCache;
+import com.photoalbum.repository.PhotoBlobRepositoryCustom;
+import io.micrometer.core.instrument.Counter;
+import org.springframework.core.io.AbstractResource;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Resource over a photo BLOB that streams from the database on demand.
+ * The content length comes from the photo metadata so serving never has to read the LOB
+ * up front, and skip() before the first read is turned into a positioned LOB read so
+ * HTTP range requests do not transfer the skipped bytes.
+ * <p>
+ * When the photo data cache admits the BLOB, the first read loads all of it into a cache
+ * buffer instead, so later requests are served from memory.
+ */
+class PhotoDataResource extends AbstractResource {
+
+    private final PhotoBlobRepositoryCustom blobRepository;
+    private final String blobId;
+    private final long contentLength;
+    private final ByteBufferCache cache;
+    private final String description;
+    private final Counter bytesRead;
+
+    /**
+     * @param bytesRead Counts the bytes read from the database
+     */
+    PhotoDataResource(PhotoBlobRepositoryCustom blobRepository, String blobId, long contentLength,
+                      String photoId, ByteBufferCache cache, Counter bytesRead) {
+        this.blobRepository = blobRepository;
+        this.cache = cache;
+        this.bytesRead = bytesRead;
+        this.blobId = blobId;
+        this.contentLength = contentLength;
+        this.description = "Photo data [" + photoId + "]";
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new PositionedStream();
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Opens the underlying LOB stream lazily, at the offset accumulated by leading skips
+     */
+    private class PositionedStream extends InputStream {
+
+        private long offset;
+        private InputStream delegate;
+        private boolean streaming;
+
+        private InputStream delegate() throws IOException {
+            if (delegate == null) {
+                if (cache.admits(blobId, contentLength)) {
+                    ByteBufferResource.BufferStream stream = new ByteBufferResource.BufferStream(load());
+                    stream.skip(offset);
+                    delegate = stream;
+                } else {
+                    delegate = blobRepository.openDataStream(blobId, offset);
+                    streaming = true;
+                }
+            }
+            return delegate;
+        }
+
+        /**
+         * Read the whole BLOB into a cache buffer and offer it to the cache
+         */
+        private ByteBuffer load() throws IOException {
+            long loadedAt = cache.generation();
+            ByteBuffer data = cache.allocate((int) contentLength);
+            try (InputStream in = blobRepository.openDataStream(blobId, 0);
+                 ReadableByteChannel channel = Channels.newChannel(in)) {
+                while (data.hasRemaining()) {
+                    if (channel.read(data) < 0) {
+                        throw new EOFException("Photo data " + blobId + " is shorter than " + contentLength + " bytes");
+                    }
+                }
+            }
+            data.flip();
+            bytesRead.increment(contentLength);
+            cache.put(blobId, data, loadedAt);
+            return data.asReadOnlyBuffer();
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate().read();
+            if (streaming && b >= 0) {
+                bytesRead.increment();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = delegate().read(b, off, len);
+            if (streaming && read > 0) {
+                bytesRead.increment(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (delegate != null) {
+                return delegate.skip(n);
+            }
+            long skipped = Math.max(0, Math.min(n, contentLength - offset));
+            offset += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return delegate != null ? delegate.available() : 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (delegate != null) {
+                delegate.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.photoalbum.storage;
+
+import com.photoalbum.model.StoredContent;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Backend that keeps the encoded bytes of photos and renditions.
+ * New data is written to the backend selected by app.storage.backend; existing data is
+ * read from and deleted in whichever backend holds it.
+ */
+public interface PhotoStorage {
+
+    /**
+     * Name of the backend, as used in app.storage.backend
+     */
+    String getName();
+
+    /**
+     * Whether this backend holds the data of a photo or rendition
+     */
+    boolean holds(StoredContent content);
+
+    /**
+     * Store the data of a photo or rendition that is saved (or updated) in the current
+     * transaction. The stream may be read as late as the next flush, so keep it open until then.
+     * @param content Photo or rendition to attach the data to
+     * @param data The encoded bytes
+     * @param size Number of bytes in the stream
+     * @throws IOException if the data cannot be stored
+     */
+    void write(StoredContent content, InputStream data, long size) throws IOException;
+
+    /**
+     * Store the data of photos and renditions saved (or updated) together in the current
+     * transaction, as {@link #write} does for each. Backends that look up existing data in the
+     * database do it for the whole batch at once.
+     * @param contents Photos and renditions to attach the data to
+     * @param data Opens the encoded bytes (getFileSize() of them) of a content; only called for
+     *             data the backend does not hold yet, and the streams must stay open until the
+     *             next flush
+     * @throws IOException if the data cannot be stored
+     */
+    default void writeAll(List<? extends StoredContent> contents, ContentData data) throws IOException {
+        for (StoredContent content : contents) {
+            write(content, data.open(content), content.getFileSize());
+        }
+    }
+
+    /**
+     * Get a resource over the stored data; nothing is read until the resource is
+     * @param content Photo or rendition held by this backend
+     * @return The data
+     */
+    Resource read(StoredContent content);
+
+    /**
+     * Delete the data of photos or renditions whose rows are deleted in the current transaction.
+     * Data that readers may still see is only removed once the transaction commits.
+     * @param contents Photos or renditions held by this backend
+     */
+    void delete(List<? extends StoredContent> contents);
+
+    /**
+     * Opens the encoded bytes of a photo or rendition to store
+     */
+    @FunctionalInterface
+    interface ContentData {
+        InputStream open(StoredContent content) throws IOException;
+    }
+}
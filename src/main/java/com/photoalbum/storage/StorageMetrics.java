@@ -0,0 +1,27 @@
+package com.photoalbum.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Meters shared by the storage backends
+ */
+final class StorageMetrics {
+
+    private StorageMetrics() {
+    }
+
+    /**
+     * Counter of photo and rendition bytes moved to or from a backend
+     * @param backend Backend name
+     * @param operation read or write
+     */
+    static Counter bytes(MeterRegistry meterRegistry, String backend, String operation) {
+        return Counter.builder("photo.storage.bytes")
+                .description("Photo and rendition data transferred to or from the storage backend")
+                .baseUnit("bytes")
+                .tag("backend", backend)
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+}
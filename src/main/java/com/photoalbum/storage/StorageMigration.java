@@ -0,0 +1,122 @@
+package com.photoalbum.storage;
+
+import com.photoalbum.model.StoredContent;
+import com.photoalbum.repository.PhotoRenditionRepository;
+import com.photoalbum.repository.PhotoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Moves photo and rendition data from the photo_blob table to the filesystem store.
+ * Enabled with app.storage.migrate-to-filesystem; runs in the background after startup while
+ * the album keeps serving, one photo or rendition per transaction, so it can be interrupted
+ * and restarted at any time. Each item is switched to its file and its BLOB reference released
+ * in the same transaction, so readers always find the data in one backend or the other.
+ */
+@Component
+public class StorageMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageMigration.class);
+
+    private final PhotoRepository photoRepository;
+    private final PhotoRenditionRepository photoRenditionRepository;
+    private final DatabasePhotoStorage databaseStorage;
+    private final FileSystemPhotoStorage fileSystemStorage;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+
+    public StorageMigration(
+            PhotoRepository photoRepository,
+            PhotoRenditionRepository photoRenditionRepository,
+            DatabasePhotoStorage databaseStorage,
+            FileSystemPhotoStorage fileSystemStorage,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.storage.migrate-to-filesystem}") boolean enabled,
+            @Value("${app.storage.migration-batch-size}") int batchSize) {
+        this.photoRepository = photoRepository;
+        this.photoRenditionRepository = photoRenditionRepository;
+        this.databaseStorage = databaseStorage;
+        this.fileSystemStorage = fileSystemStorage;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(this::migrateAll, "storage-migration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Move all data still in the photo_blob table to the filesystem store
+     * @return Number of photos and renditions moved
+     */
+    public int migrateAll() {
+        logger.info("Moving photo data from the database to the filesystem store");
+        int moved = migrate(photoRepository, photoRepository::findIdsStoredInDatabase)
+                + migrate(photoRenditionRepository, photoRenditionRepository::findIdsStoredInDatabase);
+        logger.info("Moved the data of {} photos and renditions to the filesystem store", moved);
+        return moved;
+    }
+
+    private <T extends StoredContent> int migrate(JpaRepository<T, String> repository,
+                                                  BiFunction<String, PageRequest, List<String>> findIds) {
+        int moved = 0;
+        String afterId = " ";
+        while (true) {
+            List<String> ids = findIds.apply(afterId, PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                return moved;
+            }
+            for (String id : ids) {
+                try {
+                    if (Boolean.TRUE.equals(transactionTemplate.execute(status -> migrateOne(repository, id)))) {
+                        moved++;
+                    }
+                } catch (Exception ex) {
+                    // Leave it in the database; it is picked up again by the next run
+                    logger.error("Could not move the data of {} to the filesystem store", id, ex);
+                }
+            }
+            afterId = ids.get(ids.size() - 1);
+        }
+    }
+
+    private <T extends StoredContent> boolean migrateOne(JpaRepository<T, String> repository, String id) {
+        T content = repository.findById(id).orElse(null);
+        if (content == null || content.getBlobId() == null) {
+            return false;
+        }
+
+        String blobId = content.getBlobId();
+        try (InputStream data = databaseStorage.openStream(blobId)) {
+            fileSystemStorage.write(content, data, content.getFileSize());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        repository.saveAndFlush(content);
+        databaseStorage.release(Collections.singletonList(blobId));
+        return true;
+    }
+}
@@ -0,0 +1,57 @@
+package com.photoalbum.util;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Executor that starts a new thread for each task and rejects tasks while a maximum number
+ * of them is running. Meant for virtual threads, where a thread per task is cheap but the
+ * work each task holds on to (staged files, memory) still has to be bounded.
+ */
+public class BoundedExecutor implements Executor {
+
+    private final ThreadFactory threadFactory;
+    private final int maxTasks;
+    private final Semaphore permits;
+
+    /**
+     * @param threadFactory Creates the thread of each task
+     * @param maxTasks Maximum number of tasks running at once
+     */
+    public BoundedExecutor(ThreadFactory threadFactory, int maxTasks) {
+        this.threadFactory = threadFactory;
+        this.maxTasks = maxTasks;
+        this.permits = new Semaphore(maxTasks);
+    }
+
+    /**
+     * @throws RejectedExecutionException if the maximum number of tasks is running
+     */
+    @Override
+    public void execute(final Runnable task) {
+        if (!permits.tryAcquire()) {
+            throw new RejectedExecutionException("All " + maxTasks + " tasks are running");
+        }
+        try {
+            threadFactory.newThread(() -> {
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            }).start();
+        } catch (RuntimeException | Error ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * Number of tasks currently running
+     */
+    public int getRunningTasks() {
+        return maxTasks - permits.availablePermits();
+    }
+}
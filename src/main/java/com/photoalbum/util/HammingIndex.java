@@ -0,0 +1,214 @@
+package com.photoalbum.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory index of 64-bit hashes for Hamming-distance range queries (multi-index hashing).
+ * Each hash is split into four 16-bit chunks and filed under every chunk value in a table per
+ * chunk. Two hashes within distance r differ in at most r / 4 bits in at least one chunk, so a
+ * query only probes the chunk values within r / 4 bits of its own chunks and checks the full
+ * distance of the entries found there, instead of comparing against every hash.
+ * <p>
+ * Not thread-safe; callers synchronize access.
+ */
+public class HammingIndex {
+
+    private static final int CHUNKS = 4;
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+    /**
+     * Slots filed under each chunk value, per chunk; buckets are allocated on first use
+     */
+    private final int[][][] buckets = new int[CHUNKS][1 << CHUNK_BITS][];
+    private final int[][] bucketSizes = new int[CHUNKS][1 << CHUNK_BITS];
+
+    private final Map<String, Integer> slotsById = new HashMap<String, Integer>();
+    private String[] ids = new String[16];
+    private long[] hashes = new long[16];
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int slotCount;
+
+    /**
+     * Add an entry, replacing any entry with the same ID
+     * @param id Entry ID
+     * @param hash The entry's hash
+     */
+    public void add(String id, long hash) {
+        Integer existing = slotsById.get(id);
+        if (existing != null) {
+            if (hashes[existing] == hash) {
+                return;
+            }
+            remove(id);
+        }
+
+        int slot = freeCount > 0 ? freeSlots[--freeCount] : nextSlot();
+        ids[slot] = id;
+        hashes[slot] = hash;
+        slotsById.put(id, slot);
+        for (int chunk = 0; chunk < CHUNKS; chunk++) {
+            int value = chunk(hash, chunk);
+            int[] bucket = buckets[chunk][value];
+            int size = bucketSizes[chunk][value];
+            if (bucket == null) {
+                bucket = new int[2];
+            } else if (bucket.length == size) {
+                bucket = Arrays.copyOf(bucket, size * 2);
+            }
+            bucket[size] = slot;
+            buckets[chunk][value] = bucket;
+            bucketSizes[chunk][value] = size + 1;
+        }
+    }
+
+    /**
+     * Remove an entry
+     * @param id Entry ID
+     * @return True if the entry was in the index
+     */
+    public boolean remove(String id) {
+        Integer slot = slotsById.remove(id);
+        if (slot == null) {
+            return false;
+        }
+        for (int chunk = 0; chunk < CHUNKS; chunk++) {
+            int value = chunk(hashes[slot], chunk);
+            int[] bucket = buckets[chunk][value];
+            int size = bucketSizes[chunk][value];
+            for (int i = 0; i < size; i++) {
+                if (bucket[i] == slot) {
+                    bucket[i] = bucket[size - 1];
+                    break;
+                }
+            }
+            bucketSizes[chunk][value] = size - 1;
+            if (size == 1) {
+                buckets[chunk][value] = null;
+            }
+        }
+        ids[slot] = null;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        return true;
+    }
+
+    /**
+     * Hash of an entry
+     * @param id Entry ID
+     * @return The hash, or null if the entry is not in the index
+     */
+    public Long get(String id) {
+        Integer slot = slotsById.get(id);
+        return slot != null ? hashes[slot] : null;
+    }
+
+    /**
+     * Number of entries
+     */
+    public int size() {
+        return slotsById.size();
+    }
+
+    /**
+     * Find all entries within a Hamming distance of a hash
+     * @param hash The query hash
+     * @param maxDistance Maximum number of differing bits
+     * @return Matches ordered by distance, then ID
+     */
+    public List<Match> search(long hash, int maxDistance) {
+        List<Match> matches = new ArrayList<Match>();
+        int chunkDistance = maxDistance / CHUNKS;
+        for (int chunk = 0; chunk < CHUNKS; chunk++) {
+            probe(hash, maxDistance, chunkDistance, chunk, chunk(hash, chunk), 0, chunkDistance, matches);
+        }
+        Collections.sort(matches);
+        return matches;
+    }
+
+    /**
+     * Visit the buckets of every chunk value within the remaining number of bit flips,
+     * flipping only bits from firstBit on so each value is visited once
+     */
+    private void probe(long hash, int maxDistance, int chunkDistance, int chunk, int value,
+                       int firstBit, int flips, List<Match> matches) {
+        collect(hash, maxDistance, chunkDistance, chunk, value, matches);
+        if (flips == 0) {
+            return;
+        }
+        for (int bit = firstBit; bit < CHUNK_BITS; bit++) {
+            probe(hash, maxDistance, chunkDistance, chunk, value ^ (1 << bit), bit + 1, flips - 1, matches);
+        }
+    }
+
+    private void collect(long hash, int maxDistance, int chunkDistance, int chunk, int value, List<Match> matches) {
+        int[] bucket = buckets[chunk][value];
+        int size = bucketSizes[chunk][value];
+        for (int i = 0; i < size; i++) {
+            long candidate = hashes[bucket[i]];
+            int distance = Long.bitCount(candidate ^ hash);
+            if (distance <= maxDistance && !foundInEarlierChunk(hash, candidate, chunk, chunkDistance)) {
+                matches.add(new Match(ids[bucket[i]], distance));
+            }
+        }
+    }
+
+    /**
+     * Whether a candidate was already reached through the probes of an earlier chunk
+     */
+    private static boolean foundInEarlierChunk(long hash, long candidate, int chunk, int chunkDistance) {
+        for (int earlier = 0; earlier < chunk; earlier++) {
+            if (Integer.bitCount(chunk(hash, earlier) ^ chunk(candidate, earlier)) <= chunkDistance) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int chunk(long hash, int chunk) {
+        return (int) (hash >>> (chunk * CHUNK_BITS)) & CHUNK_MASK;
+    }
+
+    private int nextSlot() {
+        if (slotCount == ids.length) {
+            ids = Arrays.copyOf(ids, slotCount * 2);
+            hashes = Arrays.copyOf(hashes, slotCount * 2);
+        }
+        return slotCount++;
+    }
+
+    /**
+     * An entry found by a search and its distance from the query hash
+     */
+    public static final class Match implements Comparable<Match> {
+
+        private final String id;
+        private final int distance;
+
+        Match(String id, int distance) {
+            this.id = id;
+            this.distance = distance;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public int getDistance() {
+            return distance;
+        }
+
+        @Override
+        public int compareTo(Match other) {
+            return distance != other.distance ? Integer.compare(distance, other.distance) : id.compareTo(other.id);
+        }
+    }
+}
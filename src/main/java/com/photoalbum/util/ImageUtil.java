@@ -0,0 +1,302 @@
+package com.photoalbum.util;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+/**
+ * Image probing, decoding, scaling and encoding utility functions
+ */
+public class ImageUtil {
+
+    /**
+     * JPEG quality used for encoded renditions
+     */
+    private static final float JPEG_QUALITY = 0.85f;
+
+    /**
+     * Detect the image format from the leading bytes of a file
+     * @param signature Leading bytes of the file
+     * @param length Number of valid bytes in signature
+     * @return image/jpeg, image/png, image/gif or image/webp, or null if not recognized
+     */
+    public static String sniffMimeType(byte[] signature, int length) {
+        if (startsWith(signature, length, 0, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(signature, length, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "image/png";
+        }
+        if (startsWith(signature, length, 0, 'G', 'I', 'F', '8', '7', 'a')
+                || startsWith(signature, length, 0, 'G', 'I', 'F', '8', '9', 'a')) {
+            return "image/gif";
+        }
+        if (startsWith(signature, length, 0, 'R', 'I', 'F', 'F')
+                && startsWith(signature, length, 8, 'W', 'E', 'B', 'P')) {
+            return "image/webp";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] data, int length, int offset, int... expected) {
+        if (length < offset + expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if ((data[offset + i] & 0xFF) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read the dimensions of an image from its header, without decoding any pixels
+     * @param input Stream over the encoded image
+     * @return {width, height}, or null if no ImageIO reader supports the format
+     * @throws IOException if the header cannot be read
+     */
+    public static int[] readDimensions(ImageInputStream input) throws IOException {
+        ImageReader reader = findReader(input);
+        if (reader == null) {
+            return null;
+        }
+        try {
+            reader.setInput(input, true, true);
+            return new int[] {reader.getWidth(0), reader.getHeight(0)};
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Decode an image using source subsampling so that the decoded raster is only as large
+     * as needed for downscaling to the target size. The subsampling factor keeps the decoded
+     * image at least twice the target in each constrained dimension, so the final scaling
+     * step still has enough pixels to anti-alias. Peak memory is therefore bounded by the
+     * target size rather than the source resolution.
+     * @param input Stream over the encoded image
+     * @param targetWidth Width the image will be scaled to, or 0 if unconstrained
+     * @param targetHeight Height the image will be scaled to, or 0 if unconstrained
+     * @return The decoded (possibly subsampled) image, or null if the format is not supported
+     * @throws IOException if decoding fails
+     */
+    public static BufferedImage readSubsampled(ImageInputStream input, int targetWidth, int targetHeight)
+            throws IOException {
+        ImageReader reader = findReader(input);
+        if (reader == null) {
+            return null;
+        }
+        try {
+            reader.setInput(input, true, true);
+            int factor = subsamplingFactor(reader.getWidth(0), reader.getHeight(0), targetWidth, targetHeight);
+            ImageReadParam param = reader.getDefaultReadParam();
+            if (factor > 1) {
+                param.setSourceSubsampling(factor, factor, 0, 0);
+            }
+            return reader.read(0, param);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Largest subsampling factor that keeps each constrained dimension at least twice its target
+     */
+    static int subsamplingFactor(int sourceWidth, int sourceHeight, int targetWidth, int targetHeight) {
+        int factor = Integer.MAX_VALUE;
+        if (targetWidth > 0) {
+            factor = Math.min(factor, sourceWidth / (targetWidth * 2));
+        }
+        if (targetHeight > 0) {
+            factor = Math.min(factor, sourceHeight / (targetHeight * 2));
+        }
+        return factor == Integer.MAX_VALUE ? 1 : Math.max(1, factor);
+    }
+
+    private static ImageReader findReader(ImageInputStream input) {
+        if (input == null) {
+            return null;
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        return readers.hasNext() ? readers.next() : null;
+    }
+
+    /**
+     * Downscale an image to the given width, preserving the aspect ratio.
+     * Uses progressive halving with bilinear interpolation followed by a final bicubic step,
+     * which avoids the aliasing of a single large-factor scale.
+     * @param source The source image
+     * @param targetWidth Target width in pixels (must be smaller than the source width)
+     * @return The scaled image
+     */
+    public static BufferedImage scaleToWidth(BufferedImage source, int targetWidth) {
+        int targetHeight = Math.max(1, (int) Math.round((double) source.getHeight() * targetWidth / source.getWidth()));
+        return scale(source, targetWidth, targetHeight);
+    }
+
+    /**
+     * Downscale an image to exact dimensions using progressive halving
+     * @param source The source image
+     * @param targetWidth Target width in pixels
+     * @param targetHeight Target height in pixels
+     * @return The scaled image
+     */
+    public static BufferedImage scale(BufferedImage source, int targetWidth, int targetHeight) {
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+
+        // Halve while more than twice the target so each step samples every source pixel
+        while (width / 2 >= targetWidth && height / 2 >= targetHeight) {
+            width /= 2;
+            height /= 2;
+            current = draw(current, width, height, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        }
+
+        if (width != targetWidth || height != targetHeight) {
+            current = draw(current, targetWidth, targetHeight, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        }
+        return current;
+    }
+
+    /**
+     * Scale an image so it covers the given box, then crop the overflow around the center
+     * @param source The source image
+     * @param boxWidth Box width in pixels
+     * @param boxHeight Box height in pixels
+     * @return Image of exactly boxWidth x boxHeight
+     */
+    public static BufferedImage cover(BufferedImage source, int boxWidth, int boxHeight) {
+        double scale = Math.max((double) boxWidth / source.getWidth(), (double) boxHeight / source.getHeight());
+        int scaledWidth = Math.max(boxWidth, (int) Math.round(source.getWidth() * scale));
+        int scaledHeight = Math.max(boxHeight, (int) Math.round(source.getHeight() * scale));
+        BufferedImage scaled = scale(source, scaledWidth, scaledHeight);
+        if (scaledWidth == boxWidth && scaledHeight == boxHeight) {
+            return scaled;
+        }
+        return scaled.getSubimage((scaledWidth - boxWidth) / 2, (scaledHeight - boxHeight) / 2, boxWidth, boxHeight);
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, Object interpolation) {
+        int type = hasAlpha(source) ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage target = new BufferedImage(width, height, type);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * Perceptual difference hash (dHash) of an image: the image is reduced to 9x8 grey pixels
+     * and each bit tells whether a pixel is brighter than its right neighbour. Resized and
+     * re-encoded copies of an image get the same or a nearby hash, so the Hamming distance
+     * between two hashes measures how different the images look.
+     * @param image The image, at any size of at least 9x8 pixels for a meaningful hash
+     * @return 64-bit hash, row by row with the first pixel in the most significant bit
+     */
+    public static long differenceHash(BufferedImage image) {
+        BufferedImage small = scale(image, 9, 8);
+        long hash = 0;
+        for (int y = 0; y < 8; y++) {
+            int left = luminance(small.getRGB(0, y));
+            for (int x = 1; x < 9; x++) {
+                int right = luminance(small.getRGB(x, y));
+                hash = (hash << 1) | (left > right ? 1 : 0);
+                left = right;
+            }
+        }
+        return hash;
+    }
+
+    private static int luminance(int rgb) {
+        return (((rgb >> 16) & 0xFF) * 299 + ((rgb >> 8) & 0xFF) * 587 + (rgb & 0xFF) * 114) / 1000;
+    }
+
+    /**
+     * Check whether an image has an alpha channel
+     * @param image The image to check
+     * @return True if the image has transparency information
+     */
+    public static boolean hasAlpha(BufferedImage image) {
+        return image.getColorModel().hasAlpha();
+    }
+
+    /**
+     * MIME type used when encoding the given image with {@link #encode(BufferedImage)}
+     * @param image The image to encode
+     * @return image/png for images with alpha, image/jpeg otherwise
+     */
+    public static String encodedMimeType(BufferedImage image) {
+        return hasAlpha(image) ? "image/png" : "image/jpeg";
+    }
+
+    /**
+     * File extension matching {@link #encodedMimeType(BufferedImage)}
+     * @param image The image to encode
+     * @return png or jpg
+     */
+    public static String encodedExtension(BufferedImage image) {
+        return hasAlpha(image) ? "png" : "jpg";
+    }
+
+    /**
+     * Encode an image as PNG (with alpha) or JPEG (opaque)
+     * @param image The image to encode
+     * @return Encoded image bytes
+     * @throws IOException if encoding fails
+     */
+    public static byte[] encode(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encode(image, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Encode an image as PNG (with alpha) or JPEG (opaque) to a stream
+     * @param image The image to encode
+     * @param out Stream to write to (not closed)
+     * @throws IOException if encoding fails
+     */
+    public static void encode(BufferedImage image, OutputStream out) throws IOException {
+        if (hasAlpha(image)) {
+            if (!ImageIO.write(image, "png", out)) {
+                throw new IOException("No PNG writer available");
+            }
+            return;
+        }
+
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) {
+            throw new IOException("No JPEG writer available");
+        }
+        ImageWriter writer = writers.next();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+}
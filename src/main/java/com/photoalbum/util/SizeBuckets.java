@@ -0,0 +1,79 @@
+package com.photoalbum.util;
+
+import java.util.Map;
+
+/**
+ * Log-linear buckets for file sizes: every power of two is split into four equal
+ * sub-buckets, so a bucket's bounds are within 25% of any size in it. Used to keep
+ * a small size histogram from which percentiles can be estimated.
+ */
+public class SizeBuckets {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Bucket index of a size
+     * @param size Size in bytes (negative sizes count as 0)
+     * @return Bucket index, increasing with size
+     */
+    public static int bucketOf(long size) {
+        if (size < SUB_BUCKETS) {
+            return (int) Math.max(size, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(size);
+        int mantissa = (int) (size >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS * (exponent - SUB_BUCKET_BITS + 1) + mantissa;
+    }
+
+    /**
+     * Smallest size in a bucket
+     */
+    public static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long mantissa = bucket % SUB_BUCKETS;
+        return (SUB_BUCKETS + mantissa) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * Smallest size of the next bucket (exclusive upper bound)
+     */
+    public static long upperBound(int bucket) {
+        return lowerBound(bucket + 1);
+    }
+
+    /**
+     * Estimate a percentile from bucket counts, interpolating linearly inside the bucket
+     * @param counts Photo count per bucket, iterated in ascending bucket order
+     * @param quantile Quantile between 0 and 1, e.g. 0.9 for the 90th percentile
+     * @return Estimated size, or 0 if there are no photos
+     */
+    public static long percentile(Map<Integer, Long> counts, double quantile) {
+        long total = 0;
+        for (long count : counts.values()) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (Map.Entry<Integer, Long> bucket : counts.entrySet()) {
+            long count = bucket.getValue();
+            if (count <= 0) {
+                continue;
+            }
+            if (seen + count >= rank) {
+                long lower = lowerBound(bucket.getKey());
+                long width = upperBound(bucket.getKey()) - lower;
+                return lower + Math.round((double) width * (rank - seen) / count) - 1;
+            }
+            seen += count;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,66 @@
+package com.photoalbum.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual threads, looked up reflectively: they need a JDK 21 runtime while the application
+ * is built for Java 17
+ */
+public class VirtualThreads {
+
+    /**
+     * Whether the running JDK has virtual threads
+     */
+    public static boolean isSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Factory of virtual threads named prefix0, prefix1, ...
+     * @param prefix Thread name prefix
+     * @throws IllegalStateException if the JDK has no virtual threads
+     */
+    public static ThreadFactory factory(String prefix) {
+        try {
+            Class<?> ofVirtual = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = ofVirtual.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) ofVirtual.getMethod("factory").invoke(builder);
+        } catch (ClassNotFoundException | NoSuchMethodException ex) {
+            throw unsupported();
+        } catch (IllegalAccessException | InvocationTargetException ex) {
+            throw new IllegalStateException("Could not create a virtual thread factory", ex);
+        }
+    }
+
+    /**
+     * Executor that starts a new virtual thread for each task
+     * @param prefix Thread name prefix
+     * @throws IllegalStateException if the JDK has no virtual threads
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        ThreadFactory factory = factory(prefix);
+        try {
+            Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) method.invoke(null, factory);
+        } catch (NoSuchMethodException ex) {
+            throw unsupported();
+        } catch (IllegalAccessException | InvocationTargetException ex) {
+            throw new IllegalStateException("Could not create a virtual thread executor", ex);
+        }
+    }
+
+    private static IllegalStateException unsupported() {
+        return new IllegalStateException("Virtual threads need Java 21 or later, running on Java "
+            + System.getProperty("java.specification.version"));
+    }
+}
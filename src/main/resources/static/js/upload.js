@@ -7,6 +7,7 @@
     const uploadForm = document.getElementById('upload-form');
     const uploadFeedback = document.getElementById('upload-feedback');
     const uploadProgress = document.getElementById('upload-progress');
+    const uploadProgressText = document.getElementById('upload-progress-text');
     const uploadSuccess = document.getElementById('upload-success');
     const uploadErrors = document.getElementById('upload-errors');
     const photoGallery = document.getElementById('photo-gallery');
@@ -87,9 +88,13 @@
         }
     }
 
+    // Interval between upload job status requests while the server processes an upload
+    const uploadPollInterval = 1000;
+
     async function uploadFiles(files) {
         // Show progress
         uploadFeedback.classList.remove('d-none');
+        setProgressText('Uploading photos...');
         uploadProgress.classList.remove('d-none');
         uploadSuccess.classList.add('d-none');
         uploadErrors.classList.add('d-none');
@@ -100,16 +105,23 @@
         });
 
         try {
-            const response = await fetch('/upload', {
+            // The server stages the files and answers 202 with a job to poll while it
+            // decodes and saves them, so the request does not wait for the processing
+            const response = await fetch('/upload?async=true', {
                 method: 'POST',
                 body: formData
             });
 
-            uploadProgress.classList.add('d-none');
+            let result = null;
+            if (response.status === 202) {
+                result = await pollUploadJob(await response.json());
+            } else if (response.ok) {
+                result = await response.json();
+            }
 
-            if (response.ok) {
-                const result = await response.json();
+            uploadProgress.classList.add('d-none');
 
+            if (result) {
                 if (result.uploadedPhotos && result.uploadedPhotos.length > 0) {
                     showSuccess(`Successfully uploaded ${result.uploadedPhotos.length} photo(s)!`);
                     displayNewPhotos(result.uploadedPhotos);
@@ -122,6 +134,8 @@
 
                 // Reset file input
                 fileInput.value = '';
+            } else if (response.status === 503) {
+                showErrors(['The server is busy processing other uploads. Please try again shortly.']);
             } else {
                 showErrors(['Upload failed. Please try again.']);
             }
@@ -132,6 +146,30 @@
         }
     }
 
+    // Poll an upload job until it is completed; returns the completed job with its results,
+    // or null if its status can no longer be read
+    async function pollUploadJob(job) {
+        while (job.status !== 'COMPLETED') {
+            setProgressText(job.status === 'QUEUED'
+                ? 'Waiting to process photos...'
+                : `Processing photos (${job.processedFiles} of ${job.totalFiles})...`);
+            await new Promise(resolve => setTimeout(resolve, uploadPollInterval));
+
+            const response = await fetch(job.statusUrl, { cache: 'no-store' });
+            if (!response.ok) {
+                return null;
+            }
+            job = await response.json();
+        }
+        return job;
+    }
+
+    function setProgressText(text) {
+        if (uploadProgressText) {
+            uploadProgressText.textContent = text;
+        }
+    }
+
     function displayNewPhotos(photos) {
         // Remove "no photos" message if it exists
         const alertInfo = document.querySelector('#gallery-section .alert-info');
@@ -153,12 +191,61 @@
 
         // Add photos to the beginning of the gallery
         photos.forEach((photo) => {
-            const photoCard = createPhotoCard(photo);
-            galleryElement.insertAdjacentHTML('afterbegin', photoCard);
+            galleryElement.prepend(createPhotoCard(photo, 'eager'));
         });
     }
 
-    function createPhotoCard(photo) {
+    // Infinite scroll: fetch the next page of older photos when the sentinel below the
+    // gallery comes into view. Pages are keyed by cursor, so new uploads don't shift them.
+    const gallerySentinel = document.getElementById('gallery-sentinel');
+    let nextCursor = gallerySentinel ? gallerySentinel.dataset.nextCursor : null;
+    let loadingPage = false;
+
+    if (gallerySentinel && nextCursor && 'IntersectionObserver' in window) {
+        const observer = new IntersectionObserver((entries) => {
+            if (entries.some(entry => entry.isIntersecting)) {
+                loadNextPage(observer);
+            }
+        }, { rootMargin: '600px 0px' });
+        observer.observe(gallerySentinel);
+    }
+
+    async function loadNextPage(observer) {
+        if (loadingPage || !nextCursor) {
+            return;
+        }
+        loadingPage = true;
+
+        try {
+            const response = await fetch(`/api/photos?cursor=${encodeURIComponent(nextCursor)}`);
+            if (!response.ok) {
+                throw new Error(`HTTP ${response.status}`);
+            }
+            const page = await response.json();
+
+            const galleryElement = document.getElementById('photo-gallery');
+            page.photos.forEach((photo) => {
+                galleryElement.append(createPhotoCard(photo, 'lazy'));
+            });
+
+            nextCursor = page.nextCursor;
+            if (!nextCursor) {
+                observer.disconnect();
+                gallerySentinel.innerHTML = '';
+            } else {
+                // Re-observe so a sentinel that is still in view triggers the next page
+                observer.unobserve(gallerySentinel);
+                observer.observe(gallerySentinel);
+            }
+        } catch (error) {
+            console.error('Error loading photos:', error);
+        } finally {
+            loadingPage = false;
+        }
+    }
+
+    // Cards are built from DOM nodes, never HTML strings: file names come from other users' uploads
+    function createPhotoCard(photo, loading) {
         const uploadDate = new Date(photo.uploadedAt);
         const formattedDate = uploadDate.toLocaleString('en-US', {
             month: 'short',
@@ -173,33 +260,41 @@
             ? ` • ${photo.width} x ${photo.height}`
             : '';
 
-        // Use photo URL with current timestamp to bypass all caching
-        const timestamp = new Date().getTime();
-        const photoUrl = `/photo/${photo.id}?_t=${timestamp}`;
-        const detailUrl = `/detail/${photo.id}`;
-
-        return `
-            <div class="col-12 col-sm-6 col-md-4 col-lg-3 mb-4">
-                <div class="card photo-card h-100">
-                    <a href="${detailUrl}" class="photo-link">
-                        <img src="${photoUrl}" class="card-img-top" alt="${photo.originalFileName}" loading="eager">
-                    </a>
-                    <div class="card-body">
-                        <p class="card-text text-truncate" title="${photo.originalFileName}">
-                            <small><a href="${detailUrl}" class="text-decoration-none text-dark">${photo.originalFileName}</a></small>
-                        </p>
-                        <p class="card-text">
-                            <small class="text-muted">${formattedDate}</small>
-                        </p>
-                        <p class="card-text">
-                            <small class="text-muted">
-                                ${Math.round(photo.fileSize / 1024)} KB${dimensions}
-                            </small>
-                        </p>
-                    </div>
-                </div>
-            </div>
-        `;
+        // Photo URLs are immutable (new uploads get new IDs), so they can be cached
+        const id = encodeURIComponent(photo.id);
+        const photoUrl = `/photo/${id}/thumb`;
+        const detailUrl = `/detail/${id}`;
+
+        const image = element('img', 'card-img-top');
+        image.src = photoUrl;
+        image.alt = photo.originalFileName;
+        image.loading = loading;
+        const imageLink = element('a', 'photo-link', image);
+        imageLink.href = detailUrl;
+
+        const nameLink = element('a', 'text-decoration-none text-dark', photo.originalFileName);
+        nameLink.href = detailUrl;
+        const name = element('p', 'card-text text-truncate', element('small', null, nameLink));
+        name.title = photo.originalFileName;
+
+        const body = element('div', 'card-body',
+            name,
+            element('p', 'card-text', element('small', 'text-muted', formattedDate)),
+            element('p', 'card-text',
+                element('small', 'text-muted', `${Math.round(photo.fileSize / 1024)} KB${dimensions}`)));
+
+        return element('div', 'col-12 col-sm-6 col-md-4 col-lg-3 mb-4',
+            element('div', 'card photo-card h-100', imageLink, body));
+    }
+
+    // Create an element; string children are added as text
+    function element(tag, className, ...children) {
+        const node = document.createElement(tag);
+        if (className) {
+            node.className = className;
+        }
+        node.append(...children);
+        return node;
     }
 
     function showSuccess(message) {
@@ -213,9 +308,9 @@
     }
 
     function showErrors(errors) {
-        uploadErrors.innerHTML = '<strong>Upload errors:</strong><ul class="mb-0 mt-2">' +
-            errors.map(e => `<li>${e}</li>`).join('') +
-            '</ul>';
+        uploadErrors.replaceChildren(
+            element('strong', null, 'Upload errors:'),
+            element('ul', 'mb-0 mt-2', ...errors.map(e => element('li', null, e))));
         uploadErrors.classList.remove('d-none');
     }
 })();
\ No newline at end of file
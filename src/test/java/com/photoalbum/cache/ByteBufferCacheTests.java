@@ -0,0 +1,94 @@
+package com.photoalbum.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ByteBufferCacheTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void keepsFrequentlyReadEntriesDuringScan() {
+        ByteBufferCache cache = new ByteBufferCache("test", 10 * 100, 100, meterRegistry);
+        for (int i = 0; i < 10; i++) {
+            load(cache, "hot-" + i, 100);
+        }
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 10; i++) {
+                assertNotNull(cache.get("hot-" + i));
+            }
+        }
+
+        // A scan of one-off reads is not admitted over the frequently read entries
+        for (int i = 0; i < 1000; i++) {
+            load(cache, "scan-" + i, 100);
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(cache.get("hot-" + i));
+        }
+        assertEquals(1000, cache.getSizeBytes());
+        assertTrue(meterRegistry.counter("memory.cache.rejections", "cache", "test").count() >= 1000);
+    }
+
+    @Test
+    void evictsLessFrequentEntriesToStayWithinBudget() {
+        ByteBufferCache cache = new ByteBufferCache("test", 300, 100, meterRegistry);
+        load(cache, "a", 100);
+        load(cache, "b", 100);
+        load(cache, "c", 100);
+
+        // "d" was requested more often than "a", the eldest entry
+        for (int i = 0; i < 3; i++) {
+            load(cache, "d", 100);
+        }
+
+        assertNull(cache.get("a"));
+        assertNotNull(cache.get("d"));
+        assertEquals(300, cache.getSizeBytes());
+        assertEquals(1, meterRegistry.counter("memory.cache.evictions", "cache", "test").count());
+    }
+
+    @Test
+    void rejectsOversizedAndInvalidatedLoads() {
+        ByteBufferCache cache = new ByteBufferCache("test", 1000, 100, meterRegistry);
+        assertFalse(cache.admits("big", 101));
+
+        long loadedAt = cache.generation();
+        cache.invalidate("other");
+        assertFalse(cache.put("stale", buffer(10), loadedAt));
+
+        load(cache, "photo", 10);
+        ByteBuffer cached = cache.get("photo");
+        assertEquals(10, cached.remaining());
+        assertTrue(cached.isReadOnly());
+
+        cache.invalidate("photo");
+        assertNull(cache.get("photo"));
+        assertEquals(0, cache.getSizeBytes());
+    }
+
+    /**
+     * Request a key and load it on a miss, as the photo serving path does
+     */
+    private static void load(ByteBufferCache cache, String key, int size) {
+        if (cache.get(key) == null && cache.admits(key, size)) {
+            cache.put(key, buffer(size), cache.generation());
+        }
+    }
+
+    private static ByteBuffer buffer(int size) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+        buffer.position(size);
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,144 @@
+package com.photoalbum.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiskLruCacheTests {
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void coalescesConcurrentMissesForSameKey() throws Exception {
+        DiskLruCache cache = new DiskLruCache("test", directory, 1024 * 1024, meterRegistry);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Path>> results = new ArrayList<Future<Path>>();
+            for (int i = 0; i < 100; i++) {
+                results.add(executor.submit(() -> cache.get("photo/w320", target -> {
+                    loads.incrementAndGet();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException ex) {
+                        throw new InterruptedIOException();
+                    }
+                    Files.write(target, new byte[] {1, 2, 3});
+                    return "jpg";
+                })));
+            }
+            Thread.sleep(200);
+            release.countDown();
+
+            Path first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<Path> result : results) {
+                assertEquals(first, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.counter("disk.cache.gets", "cache", "test", "result", "miss").count());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntriesOverBudget() throws Exception {
+        DiskLruCache cache = new DiskLruCache("test", directory, 250, meterRegistry);
+        Path a = cache.get("a", target -> write(target, 100));
+        Path b = cache.get("b", target -> write(target, 100));
+        cache.get("a", target -> write(target, 100));
+        cache.get("c", target -> write(target, 100));
+
+        assertTrue(Files.exists(a));
+        assertFalse(Files.exists(b));
+        assertEquals(200, cache.getSizeBytes());
+        assertEquals(1.0, meterRegistry.counter("disk.cache.evictions", "cache", "test").count());
+        assertEquals(1.0, meterRegistry.counter("disk.cache.gets", "cache", "test", "result", "hit").count());
+    }
+
+    @Test
+    void reindexesExistingFilesOnStartup() throws Exception {
+        DiskLruCache cache = new DiskLruCache("test", directory, 1024, meterRegistry);
+        cache.get("a", target -> write(target, 100));
+
+        DiskLruCache reopened = new DiskLruCache("reopened", directory, 1024, meterRegistry);
+        reopened.get("a", target -> {
+            throw new AssertionError("Entry should have been found on disk");
+        });
+        assertEquals(100, reopened.getSizeBytes());
+    }
+
+    @Test
+    void removesAllEntriesOfAGroupAlsoAfterRestart() throws Exception {
+        DiskLruCache cache = new DiskLruCache("test", directory, 1024, meterRegistry);
+        Path small = cache.get("photo-1/w100", target -> write(target, 100));
+        cache.get("photo-2/w100", target -> write(target, 100));
+
+        DiskLruCache reopened = new DiskLruCache("reopened", directory, 1024, meterRegistry);
+        reopened.get("photo-1/w200", target -> write(target, 200));
+
+        assertEquals(2, reopened.removeGroup("photo-1"));
+        assertFalse(Files.exists(small));
+        assertEquals(1, reopened.getEntryCount());
+        assertEquals(100, reopened.getSizeBytes());
+        assertEquals(0, reopened.removeGroup("photo-1"));
+    }
+
+    @Test
+    void openedEntriesStayReadableWhenRemovedOrEvicted() throws Exception {
+        DiskLruCache cache = new DiskLruCache("test", directory, 250, meterRegistry);
+        try (CachedFileResource removed = cache.open("photo-1/w100", target -> write(target, 100));
+             CachedFileResource evicted = cache.open("photo-2/w100", target -> write(target, 120))) {
+            assertEquals("bin", StringUtils.getFilenameExtension(removed.getFilename()));
+
+            cache.removeGroup("photo-1");
+            cache.get("photo-3/w100", target -> write(target, 200));
+            assertEquals(1, cache.getEntryCount());
+
+            assertEquals(100, StreamUtils.copyToByteArray(removed.getInputStream()).length);
+            assertEquals(120, StreamUtils.copyToByteArray(evicted.getInputStream()).length);
+        }
+    }
+
+    @Test
+    void reloadsEntriesWhoseFileWasDeleted() throws Exception {
+        DiskLruCache cache = new DiskLruCache("test", directory, 1024, meterRegistry);
+        AtomicInteger loads = new AtomicInteger();
+        Files.delete(cache.get("a", target -> write(target, 100 + loads.incrementAndGet())));
+
+        try (CachedFileResource reloaded = cache.open("a", target -> write(target, 100 + loads.incrementAndGet()))) {
+            assertEquals(102, reloaded.contentLength());
+        }
+        assertEquals(102, cache.getSizeBytes());
+    }
+
+    private static String write(Path target, int size) throws IOException {
+        Files.write(target, new byte[size]);
+        return "bin";
+    }
+}
@@ -0,0 +1,98 @@
+package com.photoalbum.controller;
+
+import com.photoalbum.model.Photo;
+import com.photoalbum.model.PhotoMonthCount;
+import com.photoalbum.model.UploadResult;
+import com.photoalbum.repository.PhotoRepository;
+import com.photoalbum.service.PhotoService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ArchiveApiControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private PhotoService photoService;
+
+    @Test
+    void listsPhotosOfMonthUsingHalfOpenRange() throws Exception {
+        save("20000000-0000-0000-0000-000000000001", LocalDateTime.of(2001, 2, 1, 0, 0));
+        save("20000000-0000-0000-0000-000000000002", LocalDateTime.of(2001, 2, 28, 23, 59, 59));
+        save("20000000-0000-0000-0000-000000000003", LocalDateTime.of(2001, 3, 1, 0, 0));
+
+        mockMvc.perform(get("/api/archive/2001-02"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value("20000000-0000-0000-0000-000000000002"))
+                .andExpect(jsonPath("$[1].id").value("20000000-0000-0000-0000-000000000001"));
+    }
+
+    @Test
+    void maintainsMonthHistogramOnUploadAndDelete() throws Exception {
+        String month = YearMonth.now().toString();
+        long before = countFor(month);
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB), "png", png);
+        UploadResult result = photoService.uploadPhoto(
+                new MockMultipartFile("files", "month.png", "image/png", png.toByteArray()));
+        assertEquals(before + 1, countFor(month));
+
+        mockMvc.perform(get("/api/archive"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].month", hasItem(month)));
+        mockMvc.perform(get("/api/archive/{month}", month))
+                .andExpect(jsonPath("$[*].id", hasItem(result.getPhotoId())));
+
+        photoService.deletePhoto(result.getPhotoId());
+        assertEquals(before, countFor(month));
+    }
+
+    @Test
+    void rejectsMalformedMonth() throws Exception {
+        mockMvc.perform(get("/api/archive/2001-13"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private long countFor(String month) {
+        for (PhotoMonthCount count : photoService.getMonthHistogram()) {
+            if (count.getMonth().equals(month)) {
+                return count.getPhotoCount();
+            }
+        }
+        return 0;
+    }
+
+    private void save(String id, LocalDateTime uploadedAt) {
+        Photo photo = new Photo(id + ".jpg", new byte[] {1, 2, 3}, id + ".jpg", "/uploads/" + id + ".jpg",
+                3L, "image/jpeg");
+        photo.setId(id);
+        photo.setUploadedAt(uploadedAt);
+        photoRepository.save(photo);
+    }
+}
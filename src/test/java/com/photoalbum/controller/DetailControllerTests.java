@@ -0,0 +1,62 @@
+package com.photoalbum.controller;
+
+import com.photoalbum.model.Photo;
+import com.photoalbum.repository.PhotoRepository;
+import com.photoalbum.service.PhotoService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class DetailControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private PhotoService photoService;
+
+    @Test
+    void navigatesByUploadTimeWithIdAsTieBreaker() throws Exception {
+        LocalDateTime time = LocalDateTime.of(1970, 1, 2, 12, 0);
+        Photo oldest = save("00000000-0000-0000-0000-000000000001", time.minusDays(1));
+        Photo first = save("00000000-0000-0000-0000-000000000002", time);
+        Photo second = save("00000000-0000-0000-0000-000000000003", time);
+
+        mockMvc.perform(get("/detail/{id}", first.getId()))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("previousPhotoId", oldest.getId()))
+                .andExpect(model().attribute("nextPhotoId", second.getId()));
+
+        mockMvc.perform(get("/detail/{id}", second.getId()))
+                .andExpect(model().attribute("previousPhotoId", first.getId()));
+
+        // Deleting a photo invalidates the cached neighbors of the others
+        photoService.deletePhoto(oldest.getId());
+        mockMvc.perform(get("/detail/{id}", first.getId()))
+                .andExpect(model().attribute("previousPhotoId", (Object) null))
+                .andExpect(model().attribute("nextPhotoId", second.getId()));
+    }
+
+    private Photo save(String id, LocalDateTime uploadedAt) {
+        Photo photo = new Photo(id + ".jpg", new byte[] {1, 2, 3}, id + ".jpg", "/uploads/" + id + ".jpg",
+                3L, "image/jpeg");
+        photo.setId(id);
+        photo.setUploadedAt(uploadedAt);
+        return photoRepository.save(photo);
+    }
+}
@@ -0,0 +1,160 @@
+package com.photoalbum.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.photoalbum.service.impl.UploadAdmission;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.YearMonth;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class HomeControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UploadAdmission uploadAdmission;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void uploadsFilesTogetherAndReportsEachResult() throws Exception {
+        mockMvc.perform(multipart("/upload")
+                        .file(new MockMultipartFile("files", "first.png", "image/png", png(40, 30)))
+                        .file(new MockMultipartFile("files", "notes.txt", "text/plain", "hello".getBytes()))
+                        .file(new MockMultipartFile("files", "second.png", "image/png", png(400, 300))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.uploadedPhotos.length()").value(2))
+                .andExpect(jsonPath("$.uploadedPhotos[0].originalFileName").value("first.png"))
+                .andExpect(jsonPath("$.uploadedPhotos[0].width").value(40))
+                .andExpect(jsonPath("$.uploadedPhotos[1].originalFileName").value("second.png"))
+                .andExpect(jsonPath("$.uploadedPhotos[1].height").value(300))
+                .andExpect(jsonPath("$.failedUploads.length()").value(1))
+                .andExpect(jsonPath("$.failedUploads[0].fileName").value("notes.txt"));
+    }
+
+    @Test
+    void rendersMonthWithTimeline() throws Exception {
+        mockMvc.perform(multipart("/upload")
+                        .file(new MockMultipartFile("files", "timeline.png", "image/png", png(20, 20))))
+                .andExpect(status().isOk());
+
+        String month = YearMonth.now().toString();
+        mockMvc.perform(get("/").param("month", month))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("timeline.png")))
+                .andExpect(content().string(containsString("/?month=" + month)))
+                .andExpect(content().string(containsString("align-items-center active")));
+    }
+
+    @Test
+    void revalidatesGalleryUntilAlbumChanges() throws Exception {
+        String eTag = mockMvc.perform(get("/"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_HTML))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(multipart("/upload")
+                        .file(new MockMultipartFile("files", "new-version.png", "image/png", png(20, 20))))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+                .andExpect(content().string(containsString("new-version.png")));
+    }
+
+    @Test
+    void acceptsAsyncUploadAndReportsJobStatus() throws Exception {
+        String body = mockMvc.perform(multipart("/upload")
+                        .file(new MockMultipartFile("files", "queued.png", "image/png", png(500, 400)))
+                        .file(new MockMultipartFile("files", "queued.txt", "text/plain", "hello".getBytes()))
+                        .param("async", "true"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists(HttpHeaders.LOCATION))
+                .andExpect(jsonPath("$.totalFiles").value(2))
+                .andReturn().getResponse().getContentAsString();
+        String statusUrl = objectMapper.readTree(body).get("statusUrl").asText();
+
+        JsonNode job = objectMapper.readTree(body);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!"COMPLETED".equals(job.get("status").asText()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            job = objectMapper.readTree(mockMvc.perform(get(statusUrl))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+        }
+
+        assertEquals("COMPLETED", job.get("status").asText());
+        assertEquals(2, job.get("processedFiles").asInt());
+        assertEquals("queued.png", job.get("uploadedPhotos").get(0).get("originalFileName").asText());
+        assertEquals(400, job.get("uploadedPhotos").get(0).get("height").asInt());
+        assertEquals("queued.txt", job.get("failedUploads").get(0).get("fileName").asText());
+
+        mockMvc.perform(get("/api/uploads/{jobId}", "no-such-job"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shedsUploadsWhileBudgetIsExhausted() throws Exception {
+        // Take the whole byte budget, as a burst of large uploads would
+        int permits = uploadAdmission.reserveBytes(Long.MAX_VALUE);
+        try {
+            assertTrue(meterRegistry.get("upload.admission.bytes.in.use").gauge().value() > 0);
+            mockMvc.perform(multipart("/upload")
+                            .file(new MockMultipartFile("files", "shed.png", "image/png", png(20, 20))))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "5"))
+                    .andExpect(jsonPath("$.success").value(false));
+        } finally {
+            uploadAdmission.releaseBytes(permits);
+        }
+
+        mockMvc.perform(multipart("/upload")
+                        .file(new MockMultipartFile("files", "admitted.png", "image/png", png(20, 20))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true));
+        assertEquals(0, uploadAdmission.getBytesInUse());
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+}
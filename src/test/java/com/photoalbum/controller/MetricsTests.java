@@ -0,0 +1,58 @@
+package com.photoalbum.controller;
+
+import com.photoalbum.model.UploadResult;
+import com.photoalbum.service.PhotoService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+@ActiveProfiles("test")
+class MetricsTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PhotoService photoService;
+
+    @Test
+    void exposesHotPathMetricsInPrometheusFormat() throws Exception {
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB), "jpeg", jpeg);
+        UploadResult result = photoService.uploadPhoto(
+                new MockMultipartFile("files", "metrics.jpg", "image/jpeg", jpeg.toByteArray()));
+        assertTrue(result.isSuccess());
+
+        mockMvc.perform(get("/photo/" + result.getPhotoId())).andExpect(status().isOk());
+        mockMvc.perform(get("/")).andExpect(status().isOk());
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        for (String stage : new String[] {"read", "validate", "decode", "persist"}) {
+            assertTrue(scrape.contains("photo_upload_stage_seconds_count{stage=\"" + stage + "\""), stage);
+        }
+        assertTrue(scrape.contains("photo_storage_bytes_total{backend=\"database\",operation=\"write\""));
+        assertTrue(scrape.matches("(?s).*http_server_requests_seconds_bucket\\{[^}]*size=\"0-64KB\"[^}]*uri=\"/photo/\\{id}\".*"));
+        assertTrue(scrape.contains("memory_cache_gets_total{cache=\"gallery\",result=\"miss\""));
+        assertTrue(scrape.contains("hikaricp_connections_acquire_seconds_bucket"));
+
+        photoService.deletePhoto(result.getPhotoId());
+    }
+}
@@ -0,0 +1,154 @@
+package com.photoalbum.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.photoalbum.model.Photo;
+import com.photoalbum.model.UploadResult;
+import com.photoalbum.repository.PhotoRepository;
+import com.photoalbum.service.PhotoService;
+import com.photoalbum.util.ImageUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class PhotoApiControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private PhotoService photoService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void pagesThroughAllPhotosByCursor() throws Exception {
+        // Two of the photos have the same timestamp
+        LocalDateTime time = LocalDateTime.of(1980, 1, 1, 0, 0);
+        save("10000000-0000-0000-0000-000000000001", time);
+        save("10000000-0000-0000-0000-000000000002", time);
+        save("10000000-0000-0000-0000-000000000003", time.plusHours(1));
+
+        List<String> ids = new ArrayList<String>();
+        String cursor = null;
+        do {
+            String body = mockMvc.perform(get("/api/photos").param("limit", "2")
+                            .param("cursor", cursor != null ? cursor : ""))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            JsonNode page = objectMapper.readTree(body);
+            for (JsonNode photo : page.get("photos")) {
+                assertFalse(ids.contains(photo.get("id").asText()));
+                ids.add(photo.get("id").asText());
+            }
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+        } while (cursor != null);
+
+        assertEquals(photoRepository.count(), ids.size());
+        int start = ids.indexOf("10000000-0000-0000-0000-000000000003");
+        assertEquals(Arrays.asList(
+                "10000000-0000-0000-0000-000000000003",
+                "10000000-0000-0000-0000-000000000002",
+                "10000000-0000-0000-0000-000000000001"), ids.subList(start, start + 3));
+    }
+
+    @Test
+    void returnsMetadataOnly() throws Exception {
+        save("10000000-0000-0000-0000-000000000004", LocalDateTime.now().plusYears(1));
+
+        mockMvc.perform(get("/api/photos").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.photos[0].id").value("10000000-0000-0000-0000-000000000004"))
+                .andExpect(jsonPath("$.photos[0].fileSize").value(3))
+                .andExpect(jsonPath("$.photos[0].blob").doesNotExist());
+    }
+
+    @Test
+    void rejectsMalformedCursor() throws Exception {
+        mockMvc.perform(get("/api/photos").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void findsResizedCopiesAsSimilarPhotos() throws Exception {
+        BufferedImage image = pattern(800, 600, false);
+        String original = upload("original.png", image, "png");
+        String copy = upload("copy.jpg", ImageUtil.scaleToWidth(image, 400), "jpeg");
+        String other = upload("other.png", pattern(800, 600, true), "png");
+
+        String body = mockMvc.perform(get("/api/photos/{id}/similar", original))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<String> ids = new ArrayList<String>();
+        for (JsonNode similar : objectMapper.readTree(body)) {
+            ids.add(similar.get("photo").get("id").asText());
+            assertTrue(similar.get("distance").asInt() <= 10);
+        }
+        assertTrue(ids.contains(copy));
+        assertFalse(ids.contains(original));
+        assertFalse(ids.contains(other));
+
+        mockMvc.perform(get("/api/photos/{id}/similar", original).param("maxDistance", "65"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/photos/{id}/similar", "no-such-photo"))
+                .andExpect(status().isNotFound());
+    }
+
+    private String upload(String name, BufferedImage image, String format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        UploadResult result = photoService.uploadPhoto(
+                new MockMultipartFile("files", name, "image/" + format, out.toByteArray()));
+        assertTrue(result.isSuccess());
+        return result.getPhotoId();
+    }
+
+    /**
+     * Smooth grey pattern, optionally mirrored left to right
+     */
+    private static BufferedImage pattern(int width, int height, boolean mirrored) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int column = mirrored ? width - 1 - x : x;
+                int value = (int) (127 + 127 * Math.sin(column / 60.0) * Math.cos(y / 45.0));
+                image.setRGB(x, y, value << 16 | value << 8 | value);
+            }
+        }
+        return image;
+    }
+
+    private void save(String id, LocalDateTime uploadedAt) {
+        Photo photo = new Photo(id + ".jpg", new byte[] {1, 2, 3}, id + ".jpg", "/uploads/" + id + ".jpg",
+                3L, "image/jpeg");
+        photo.setId(id);
+        photo.setUploadedAt(uploadedAt);
+        photoRepository.save(photo);
+    }
+}
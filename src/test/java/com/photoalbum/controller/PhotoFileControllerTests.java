@@ -0,0 +1,245 @@
+package com.photoalbum.controller;
+
+import com.photoalbum.cache.DiskLruCache;
+import com.photoalbum.model.Photo;
+import com.photoalbum.model.UploadResult;
+import com.photoalbum.repository.PhotoBlobRepository;
+import com.photoalbum.repository.PhotoRepository;
+import com.photoalbum.service.PhotoService;
+import com.photoalbum.util.HashUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class PhotoFileControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private PhotoService photoService;
+
+    @Autowired
+    private PhotoBlobRepository photoBlobRepository;
+
+    @Autowired
+    private DiskLruCache transformCache;
+
+    private byte[] data;
+    private Photo photo;
+
+    @BeforeEach
+    void setUp() {
+        data = new byte[20000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        Photo newPhoto = new Photo("test.jpg", data, "stored.jpg", "/uploads/stored.jpg",
+                (long) data.length, "image/jpeg");
+        newPhoto.setContentHash(HashUtil.sha256Hex(data));
+        photo = photoRepository.save(newPhoto);
+    }
+
+    @Test
+    void servesFullPhoto() throws Exception {
+        mockMvc.perform(get("/photo/{id}", photo.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, data.length))
+                .andExpect(content().bytes(data));
+    }
+
+    @Test
+    void servesContentHashETagWithImmutableCaching() throws Exception {
+        mockMvc.perform(get("/photo/{id}", photo.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + photo.getContentHash() + "\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "public, max-age=31536000, immutable"));
+    }
+
+    @Test
+    void answersMatchingIfNoneMatchWithNotModified() throws Exception {
+        mockMvc.perform(get("/photo/{id}", photo.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"" + photo.getContentHash() + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void servesRequestedRange() throws Exception {
+        mockMvc.perform(get("/photo/{id}", photo.getId()).header(HttpHeaders.RANGE, "bytes=10000-10099"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 10000-10099/" + data.length))
+                .andExpect(content().bytes(Arrays.copyOfRange(data, 10000, 10100)));
+    }
+
+    @Test
+    void rejectsUnsatisfiableRange() throws Exception {
+        mockMvc.perform(get("/photo/{id}", photo.getId()).header(HttpHeaders.RANGE, "bytes=30000-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable());
+    }
+
+    @Test
+    void answersHeadFromMetadata() throws Exception {
+        mockMvc.perform(head("/photo/{id}", photo.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, data.length))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void servesStreamedUploadUnchanged() throws Exception {
+        BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        // The declared type is wrong; the stored type comes from the file signature
+        UploadResult result = photoService.uploadPhoto(
+                new MockMultipartFile("files", "small.png", "image/jpeg", png.toByteArray()));
+
+        mockMvc.perform(get("/photo/{id}", result.getPhotoId()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("image/png"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + HashUtil.sha256Hex(png.toByteArray()) + "\""))
+                .andExpect(content().bytes(png.toByteArray()));
+    }
+
+    @Test
+    void storesIdenticalUploadsOnce() throws Exception {
+        BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, (int) System.nanoTime());
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        long blobsBefore = photoBlobRepository.count();
+
+        UploadResult first = photoService.uploadPhoto(
+                new MockMultipartFile("files", "first.png", "image/png", png.toByteArray()));
+        long blobsAfterFirst = photoBlobRepository.count();
+        UploadResult second = photoService.uploadPhoto(
+                new MockMultipartFile("files", "second.png", "image/png", png.toByteArray()));
+
+        // The second copy shares the original's and the renditions' rows
+        assertEquals(blobsAfterFirst, photoBlobRepository.count());
+        Photo firstPhoto = photoRepository.findById(first.getPhotoId()).get();
+        assertEquals(firstPhoto.getBlobId(), photoRepository.findById(second.getPhotoId()).get().getBlobId());
+
+        // Deleting one copy keeps the shared data; deleting the last one reclaims it
+        photoService.deletePhoto(first.getPhotoId());
+        mockMvc.perform(get("/photo/{id}", second.getPhotoId()))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(png.toByteArray()));
+        photoService.deletePhoto(second.getPhotoId());
+        assertFalse(photoBlobRepository.existsById(firstPhoto.getBlobId()));
+        assertEquals(blobsBefore, photoBlobRepository.count());
+    }
+
+    @Test
+    void rejectsUploadWhoseContentIsNotAnImage() {
+        UploadResult result = photoService.uploadPhoto(
+                new MockMultipartFile("files", "page.jpg", "image/jpeg", "<html></html>".getBytes()));
+
+        assertFalse(result.isSuccess());
+    }
+
+    @Test
+    void servesGeneratedThumbnail() throws Exception {
+        BufferedImage image = new BufferedImage(1600, 1200, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        UploadResult result = photoService.uploadPhoto(
+                new MockMultipartFile("files", "large.png", "image/png", png.toByteArray()));
+
+        byte[] thumbnail = mockMvc.perform(get("/photo/{id}/thumb", result.getPhotoId()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("image/jpeg"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(thumbnail));
+        assertEquals(320, decoded.getWidth());
+        assertEquals(240, decoded.getHeight());
+    }
+
+    @Test
+    void servesResizedCopyForTransformParameters() throws Exception {
+        BufferedImage image = new BufferedImage(800, 400, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        UploadResult result = photoService.uploadPhoto(
+                new MockMultipartFile("files", "wide.png", "image/png", png.toByteArray()));
+
+        byte[] resized = mockMvc.perform(get("/photo/{id}", result.getPhotoId())
+                        .param("w", "100").param("h", "100").param("fit", "cover"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(resized));
+        assertEquals(100, decoded.getWidth());
+        assertEquals(100, decoded.getHeight());
+    }
+
+    @Test
+    void deletingPhotoRemovesItsResizedCopies() throws Exception {
+        BufferedImage image = new BufferedImage(400, 200, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        UploadResult result = photoService.uploadPhoto(
+                new MockMultipartFile("files", "deleted.png", "image/png", png.toByteArray()));
+        mockMvc.perform(get("/photo/{id}", result.getPhotoId()).param("w", "50"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/photo/{id}", result.getPhotoId()).param("w", "60"))
+                .andExpect(status().isOk());
+        int cached = transformCache.getEntryCount();
+
+        photoService.deletePhoto(result.getPhotoId());
+
+        assertEquals(cached - 2, transformCache.getEntryCount());
+    }
+
+    @Test
+    void rejectsInvalidTransformParameters() throws Exception {
+        mockMvc.perform(get("/photo/{id}", photo.getId()).param("w", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/photo/{id}", photo.getId()).param("w", "100").param("fit", "stretch"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void fallsBackToOriginalWithoutRendition() throws Exception {
+        mockMvc.perform(get("/photo/{id}/thumb", photo.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(data));
+    }
+
+    @Test
+    void returnsNotFoundForUnknownPhoto() throws Exception {
+        mockMvc.perform(get("/photo/{id}", "missing"))
+                .andExpect(status().isNotFound());
+    }
+}
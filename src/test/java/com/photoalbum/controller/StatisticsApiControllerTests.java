@@ -0,0 +1,80 @@
+package com.photoalbum.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.photoalbum.model.UploadResult;
+import com.photoalbum.service.PhotoService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class StatisticsApiControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PhotoService photoService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void updatesStatisticsOnUploadAndDelete() throws Exception {
+        JsonNode before = statistics();
+
+        // Random pixels so the PNG is larger than any other test photo
+        BufferedImage image = new BufferedImage(300, 300, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        UploadResult result = photoService.uploadPhoto(
+                new MockMultipartFile("files", "noise.png", "image/png", png.toByteArray()));
+
+        JsonNode after = statistics();
+        assertEquals(before.get("photoCount").asLong() + 1, after.get("photoCount").asLong());
+        assertEquals(before.get("totalBytes").asLong() + png.size(), after.get("totalBytes").asLong());
+        assertEquals(result.getPhotoId(), after.get("largest").get(0).get("id").asText());
+        assertEquals(pngCount(before) + 1, pngCount(after));
+
+        photoService.deletePhoto(result.getPhotoId());
+        assertEquals(before.get("photoCount").asLong(), statistics().get("photoCount").asLong());
+    }
+
+    private JsonNode statistics() throws Exception {
+        String body = mockMvc.perform(get("/api/stats"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    private static long pngCount(JsonNode statistics) {
+        for (JsonNode mimeType : statistics.get("mimeTypes")) {
+            if ("image/png".equals(mimeType.get("mimeType").asText())) {
+                return mimeType.get("photoCount").asLong();
+            }
+        }
+        return 0;
+    }
+}
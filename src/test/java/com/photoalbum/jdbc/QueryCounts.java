@@ -0,0 +1,51 @@
+package com.photoalbum.jdbc;
+
+import com.photoalbum.controller.QueryBudgetFilter;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Assertions on the statements, rows and LOB bytes of requests (from the X-Query-* headers of
+ * QueryBudgetFilter) and of code run on the test thread
+ */
+public final class QueryCounts {
+
+    private QueryCounts() {
+    }
+
+    /**
+     * Run code with query counting on the current thread
+     * @return What the code executed
+     */
+    public static QueryStats during(Runnable action) {
+        QueryStats stats = QueryStats.start();
+        try {
+            action.run();
+        } finally {
+            QueryStats.stop();
+        }
+        return stats;
+    }
+
+    public static ResultMatcher statementsAtMost(int max) {
+        return result -> {
+            String count = result.getResponse().getHeader(QueryBudgetFilter.STATEMENTS_HEADER);
+            assertTrue(count != null && Integer.parseInt(count) <= max,
+                "Expected at most " + max + " statements but the request executed " + count);
+        };
+    }
+
+    public static ResultMatcher noLobData() {
+        return result -> {
+            String bytes = result.getResponse().getHeader(QueryBudgetFilter.LOB_BYTES_HEADER);
+            assertTrue("0".equals(bytes), "Expected no LOB data to be read but the request read " + bytes + " bytes");
+        };
+    }
+
+    public static ResultMatcher withinBudget() {
+        return result -> assertNull(result.getResponse().getHeader(QueryBudgetFilter.EXCEEDED_HEADER),
+            "Request exceeded the query budget");
+    }
+}
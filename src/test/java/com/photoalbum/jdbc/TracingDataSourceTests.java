@@ -0,0 +1,144 @@
+package com.photoalbum.jdbc;
+
+import com.photoalbum.model.Photo;
+import com.photoalbum.model.UploadResult;
+import com.photoalbum.service.PhotoService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.photoalbum.jdbc.QueryCounts.noLobData;
+import static com.photoalbum.jdbc.QueryCounts.statementsAtMost;
+import static com.photoalbum.jdbc.QueryCounts.withinBudget;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class TracingDataSourceTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PhotoService photoService;
+
+    @Test
+    void countsStatementsRowsAndRepeatedStatements() {
+        QueryStats stats = QueryCounts.during(() -> {
+            for (int i = 0; i < 4; i++) {
+                jdbcTemplate.queryForList("SELECT id FROM photos WHERE file_size > ?", String.class, -1L);
+            }
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM photos", Long.class);
+        });
+
+        long photos = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM photos", Long.class);
+        assertEquals(5, stats.getStatements());
+        assertEquals(4 * photos + 1, stats.getRows());
+        assertEquals(4, stats.getMaxRepetitions());
+        assertEquals("SELECT id FROM photos WHERE file_size > ?", stats.getMostRepeated());
+    }
+
+    @Test
+    void countsLobBytesOfPhotoDataOnlyWhereServed() throws Exception {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(123, 45, BufferedImage.TYPE_INT_RGB), "png", png);
+        UploadResult result = photoService.uploadPhoto(
+                new MockMultipartFile("files", "lob.png", "image/png", png.toByteArray()));
+        final Photo photo = photoService.getPhotoById(result.getPhotoId()).get();
+
+        QueryStats stats = QueryCounts.during(() -> {
+            try (InputStream in = photoService.getPhotoData(photo).get().getInputStream()) {
+                StreamUtils.drain(in);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        assertEquals(png.size(), stats.getLobBytes());
+
+        mockMvc.perform(get("/"))
+                .andExpect(status().isOk())
+                .andExpect(statementsAtMost(2))
+                .andExpect(noLobData())
+                .andExpect(withinBudget());
+        mockMvc.perform(get("/detail/" + photo.getId()))
+                .andExpect(status().isOk())
+                .andExpect(statementsAtMost(2))
+                .andExpect(noLobData())
+                .andExpect(withinBudget());
+        mockMvc.perform(get("/api/photos"))
+                .andExpect(status().isOk())
+                .andExpect(statementsAtMost(1))
+                .andExpect(noLobData())
+                .andExpect(withinBudget());
+        assertTrue(photoService.deletePhoto(photo.getId()));
+    }
+
+    /**
+     * Existing data of the batch is looked up and referenced at once, so the INSERTs are not
+     * split by auto-flushes and no statement runs once per file
+     */
+    @Test
+    void uploadsBatchWithoutStatementsPerFile() throws Exception {
+        byte[] existing = png(31, 17);
+        byte[] repeated = png(32, 17);
+        Map<String, byte[]> uploads = new LinkedHashMap<String, byte[]>();
+        uploads.put("existing.png", existing);
+        uploads.put("repeated1.png", repeated);
+        uploads.put("repeated2.png", repeated);
+        uploads.put("new.png", png(33, 17));
+        UploadResult earlier = photoService.uploadPhoto(new MockMultipartFile("files", "earlier.png", "image/png", existing));
+
+        List<MultipartFile> files = new ArrayList<MultipartFile>();
+        for (Map.Entry<String, byte[]> upload : uploads.entrySet()) {
+            files.add(new MockMultipartFile("files", upload.getKey(), "image/png", upload.getValue()));
+        }
+        List<UploadResult> results = new ArrayList<UploadResult>();
+        QueryStats stats = QueryCounts.during(() -> results.addAll(photoService.uploadPhotos(files)));
+
+        assertEquals(1, stats.getMaxRepetitions(), "Repeated: " + stats.getMostRepeated());
+        for (UploadResult result : results) {
+            assertTrue(result.isSuccess());
+            Photo photo = photoService.getPhotoById(result.getPhotoId()).get();
+            try (InputStream in = photoService.getPhotoData(photo).get().getInputStream()) {
+                assertArrayEquals(uploads.get(result.getFileName()), StreamUtils.copyToByteArray(in));
+            }
+        }
+
+        assertTrue(photoService.deletePhoto(earlier.getPhotoId()));
+        for (UploadResult result : results) {
+            assertTrue(photoService.deletePhoto(result.getPhotoId()));
+        }
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", png);
+        return png.toByteArray();
+    }
+}
@@ -0,0 +1,145 @@
+package com.photoalbum.service.impl;
+
+import com.photoalbum.model.Photo;
+import com.photoalbum.repository.PhotoMimeStatsRepository;
+import com.photoalbum.repository.PhotoMonthCountRepository;
+import com.photoalbum.repository.PhotoRepository;
+import com.photoalbum.repository.PhotoSizeBucketRepository;
+import com.photoalbum.repository.PhotoSummaryStateRepository;
+import com.photoalbum.util.SizeBuckets;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class AlbumSummariesTests {
+
+    @Autowired
+    private AlbumSummaries albumSummaries;
+
+    @Autowired
+    private PhotoMonthCountRepository photoMonthCountRepository;
+
+    @Autowired
+    private PhotoMimeStatsRepository photoMimeStatsRepository;
+
+    @Autowired
+    private PhotoSizeBucketRepository photoSizeBucketRepository;
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private PhotoSummaryStateRepository photoSummaryStateRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void backfillReplacesCountsOncePerSchema() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Photo photo = new Photo("backfill.jpg", null, "backfill.jpg", "/uploads/backfill.jpg", 2000L, "image/jpeg");
+        photo.setUploadedAt(LocalDateTime.of(1998, 6, 15, 10, 0));
+        photoRepository.saveAndFlush(photo);
+        String month = YearMonth.from(photo.getUploadedAt()).toString();
+
+        // Counts left wrong, e.g. by an earlier double-counting backfill
+        photoSummaryStateRepository.deleteById("backfill");
+        albumSummaries.createRows(Collections.singletonList(photo));
+        transactionTemplate.execute(status -> photoMonthCountRepository.addToMonth(month, 5));
+
+        albumSummaries.backfill();
+        albumSummaries.backfill();
+        assertEquals(1, photoMonthCountRepository.findById(month).get().getPhotoCount());
+
+        // The marker is claimed, so later starts do not recount
+        transactionTemplate.execute(status -> photoMonthCountRepository.addToMonth(month, 1));
+        albumSummaries.backfill();
+        assertEquals(2, photoMonthCountRepository.findById(month).get().getPhotoCount());
+
+        photoRepository.delete(photo);
+        photoSummaryStateRepository.deleteById("backfill");
+        albumSummaries.backfill();
+        assertEquals(0, photoMonthCountRepository.findById(month).get().getPhotoCount());
+    }
+
+    /**
+     * Upload transactions only update existing rows, so concurrent uploads cannot both insert
+     * a new month (ORA-00001 on Oracle; H2 serializes its MERGE and does not show the race)
+     */
+    @Test
+    void createsSummaryRowsBeforeTheUploadTransaction() {
+        Photo photo = new Photo("new.gif", null, "new.gif", "/uploads/new.gif", 123456789L, "image/x-new");
+        photo.setUploadedAt(LocalDateTime.of(1999, 12, 31, 23, 59));
+
+        albumSummaries.createRows(Collections.singletonList(photo));
+
+        assertEquals(0, photoMonthCountRepository.findById("1999-12").get().getPhotoCount());
+        assertEquals(0, photoMimeStatsRepository.findById("image/x-new").get().getPhotoCount());
+        assertEquals(0, photoSizeBucketRepository.findById(SizeBuckets.bucketOf(123456789L)).get().getPhotoCount());
+    }
+
+    @Test
+    void concurrentTransactionsCountIntoTheSameNewMonth() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<Photo> first = photosOf(LocalDateTime.of(2001, 2, 3, 4, 5));
+        List<Photo> second = photosOf(LocalDateTime.of(2001, 2, 28, 12, 0));
+        CountDownLatch recorded = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            albumSummaries.createRows(first);
+            Future<?> firstUpload = executor.submit(() -> transactionTemplate.execute(status -> {
+                albumSummaries.record(first, 1);
+                recorded.countDown();
+                await(commit);
+                return null;
+            }));
+            recorded.await(5, TimeUnit.SECONDS);
+
+            // Both transactions are open and neither has committed the month's first photo
+            albumSummaries.createRows(second);
+            commit.countDown();
+            transactionTemplate.execute(status -> {
+                albumSummaries.record(second, 1);
+                return null;
+            });
+            firstUpload.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(2, photoMonthCountRepository.findById("2001-02").get().getPhotoCount());
+    }
+
+    private static List<Photo> photosOf(LocalDateTime uploadedAt) {
+        Photo photo = new Photo("month.jpg", null, "month.jpg", "/uploads/month.jpg", 1000L, "image/jpeg");
+        photo.setUploadedAt(uploadedAt);
+        return Collections.singletonList(photo);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
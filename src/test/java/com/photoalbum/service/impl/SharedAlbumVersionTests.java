@@ -0,0 +1,90 @@
+package com.photoalbum.service.impl;
+
+import com.photoalbum.repository.AlbumVersionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class SharedAlbumVersionTests {
+
+    @Autowired
+    private AlbumVersionRepository albumVersionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Two instances of the application against the same schema: a change committed by one is
+     * seen by the other once its refresh interval has passed
+     */
+    @Test
+    void otherInstancesSeeCommittedChanges() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        SharedAlbumVersion local = new SharedAlbumVersion(albumVersionRepository, transactionManager, 3600000);
+        SharedAlbumVersion remote = new SharedAlbumVersion(albumVersionRepository, transactionManager, 0);
+        AtomicInteger remoteChanges = new AtomicInteger();
+        remote.addListener(remoteChanges::incrementAndGet);
+
+        long before = local.current();
+        assertEquals(before, remote.current());
+        remoteChanges.set(0);
+
+        transactionTemplate.execute(status -> {
+            local.increment();
+            return null;
+        });
+        assertTrue(local.current() > before);
+
+        assertEquals(local.current(), remote.current());
+        assertEquals(1, remoteChanges.get());
+
+        // Unchanged versions do not notify
+        remote.current();
+        assertEquals(1, remoteChanges.get());
+    }
+
+    @Test
+    void rolledBackChangesDoNotChangeTheVersion() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        SharedAlbumVersion version = new SharedAlbumVersion(albumVersionRepository, transactionManager, 0);
+        long before = version.current();
+
+        transactionTemplate.execute(status -> {
+            version.increment();
+            status.setRollbackOnly();
+            return null;
+        });
+
+        assertEquals(before, version.current());
+    }
+
+    /**
+     * The row is created in its own transaction, so a duplicate insert by another instance
+     * cannot mark a read-only caller's transaction rollback-only
+     */
+    @Test
+    void createsTheRowOutsideTheCallersTransaction() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        SharedAlbumVersion version = new SharedAlbumVersion(albumVersionRepository, transactionManager, 0);
+        albumVersionRepository.deleteAll();
+
+        readOnly.execute(status -> {
+            version.current();
+            status.setRollbackOnly();
+            return null;
+        });
+
+        assertTrue(albumVersionRepository.findVersion().isPresent());
+    }
+}
@@ -0,0 +1,180 @@
+package com.photoalbum.storage;
+
+import com.photoalbum.model.Photo;
+import com.photoalbum.model.UploadResult;
+import com.photoalbum.repository.PhotoRepository;
+import com.photoalbum.service.PhotoService;
+import com.photoalbum.util.HashUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:storagetest;MODE=Oracle",
+    "app.storage.backend=filesystem"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class FileSystemPhotoStorageTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PhotoService photoService;
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private FileSystemPhotoStorage storage;
+
+    @Autowired
+    private StorageMigration storageMigration;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void storesUploadsAsContentAddressedFiles() throws Exception {
+        byte[] png = png(1600, 1200);
+        UploadResult result = photoService.uploadPhoto(new MockMultipartFile("files", "stored.png", "image/png", png));
+        Photo photo = photoRepository.findById(result.getPhotoId()).get();
+
+        String key = HashUtil.sha256Hex(png);
+        assertEquals(key, photo.getStorageKey());
+        assertNull(photo.getBlobId());
+        Path file = storage.pathOf(key);
+        assertTrue(file.endsWith(key.substring(0, 2) + "/" + key.substring(2, 4) + "/" + key));
+        assertTrue(Files.exists(file));
+
+        mockMvc.perform(get("/photo/{id}", photo.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(png));
+        mockMvc.perform(get("/photo/{id}/thumb", photo.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("image/jpeg"));
+
+        photoService.deletePhoto(photo.getId());
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void handsFilesToContainerSendfile() throws Exception {
+        byte[] png = png(40, 30);
+        UploadResult result = photoService.uploadPhoto(new MockMultipartFile("files", "sendfile.png", "image/png", png));
+        Path file = storage.pathOf(HashUtil.sha256Hex(png));
+
+        mockMvc.perform(get("/photo/{id}", result.getPhotoId())
+                        .requestAttr("org.apache.tomcat.sendfile.support", Boolean.TRUE))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, png.length))
+                .andExpect(request().attribute("org.apache.tomcat.sendfile.filename", file.toFile().getAbsolutePath()))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void migratesDatabaseDataToFiles() throws Exception {
+        byte[] data = png(20, 20);
+        Photo legacy = new Photo("legacy.png", data, "legacy.png", "/uploads/legacy.png", (long) data.length, "image/png");
+        legacy.setContentHash(HashUtil.sha256Hex(data));
+        photoRepository.save(legacy);
+
+        assertTrue(storageMigration.migrateAll() >= 1);
+
+        Photo migrated = photoRepository.findById(legacy.getId()).get();
+        assertNull(migrated.getBlobId());
+        assertEquals(HashUtil.sha256Hex(data), migrated.getStorageKey());
+        mockMvc.perform(get("/photo/{id}", legacy.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(data));
+    }
+
+    /**
+     * An upload reusing the file of a photo that is deleted before the upload commits: the
+     * delete's check runs while the new row is not visible yet, and must leave the file alone
+     */
+    @Test
+    void keepsFilesReusedByUploadsInProgress() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        byte[] png = png(30, 20);
+        String key = HashUtil.sha256Hex(png);
+        UploadResult first = photoService.uploadPhoto(new MockMultipartFile("files", "first.png", "image/png", png));
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch deleted = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<String> second;
+        try {
+            second = executor.submit(() -> transactionTemplate.execute(status -> {
+                Photo copy = new Photo("second.png", "second.png", "/uploads/second.png", (long) png.length, "image/png");
+                copy.setContentHash(key);
+                try {
+                    storage.write(copy, new ByteArrayInputStream(png), png.length);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                photoRepository.save(copy);
+                written.countDown();
+                await(deleted);
+                return copy.getId();
+            }));
+            assertTrue(written.await(5, TimeUnit.SECONDS));
+
+            photoService.deletePhoto(first.getPhotoId());
+            assertTrue(Files.exists(storage.pathOf(key)));
+            deleted.countDown();
+
+            mockMvc.perform(get("/photo/{id}", second.get(5, TimeUnit.SECONDS)))
+                    .andExpect(status().isOk())
+                    .andExpect(content().bytes(png));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] png(int width, int height) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+}
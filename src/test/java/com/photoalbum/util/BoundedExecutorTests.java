@@ -0,0 +1,60 @@
+package com.photoalbum.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedExecutorTests {
+
+    @Test
+    void rejectsTasksBeyondTheLimitUntilOneFinishes() throws Exception {
+        BoundedExecutor executor = new BoundedExecutor(Executors.defaultThreadFactory(), 2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(3);
+        Runnable blocked = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            finished.countDown();
+        };
+
+        executor.execute(blocked);
+        executor.execute(blocked);
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(blocked));
+
+        release.countDown();
+        while (executor.getRunningTasks() > 0) {
+            Thread.sleep(5);
+        }
+        executor.execute(finished::countDown);
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void runsTasksOnVirtualThreadsWhenSupported() throws Exception {
+        if (!VirtualThreads.isSupported()) {
+            assertThrows(IllegalStateException.class, () -> VirtualThreads.factory("test-"));
+            return;
+        }
+        ThreadFactory factory = VirtualThreads.factory("test-");
+        AtomicReference<String> name = new AtomicReference<String>();
+        CountDownLatch done = new CountDownLatch(1);
+        new BoundedExecutor(factory, 1).execute(() -> {
+            name.set(Thread.currentThread().getName());
+            done.countDown();
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals("test-0", name.get());
+    }
+}
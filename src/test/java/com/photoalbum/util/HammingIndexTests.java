@@ -0,0 +1,77 @@
+package com.photoalbum.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HammingIndexTests {
+
+    @Test
+    void findsSameMatchesAsFullScan() {
+        Random random = new Random(42);
+        HammingIndex index = new HammingIndex();
+        long[] hashes = new long[5000];
+        for (int i = 0; i < hashes.length; i++) {
+            // Every tenth hash is a near copy of an earlier one
+            hashes[i] = i % 10 == 9 ? flipBits(hashes[i - 1], random, random.nextInt(12)) : random.nextLong();
+            index.add("photo-" + i, hashes[i]);
+        }
+
+        for (int query = 0; query < 200; query++) {
+            long hash = flipBits(hashes[random.nextInt(hashes.length)], random, random.nextInt(4));
+            for (int maxDistance : new int[] {0, 3, 10, 16}) {
+                List<String> expected = new ArrayList<String>();
+                for (int i = 0; i < hashes.length; i++) {
+                    if (Long.bitCount(hashes[i] ^ hash) <= maxDistance) {
+                        expected.add("photo-" + i);
+                    }
+                }
+                List<String> found = new ArrayList<String>();
+                int previousDistance = 0;
+                for (HammingIndex.Match match : index.search(hash, maxDistance)) {
+                    assertTrue(match.getDistance() >= previousDistance);
+                    previousDistance = match.getDistance();
+                    found.add(match.getId());
+                }
+                assertEquals(expected.size(), found.size(), "matches within " + maxDistance);
+                assertTrue(found.containsAll(expected));
+            }
+        }
+    }
+
+    @Test
+    void removesAndReplacesEntries() {
+        HammingIndex index = new HammingIndex();
+        index.add("a", 0L);
+        index.add("b", 1L);
+        index.add("c", 0xFFFFL);
+
+        assertTrue(index.remove("a"));
+        assertFalse(index.remove("a"));
+        assertNull(index.get("a"));
+        index.add("c", 3L);
+        index.add("d", 7L);
+
+        assertEquals(3, index.size());
+        List<HammingIndex.Match> matches = index.search(0L, 3);
+        assertEquals(3, matches.size());
+        assertEquals("b", matches.get(0).getId());
+        assertEquals("c", matches.get(1).getId());
+        assertEquals("d", matches.get(2).getId());
+        assertEquals(3, matches.get(2).getDistance());
+    }
+
+    private static long flipBits(long hash, Random random, int bits) {
+        for (int i = 0; i < bits; i++) {
+            hash ^= 1L << random.nextInt(64);
+        }
+        return hash;
+    }
+}
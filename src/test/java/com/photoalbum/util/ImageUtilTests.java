@@ -0,0 +1,96 @@
+package com.photoalbum.util;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageUtilTests {
+
+    private static byte[] jpeg;
+
+    @BeforeAll
+    static void createImage() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(4000, 3000, BufferedImage.TYPE_INT_RGB), "jpeg", out);
+        jpeg = out.toByteArray();
+    }
+
+    @Test
+    void readsDimensionsFromHeader() throws IOException {
+        try (ImageInputStream input = input(jpeg)) {
+            assertArrayEquals(new int[] {4000, 3000}, ImageUtil.readDimensions(input));
+        }
+    }
+
+    @Test
+    void returnsNullForUnsupportedFormat() throws IOException {
+        try (ImageInputStream input = input(new byte[] {1, 2, 3, 4})) {
+            assertNull(ImageUtil.readDimensions(input));
+        }
+    }
+
+    @Test
+    void sniffsMimeTypeFromSignature() {
+        assertEquals("image/jpeg", ImageUtil.sniffMimeType(jpeg, 16));
+        byte[] webp = {'R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E', 'B', 'P'};
+        assertEquals("image/webp", ImageUtil.sniffMimeType(webp, webp.length));
+        assertNull(ImageUtil.sniffMimeType(new byte[] {'G', 'I', 'F'}, 3));
+        assertNull(ImageUtil.sniffMimeType("<html>".getBytes(), 6));
+    }
+
+    @Test
+    void decodesSubsampledForSmallTargets() throws IOException {
+        try (ImageInputStream input = input(jpeg)) {
+            BufferedImage image = ImageUtil.readSubsampled(input, 320, 0);
+            // 4000 / (2 * 320) = 6, so every 6th pixel is decoded
+            assertEquals(667, image.getWidth());
+            assertEquals(500, image.getHeight());
+            assertTrue(image.getWidth() >= 2 * 320);
+        }
+    }
+
+    @Test
+    void subsamplingKeepsTwiceTheTargetInEachConstrainedDimension() {
+        assertEquals(6, ImageUtil.subsamplingFactor(4000, 3000, 320, 0));
+        assertEquals(3, ImageUtil.subsamplingFactor(4000, 3000, 320, 400));
+        assertEquals(1, ImageUtil.subsamplingFactor(1000, 800, 1024, 0));
+        assertEquals(1, ImageUtil.subsamplingFactor(1000, 800, 0, 0));
+    }
+
+    @Test
+    void differenceHashMatchesResizedCopies() {
+        BufferedImage image = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int value = (int) (127 + 127 * Math.sin(x / 60.0) * Math.cos(y / 45.0));
+                image.setRGB(x, y, value << 16 | value << 8 | value);
+            }
+        }
+        BufferedImage mirrored = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                mirrored.setRGB(x, y, image.getRGB(image.getWidth() - 1 - x, y));
+            }
+        }
+
+        long hash = ImageUtil.differenceHash(image);
+        assertTrue(Long.bitCount(hash ^ ImageUtil.differenceHash(ImageUtil.scaleToWidth(image, 120))) <= 4);
+        assertTrue(Long.bitCount(hash ^ ImageUtil.differenceHash(mirrored)) > 16);
+    }
+
+    private static ImageInputStream input(byte[] data) {
+        return new MemoryCacheImageInputStream(new ByteArrayInputStream(data));
+    }
+}
@@ -0,0 +1,41 @@
+package com.photoalbum.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SizeBucketsTests {
+
+    @Test
+    void bucketsContainTheirSizes() {
+        long[] sizes = {0, 1, 3, 4, 7, 8, 9, 1000, 123456, 10485760, Long.MAX_VALUE / 2};
+        for (long size : sizes) {
+            int bucket = SizeBuckets.bucketOf(size);
+            assertTrue(SizeBuckets.lowerBound(bucket) <= size, "lower bound of " + size);
+            assertTrue(size < SizeBuckets.upperBound(bucket), "upper bound of " + size);
+        }
+        assertEquals(SizeBuckets.upperBound(9), SizeBuckets.lowerBound(10));
+    }
+
+    @Test
+    void estimatesPercentilesWithinBucketPrecision() {
+        Map<Integer, Long> counts = new TreeMap<Integer, Long>();
+        for (long size = 1000; size <= 100000; size += 1000) {
+            Integer bucket = SizeBuckets.bucketOf(size);
+            Long count = counts.get(bucket);
+            counts.put(bucket, count == null ? 1 : count + 1);
+        }
+
+        assertWithin(50000, SizeBuckets.percentile(counts, 0.5));
+        assertWithin(90000, SizeBuckets.percentile(counts, 0.9));
+        assertEquals(0, SizeBuckets.percentile(new TreeMap<Integer, Long>(), 0.5));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 4, "expected ~" + expected + " but was " + actual);
+    }
+}